@@ -2,6 +2,7 @@ package actions;
 
 import dataprocessors.AppData;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.concurrent.Task;
 import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.image.WritableImage;
 import javafx.stage.FileChooser;
@@ -46,6 +47,9 @@ public final class AppActions implements ActionComponent {
     /** The boolean property marking whether or not there are any unsaved changes. */
     SimpleBooleanProperty isUnsaved;
 
+    /** Whether or not lines appended to the loaded data file are added to the data as they are written. */
+    private boolean following;
+
     public AppActions(ApplicationTemplate applicationTemplate) {
         this.applicationTemplate = applicationTemplate;
         this.isUnsaved = new SimpleBooleanProperty(false);
@@ -76,7 +80,7 @@ public final class AppActions implements ActionComponent {
         try {
 
             if (dataFilePath == null) {
-                ((AppData) applicationTemplate.getDataComponent()).loadData((((AppUI) applicationTemplate.getUIComponent()).getCurrentText()));
+                ((AppUI) applicationTemplate.getUIComponent()).reparseIfChanged();
                 FileChooser fc = new FileChooser();
                 File file;
                 fc.setInitialDirectory(new File("/"));
@@ -85,13 +89,17 @@ public final class AppActions implements ActionComponent {
                 String extension = applicationTemplate.manager.getPropertyValue(AppPropertyTypes.DATA_FILE_EXT.name());
                 ExtensionFilter extFilter = new ExtensionFilter(String.format("%s (*%s)", description, extension),
                         String.format("*%s", extension));
-                fc.getExtensionFilters().add(extFilter);
+                String binaryDescription = applicationTemplate.manager.getPropertyValue(AppPropertyTypes.DATA_BINARY_FILE_EXT_DESC.name());
+                String binaryExtension = applicationTemplate.manager.getPropertyValue(AppPropertyTypes.DATA_BINARY_FILE_EXT.name());
+                ExtensionFilter binaryExtFilter = new ExtensionFilter(String.format("%s (*%s)", binaryDescription, binaryExtension),
+                        String.format("*%s", binaryExtension));
+                fc.getExtensionFilters().addAll(extFilter, binaryExtFilter);
                 if ((file = fc.showSaveDialog(new Stage())) == null)
                     return;
                 dataFilePath = file.toPath();
             }
             try {
-                ((AppData) applicationTemplate.getDataComponent()).loadData(((AppUI) applicationTemplate.getUIComponent()).getCurrentText());
+                ((AppUI) applicationTemplate.getUIComponent()).reparseIfChanged();
             } catch (Exception e) {
                 Dialog err = applicationTemplate.getDialog(Dialog.DialogType.ERROR);
                 err.show(
@@ -115,6 +123,60 @@ public final class AppActions implements ActionComponent {
 
     @Override
     public void handleLoadRequest() {
+        FileChooser fc = new FileChooser();
+        File        file;
+        fc.setInitialDirectory(new File("/"));
+        String description = applicationTemplate.manager.getPropertyValue(AppPropertyTypes.DATA_FILE_EXT_DESC.name());
+        String extension = applicationTemplate.manager.getPropertyValue(AppPropertyTypes.DATA_FILE_EXT.name());
+        ExtensionFilter extFilter = new ExtensionFilter(String.format("%s (*%s)", description, extension),
+                String.format("*%s", extension));
+        String binaryDescription = applicationTemplate.manager.getPropertyValue(AppPropertyTypes.DATA_BINARY_FILE_EXT_DESC.name());
+        String binaryExtension = applicationTemplate.manager.getPropertyValue(AppPropertyTypes.DATA_BINARY_FILE_EXT.name());
+        ExtensionFilter binaryExtFilter = new ExtensionFilter(String.format("%s (*%s)", binaryDescription, binaryExtension),
+                String.format("*%s", binaryExtension));
+        fc.getExtensionFilters().addAll(extFilter, binaryExtFilter);
+        if ((file = fc.showOpenDialog(new Stage())) == null)
+            return;
+        load(file.toPath());
+    }
+
+    /** Loads the specified data file in the background; everything is updated at once when it has been read. */
+    private void load(Path loadedFilePath) {
+        Task<?> load = ((AppData) applicationTemplate.getDataComponent())
+                .loadDataInBackground(loadedFilePath, following, () -> showLoadedData(loadedFilePath));
+        ((AppUI)applicationTemplate.getUIComponent()).showProgress(load, "Loading " + loadedFilePath.getFileName());
+        Thread loader = new Thread(load);
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Starts or stops following the loaded data file, so that lines appended to it are shown as they are written. A
+     * file that is rewritten while it is followed is loaded again.
+     */
+    public void setFollowing(boolean following) {
+        this.following = following;
+        if (following)
+            startFollowing();
+        else
+            ((AppData) applicationTemplate.getDataComponent()).stopFollowing();
+    }
+
+    private void startFollowing() {
+        Path followedFilePath = dataFilePath;
+        try {
+            ((AppData) applicationTemplate.getDataComponent()).follow(() -> load(followedFilePath));
+        } catch (IOException e) {
+            Dialog error = applicationTemplate.getDialog(Dialog.DialogType.ERROR);
+            error.show(applicationTemplate.manager.getPropertyValue(PropertyTypes.LOAD_ERROR_TITLE.name()),
+                       e.getMessage());
+        }
+    }
+
+    /**
+     * Checks whether a <code>.tsd</code> file chosen by the user is valid, in the background and without loading it.
+     */
+    public void handleValidateRequest() {
         FileChooser fc = new FileChooser();
         File        file;
         fc.setInitialDirectory(new File("/"));
@@ -125,9 +187,18 @@ public final class AppActions implements ActionComponent {
         fc.getExtensionFilters().add(extFilter);
         if ((file = fc.showOpenDialog(new Stage())) == null)
             return;
+        Task<?> validation = ((AppData) applicationTemplate.getDataComponent()).validateDataInBackground(file.toPath());
+        ((AppUI)applicationTemplate.getUIComponent()).showProgress(validation, "Validating " + file.getName());
+        Thread validator = new Thread(validation);
+        validator.setDaemon(true);
+        validator.start();
+    }
+
+    private void showLoadedData(Path loadedFilePath) {
         ((AppUI)applicationTemplate.getUIComponent()).getChart().getData().clear();
-        applicationTemplate.getDataComponent().loadData(file.toPath());
-        dataFilePath = file.toPath();
+        dataFilePath = loadedFilePath;
+        if (following)
+            startFollowing();
         ((AppUI)applicationTemplate.getUIComponent()).getSaveButton().setDisable(true);
         ((AppUI)applicationTemplate.getUIComponent()).getScrnshotButton().setDisable(true);
         ((AppUI)applicationTemplate.getUIComponent()).getCb().setSelected(true);
@@ -205,7 +276,7 @@ public final class AppActions implements ActionComponent {
 
         if (dialog.getSelectedOption().equals(ConfirmationDialog.Option.YES)) {
             try {
-                ((AppData) applicationTemplate.getDataComponent()).loadData((((AppUI) applicationTemplate.getUIComponent()).getCurrentText()));
+                ((AppUI) applicationTemplate.getUIComponent()).reparseIfChanged();
             }
             catch (Exception e) {
                 Dialog error = applicationTemplate.getDialog(Dialog.DialogType.ERROR);
@@ -231,7 +302,12 @@ public final class AppActions implements ActionComponent {
                 ExtensionFilter extFilter = new ExtensionFilter(String.format("%s (*%s)", description, extension),
                                                                 String.format("*%s", extension));
 
-                fileChooser.getExtensionFilters().add(extFilter);
+                String binaryDescription = manager.getPropertyValue(AppPropertyTypes.DATA_BINARY_FILE_EXT_DESC.name());
+                String binaryExtension   = manager.getPropertyValue(AppPropertyTypes.DATA_BINARY_FILE_EXT.name());
+                ExtensionFilter binaryExtFilter = new ExtensionFilter(String.format("%s (*%s)", binaryDescription, binaryExtension),
+                                                                      String.format("*%s", binaryExtension));
+
+                fileChooser.getExtensionFilters().addAll(extFilter, binaryExtFilter);
                 File selected = fileChooser.showSaveDialog(applicationTemplate.getUIComponent().getPrimaryWindow());
                 if (selected != null) {
                     dataFilePath = selected.toPath();
@@ -0,0 +1,12 @@
+package algorithms;
+
+/**
+ * An algorithm that learns from a random sample, or batch, of the instances in every iteration instead of from all of
+ * them, whose size is one of the options of the algorithm.
+ */
+public interface Batched {
+
+    int getBatchSize();
+
+    void setBatchSize(int batchSize);
+}
@@ -0,0 +1,194 @@
+package algorithms;
+
+import java.util.Arrays;
+
+/**
+ * A kd-tree over the centroids of k-means clustering, for finding the centroid nearest to a point in about logarithmic
+ * time rather than by comparing the point with all <code>k</code> centroids. Like {@link data.PointIndex}, the tree is
+ * implicit: the centroids are reordered so that every range is split by its middle centroid, on the dimensions in turn,
+ * and their coordinates are copied in that order, row by row.
+ * <p>
+ * A search gives exactly the centroid that {@link DistanceKernel#nearest(double[], int, int)} picks among the squared
+ * distances of the {@link DistanceKernel}: distances are computed the same way, a subtree is only skipped when the
+ * splitting plane alone is farther than the best distance so far, so that no rounding can hide a nearer centroid, and
+ * the first of equally near centroids wins. The tree pays off for many centroids in few dimensions; see
+ * {@link #pays(int, int)}.
+ */
+public final class CentroidTree {
+
+    /** The smallest number of centroids for which searching the tree beats comparing a point with every centroid. */
+    static final int MIN_CENTROIDS = 32;
+
+    /** The largest number of dimensions for which the tree prunes enough centroids to pay off. */
+    static final int MAX_DIMENSIONS = 16;
+
+    /* ranges of at most this many centroids are scanned instead of being split further */
+    private static final int LEAF_SIZE = 8;
+
+    private final int[]    ids;
+    private final double[] coordinates;
+    private final int      dimensions;
+    private int            first;
+
+    /** Indexes the first <code>k</code> centroids, stored row by row; a centroid is identified by its position. */
+    public CentroidTree(double[] centroids, int k, int dimensions) {
+        this.dimensions = dimensions;
+        ids = new int[k];
+        coordinates = Arrays.copyOf(centroids, k * dimensions);
+        for (int c = 0; c < k; c++)
+            ids[c] = c;
+        build(0, k, 0);
+        while (first < k && ids[first] != 0)
+            first++;
+    }
+
+    /** @return whether a tree over <code>k</code> centroids of the specified number of dimensions pays off */
+    public static boolean pays(int k, int dimensions) {
+        return k >= MIN_CENTROIDS && dimensions <= MAX_DIMENSIONS;
+    }
+
+    /**
+     * Assigns every point from <code>from</code>, inclusive, up to <code>to</code>, exclusive, to its nearest centroid,
+     * like {@link DistanceKernel#assign(double[], int, int, double[], int, int, int[])}.
+     */
+    public void assign(double[] points, int from, int to, int[] assignments) {
+        Search search = new Search();
+        for (int i = from; i < to; i++)
+            assignments[i] = search.nearest(points, i * dimensions);
+    }
+
+    /**
+     * Searches the tree for the centroids nearest to points, one point at a time. A search keeps the distances it
+     * found, so every thread needs a search of its own, which it can use for any number of points.
+     */
+    public final class Search {
+
+        private int     nearest;
+        private double  distance;
+        private double  second;
+        private boolean withSecond;
+
+        /**
+         * @return the position of the centroid nearest to the point at <code>offset</code> in <code>points</code>, the
+         *         first one among equally near ones
+         */
+        public int nearest(double[] points, int offset) {
+            return search(points, offset, false);
+        }
+
+        /**
+         * @return the position of the nearest centroid, like {@link #nearest(double[], int)}, also finding the
+         *         distance to the second nearest one
+         * @see #secondDistance()
+         */
+        public int nearestTwo(double[] points, int offset) {
+            return search(points, offset, true);
+        }
+
+        /** @return the squared distance to the nearest centroid found by the last search */
+        public double distance() {
+            return distance;
+        }
+
+        /**
+         * @return the squared distance to the second nearest centroid found by the last {@link #nearestTwo(double[],
+         *         int)}, or infinity if there is only one centroid
+         */
+        public double secondDistance() {
+            return second;
+        }
+
+        private int search(double[] points, int offset, boolean withSecond) {
+            this.withSecond = withSecond;
+            // the first centroid wins every tie, and a point that is not a number is nearest to it, as in the kernel
+            nearest = 0;
+            distance = ids.length == 0 ? Double.NaN : DistanceKernel.squaredDistance(points, offset, coordinates,
+                                                                                     first * dimensions, dimensions);
+            second = Double.POSITIVE_INFINITY;
+            if (!Double.isNaN(distance))
+                search(0, ids.length, 0, points, offset);
+            return nearest;
+        }
+
+        private void search(int lo, int hi, int axis, double[] points, int offset) {
+            if (hi - lo <= LEAF_SIZE) {
+                for (int i = lo; i < hi; i++)
+                    consider(i, points, offset);
+                return;
+            }
+            int    mid        = (lo + hi) >>> 1;
+            int    next       = axis + 1 == dimensions ? 0 : axis + 1;
+            double difference = points[offset + axis] - coordinates[mid * dimensions + axis];
+            consider(mid, points, offset);
+            if (difference < 0) {
+                search(lo, mid, next, points, offset);
+                if (!(difference * difference > bound()))
+                    search(mid + 1, hi, next, points, offset);
+            } else {
+                search(mid + 1, hi, next, points, offset);
+                if (!(difference * difference > bound()))
+                    search(lo, mid, next, points, offset);
+            }
+        }
+
+        private double bound() {
+            return withSecond ? second : distance;
+        }
+
+        private void consider(int i, double[] points, int offset) {
+            int id = ids[i];
+            if (id == 0)
+                return;
+            double squared = DistanceKernel.squaredDistance(points, offset, coordinates, i * dimensions, dimensions);
+            if (squared < distance || squared == distance && id < nearest) {
+                second = distance;
+                distance = squared;
+                nearest = id;
+            } else if (squared < second) {
+                second = squared;
+            }
+        }
+    }
+
+    private void build(int lo, int hi, int axis) {
+        while (hi - lo > LEAF_SIZE) {
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi - 1, mid, axis);
+            axis = axis + 1 == dimensions ? 0 : axis + 1;
+            build(lo, mid, axis);
+            lo = mid + 1;
+        }
+    }
+
+    /** Moves the k-th smallest centroid of the range, on the specified axis, to position k (Wirth's selection). */
+    private void select(int lo, int hi, int k, int axis) {
+        while (lo < hi) {
+            double pivot = coordinates[k * dimensions + axis];
+            int    i     = lo;
+            int    j     = hi;
+            do {
+                while (Double.compare(coordinates[i * dimensions + axis], pivot) < 0)
+                    i++;
+                while (Double.compare(pivot, coordinates[j * dimensions + axis]) < 0)
+                    j--;
+                if (i <= j)
+                    swap(i++, j--);
+            } while (i <= j);
+            if (j < k)
+                lo = i;
+            if (k < i)
+                hi = j;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        for (int d = 0; d < dimensions; d++) {
+            double coordinate = coordinates[i * dimensions + d];
+            coordinates[i * dimensions + d] = coordinates[j * dimensions + d];
+            coordinates[j * dimensions + d] = coordinate;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package algorithms;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -21,6 +22,30 @@ public abstract class Classifier implements Algorithm {
      */
     protected List<Integer> output;
 
+    /**
+     * The largest magnitude of the integer coefficients of
+     * <code>x</code> and <code>y</code> in {@link #line(double[])},
+     * which keeps six significant digits of the slope.
+     */
+    static final int LINE_SCALE = 1000000;
+
     public List<Integer> getOutput() { return output; }
 
+    /**
+     * Rounds the real coefficients <code>A</code>, <code>B</code>
+     * and <code>C</code> of a line <code>Ax + By + C = 0</code>,
+     * e.g., learned by a classifier, to the integer coefficients
+     * of the {@link #output}, scaled by the same factor so that
+     * the line stays the same, and the constant still fits.
+     */
+    protected static List<Integer> line(double[] coefficients) {
+        double largest = Math.max(Math.abs(coefficients[0]), Math.abs(coefficients[1]));
+        double scale   = largest > 0 ? LINE_SCALE / largest : 0;
+        if (Math.abs(coefficients[2]) * scale > Integer.MAX_VALUE / 2)
+            scale = Integer.MAX_VALUE / 2 / Math.abs(coefficients[2]);
+        return Arrays.asList((int) Math.round(coefficients[0] * scale),
+                             (int) Math.round(coefficients[1] * scale),
+                             (int) Math.round(coefficients[2] * scale));
+    }
+
 }
\ No newline at end of file
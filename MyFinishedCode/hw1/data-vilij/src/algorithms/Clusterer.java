@@ -9,11 +9,8 @@ public abstract class Clusterer implements Algorithm {
 
     public int getNumberOfClusters() { return numberOfClusters; }
 
+    /** @param k the number of clusters, which is at least 2 */
     public Clusterer(int k) {
-        if (k < 2)
-            k = 2;
-        else if (k > 4)
-            k = 4;
-        numberOfClusters = k;
+        numberOfClusters = Math.max(2, k);
     }
 }
\ No newline at end of file
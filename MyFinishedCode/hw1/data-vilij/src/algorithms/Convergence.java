@@ -0,0 +1,133 @@
+package algorithms;
+
+/**
+ * Tells an iterative clustering algorithm when its clusters have settled, from the signals of every iteration: the
+ * number of instances that changed clusters, how far the farthest moving centroid moved, and the inertia, the mean
+ * squared distance from the instances to their centroids. The clusters have settled as soon as no instance changes
+ * clusters, no centroid moves by more than the tolerance times the root of the inertia, or the inertia changes by less
+ * than the tolerance times itself.
+ * <p>
+ * Iterations that only look at a batch of the instances, as in mini-batch k-means, are told apart by their own
+ * {@link #Convergence(double, int, int) constructor} and {@link #updateBatch(double, double) update}. The inertia of a
+ * single batch is noisy, so it is averaged over the batches, with a weight on every new batch that is its share of the
+ * instances, after scikit-learn. That average barely moves from one batch to the next on a large dataset, whether or
+ * not the clusters have settled, so its relative change says nothing: the clusters have settled only once it has not
+ * reached a new low for {@link #MAX_NO_IMPROVEMENT} batches in a row, or no centroid moves by more than the tolerance.
+ */
+public final class Convergence {
+
+    /** The tolerance of algorithms unless another one is chosen. */
+    public static final double DEFAULT_TOLERANCE = 1e-4;
+
+    /** Why an algorithm stopped. */
+    public enum Reason {
+        NO_REASSIGNMENTS("no instance changed its cluster"),
+        CENTROIDS_SETTLED("no centroid moved by more than the tolerance"),
+        INERTIA_SETTLED("the inertia changed by less than the tolerance"),
+        NO_IMPROVEMENT("the averaged inertia of the batches stopped improving"),
+        MAX_ITERATIONS("the maximum number of iterations was reached");
+
+        private final String description;
+
+        Reason(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    /** The number of batches in a row without a new low of their averaged inertia after which they have settled. */
+    public static final int MAX_NO_IMPROVEMENT = 10;
+
+    private final double tolerance;
+    private final double smoothing;
+    private double       inertia       = Double.NaN;
+    private double       lowestInertia = Double.POSITIVE_INFINITY;
+    private int          noImprovement;
+    private Reason       reason;
+
+    /**
+     * @param tolerance the relative tolerance of the centroid shifts and the inertia, or 0 for the clusters to have
+     *                  settled only once they stop changing
+     */
+    public Convergence(double tolerance) {
+        this(tolerance, 1, 1);
+    }
+
+    /**
+     * Tells when iterations that each look at a batch of the instances have settled.
+     *
+     * @param tolerance the relative tolerance of the centroid shifts
+     * @param batchSize the number of instances in a batch
+     * @param size      the number of instances
+     * @see #updateBatch(double, double)
+     */
+    public Convergence(double tolerance, int batchSize, int size) {
+        if (!(tolerance >= 0))
+            throw new IllegalArgumentException("The tolerance cannot be negative.");
+        this.tolerance = tolerance;
+        this.smoothing = Math.min(1, 2.0 * batchSize / (size + 1.0));
+    }
+
+    /**
+     * Takes the signals of an iteration.
+     *
+     * @param reassigned the number of instances that changed clusters, or a negative number if it is not known, e.g.,
+     *                   when only a sample of the instances is looked at
+     * @param maxShift   the distance by which the farthest moving centroid moved
+     * @param inertia    the mean squared distance from the instances to their centroids
+     * @return whether the clusters have settled
+     */
+    public boolean update(int reassigned, double maxShift, double inertia) {
+        double previous = this.inertia;
+        this.inertia = inertia;
+        if (reassigned == 0)
+            reason = Reason.NO_REASSIGNMENTS;
+        else if (maxShift <= tolerance * Math.sqrt(inertia))
+            reason = Reason.CENTROIDS_SETTLED;
+        else if (Math.abs(previous - inertia) <= tolerance * previous)
+            reason = Reason.INERTIA_SETTLED;
+        return reason != null;
+    }
+
+    /**
+     * Takes the signals of an iteration that looked at a batch of the instances.
+     *
+     * @param maxShift     the distance by which the farthest moving centroid moved
+     * @param batchInertia the mean squared distance from the instances of the batch to their centroids
+     * @return whether the clusters have settled
+     */
+    public boolean updateBatch(double maxShift, double batchInertia) {
+        inertia = Double.isNaN(inertia) ? batchInertia : inertia + smoothing * (batchInertia - inertia);
+        if (inertia < lowestInertia) {
+            lowestInertia = inertia;
+            noImprovement = 0;
+        } else
+            noImprovement++;
+        if (maxShift <= tolerance * Math.sqrt(inertia))
+            reason = Reason.CENTROIDS_SETTLED;
+        else if (noImprovement >= MAX_NO_IMPROVEMENT)
+            reason = Reason.NO_IMPROVEMENT;
+        return reason != null;
+    }
+
+    /**
+     * @return why the clusters have settled, or {@link Reason#MAX_ITERATIONS} if they have not, as an algorithm that
+     *         stops without them having settled stops after its last iteration
+     */
+    public Reason getReason() {
+        return reason == null ? Reason.MAX_ITERATIONS : reason;
+    }
+
+    /** @return the largest distance between a centroid of <code>before</code> and the same one of <code>after</code> */
+    public static double largestShift(double[] before, double[] after, int k, int dimensions) {
+        double largest = 0;
+        for (int c = 0; c < k; c++)
+            largest = Math.max(largest, DistanceKernel.squaredDistance(before, c * dimensions, after, c * dimensions,
+                                                                       dimensions));
+        return Math.sqrt(largest);
+    }
+}
@@ -0,0 +1,17 @@
+package algorithms;
+
+/**
+ * An iterative algorithm that stops before its maximum number of iterations once it has converged, within a tolerance
+ * that is one of the options of the algorithm.
+ *
+ * @see Convergence
+ */
+public interface Convergent {
+
+    double getTolerance();
+
+    void setTolerance(double tolerance);
+
+    /** @return why the last run of the algorithm stopped, or <code>null</code> if it has not stopped yet */
+    Convergence.Reason getStopReason();
+}
@@ -0,0 +1,116 @@
+package algorithms;
+
+/**
+ * Computes squared Euclidean distances between points that are stored row by row in a primitive array, like the
+ * coordinates of a {@link data.DataSet}, and a set of centroids that are stored the same way. The points are handled in
+ * blocks of {@link #BLOCK_SIZE}: the distances from every point of a block to one centroid are computed in a single
+ * tight loop, with the coordinates of that centroid held in locals, so the block stays in the cache while it is
+ * compared with all centroids. Two-dimensional points, by far the most common ones, have a loop of their own, and
+ * points of more dimensions are summed four dimensions at a time into independent accumulators, which leaves the
+ * processor free to compute several differences at once.
+ * <p>
+ * Nothing is boxed, nothing is allocated per point, and no square roots are taken: squared distances order the
+ * centroids just like the distances themselves.
+ */
+public final class DistanceKernel {
+
+    /** The number of points whose distances to all centroids are computed together. */
+    public static final int BLOCK_SIZE = 64;
+
+    private DistanceKernel() {}
+
+    /**
+     * @return the squared distance between the point at <code>pOffset</code> in <code>p</code> and the one at
+     *         <code>qOffset</code> in <code>q</code>
+     */
+    public static double squaredDistance(double[] p, int pOffset, double[] q, int qOffset, int dimensions) {
+        double sum0 = 0;
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+        int    d    = 0;
+        for (; d + 4 <= dimensions; d += 4) {
+            double difference0 = p[pOffset + d] - q[qOffset + d];
+            double difference1 = p[pOffset + d + 1] - q[qOffset + d + 1];
+            double difference2 = p[pOffset + d + 2] - q[qOffset + d + 2];
+            double difference3 = p[pOffset + d + 3] - q[qOffset + d + 3];
+            sum0 += difference0 * difference0;
+            sum1 += difference1 * difference1;
+            sum2 += difference2 * difference2;
+            sum3 += difference3 * difference3;
+        }
+        for (; d < dimensions; d++) {
+            double difference = p[pOffset + d] - q[qOffset + d];
+            sum0 += difference * difference;
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Computes the squared distances from the points <code>from</code>, inclusive, up to <code>to</code>, exclusive, to
+     * each of the <code>k</code> centroids. The distance from point <code>i</code> to centroid <code>c</code> is stored
+     * at <code>distances[(i - from) * k + c]</code>.
+     */
+    public static void squaredDistances(double[] points, int from, int to, double[] centroids, int k, int dimensions,
+                                        double[] distances) {
+        if (dimensions == 2) {
+            for (int c = 0; c < k; c++) {
+                double x = centroids[2 * c];
+                double y = centroids[2 * c + 1];
+                for (int i = from, at = c; i < to; i++, at += k) {
+                    double dx = points[2 * i] - x;
+                    double dy = points[2 * i + 1] - y;
+                    distances[at] = dx * dx + dy * dy;
+                }
+            }
+            return;
+        }
+        for (int c = 0; c < k; c++)
+            for (int i = from, at = c; i < to; i++, at += k)
+                distances[at] = squaredDistance(points, i * dimensions, centroids, c * dimensions, dimensions);
+    }
+
+    /**
+     * Assigns every point from <code>from</code>, inclusive, up to <code>to</code>, exclusive, to its nearest centroid,
+     * the first one among equally near ones.
+     *
+     * @param assignments where the index of the nearest centroid of point <code>i</code> is stored, at <code>i</code>
+     */
+    public static void assign(double[] points, int from, int to, double[] centroids, int k, int dimensions,
+                              int[] assignments) {
+        assign(points, from, to, centroids, k, dimensions, assignments, new double[BLOCK_SIZE * k]);
+    }
+
+    /**
+     * Assigns every point in the specified range to its nearest centroid, using the specified array, of at least
+     * {@link #BLOCK_SIZE}<code> * k</code> values, for the distances of each block.
+     *
+     * @see #assign(double[], int, int, double[], int, int, int[])
+     */
+    public static void assign(double[] points, int from, int to, double[] centroids, int k, int dimensions,
+                              int[] assignments, double[] distances) {
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            int end = Math.min(to, start + BLOCK_SIZE);
+            squaredDistances(points, start, end, centroids, k, dimensions, distances);
+            for (int i = start, at = 0; i < end; i++, at += k)
+                assignments[i] = nearest(distances, at, k);
+        }
+    }
+
+    /**
+     * @return the index of the smallest of the <code>k</code> distances from <code>at</code> on, the first one among
+     *         equal ones, relative to <code>at</code>
+     * @see #squaredDistances(double[], int, int, double[], int, int, double[])
+     */
+    public static int nearest(double[] distances, int at, int k) {
+        int    nearest  = 0;
+        double smallest = distances[at];
+        for (int c = 1; c < k; c++) {
+            if (distances[at + c] < smallest) {
+                smallest = distances[at + c];
+                nearest = c;
+            }
+        }
+        return nearest;
+    }
+}
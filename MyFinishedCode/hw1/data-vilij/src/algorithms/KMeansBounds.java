@@ -0,0 +1,68 @@
+package algorithms;
+
+import java.util.Arrays;
+
+/**
+ * The distance bounds that let a {@link KMeansEngine} skip most distance computations once the centroids settle, after
+ * Hamerly's variant of Elkan's accelerated k-means. For every point it keeps a lower bound on the distance to any
+ * centroid other than its own; when the centroids move, the bounds are loosened by how far the farthest moving one
+ * moved, instead of being computed again. The distance from a point to its own centroid is computed in every iteration,
+ * as the inertia of the iteration needs it anyway, so it serves as an exact upper bound. A point whose distance to its
+ * centroid is below its lower bound, or below half the distance from its centroid to the nearest other centroid, cannot
+ * be nearer to any other centroid, so none of its other distances are computed.
+ * <p>
+ * The bounds are kept slightly looser than the triangle inequality allows, by {@link #SLACK}, so that rounding never
+ * lets a point keep a centroid that the full search would not give it: the assignments, and therefore the centroids,
+ * are exactly the ones of an engine without bounds.
+ */
+public final class KMeansBounds {
+
+    /** The relative margin by which an upper bound has to be below a lower bound for the point to be skipped. */
+    static final double SLACK = 1e-9;
+
+    final double[] lower;
+    final double[] halfSeparations;
+    double         maxShift;
+    private int    skipped;
+
+    /**
+     * Creates the bounds of <code>size</code> points and <code>k</code> centroids, which are used for every iteration
+     * over these points, starting with the first one.
+     */
+    public KMeansBounds(int size, int k) {
+        lower = new double[size];
+        halfSeparations = new double[k];
+    }
+
+    /** @return the number of points none of whose distances to other centroids were computed by the last iteration */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /** @return whether the specified upper bound is safely below the specified lower bound */
+    boolean separates(double upperBound, double lowerBound) {
+        return upperBound * (1 + SLACK) < lowerBound;
+    }
+
+    /** Computes half the distance from every centroid to the one nearest to it, before an iteration. */
+    void separate(double[] centroids, int k, int dimensions) {
+        Arrays.fill(halfSeparations, Double.POSITIVE_INFINITY);
+        for (int c = 0; c < k; c++) {
+            for (int other = c + 1; other < k; other++) {
+                double half = Math.sqrt(DistanceKernel.squaredDistance(centroids, c * dimensions, centroids,
+                                                                       other * dimensions, dimensions)) / 2;
+                halfSeparations[c] = Math.min(halfSeparations[c], half);
+                halfSeparations[other] = Math.min(halfSeparations[other], half);
+            }
+        }
+    }
+
+    /**
+     * Records how far the centroids moved in an iteration, by which the bounds of the points are loosened at the start
+     * of the next one.
+     */
+    void move(double[] before, double[] after, int k, int dimensions, int skipped) {
+        maxShift = Convergence.largestShift(before, after, k, dimensions);
+        this.skipped = skipped;
+    }
+}
@@ -0,0 +1,280 @@
+package algorithms;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs the iterations of k-means clustering in parallel on a {@link ForkJoinPool}. The points, stored row by row like
+ * the coordinates of a {@link data.DataSet}, are split into ranges, and a single task goes through each range once:
+ * it assigns every point to its nearest centroid, through the {@link DistanceKernel}, and adds the point to the
+ * partial sum and count of that centroid. The partials of the ranges are then merged, pairwise as the tasks are
+ * joined, into the new centroids.
+ * <p>
+ * A task allocates its partials and a block of distances once, and nothing per point. The ranges depend only on the
+ * number of points, so the sums are added in the same order, and give the same centroids, on any number of cores.
+ * <p>
+ * With many centroids, the nearest one is found through a {@link CentroidTree} built over them at the start of the
+ * iteration, which finds the same centroid as comparing with all of them, in about logarithmic time.
+ * <p>
+ * Given {@link KMeansBounds}, a task computes only the distance from every point to its own centroid for the points
+ * that the bounds show cannot have changed centroids, and all distances of the others one point at a time. The points
+ * are still added to the partials in the same order, so the centroids, and the inertia, are the same with bounds as
+ * without them.
+ */
+public final class KMeansEngine {
+
+    /** Ranges of at most this many points are handled by a single task. */
+    static final int MIN_TASK_SIZE = 1 << 12;
+
+    private final ForkJoinPool pool;
+    private double             inertia;
+
+    /** Creates an engine that runs on the common pool. */
+    public KMeansEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public KMeansEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return the inertia of the last iteration, that is, the sum of the squared distances from every point to the
+     *         centroid it was assigned to, before the centroids were moved
+     */
+    public double getInertia() {
+        return inertia;
+    }
+
+    /**
+     * Runs one iteration: assigns every point to its nearest centroid, the first one among equally near ones, and then
+     * moves every centroid to the mean of its points. A centroid without any points stays where it was.
+     *
+     * @param points      the coordinates of the points, row by row
+     * @param size        the number of points
+     * @param centroids   the coordinates of the <code>k</code> centroids, row by row, which are replaced by the new ones
+     * @param assignments the index of the centroid of every point as of the previous iteration, e.g., <code>-1</code>
+     *                    before the first one, which is replaced by the new one
+     * @return the number of points whose centroid changed
+     */
+    public int iterate(double[] points, int size, int dimensions, double[] centroids, int k, int[] assignments) {
+        return iterate(points, size, dimensions, centroids, k, assignments, null);
+    }
+
+    /**
+     * Runs one iteration, like {@link #iterate(double[], int, int, double[], int, int[])}, skipping the distance
+     * computations that the specified bounds, kept from the previous iterations over the same points, show to be
+     * unnecessary. The result is the same as without the bounds.
+     *
+     * @param bounds the bounds of the points, which are updated, or <code>null</code> to compute every distance
+     * @return the number of points whose centroid changed
+     */
+    public int iterate(double[] points, int size, int dimensions, double[] centroids, int k, int[] assignments,
+                       KMeansBounds bounds) {
+        if (bounds != null)
+            bounds.separate(centroids, k, dimensions);
+        Partial  total  = pool.invoke(new Step(points, dimensions, centroids, k, tree(centroids, k, dimensions),
+                                               assignments, bounds, 0, size));
+        double[] before = bounds == null ? null : centroids.clone();
+        for (int c = 0; c < k; c++)
+            if (total.counts[c] > 0)
+                for (int d = 0; d < dimensions; d++)
+                    centroids[c * dimensions + d] = total.sums[c * dimensions + d] / total.counts[c];
+        if (bounds != null)
+            bounds.move(before, centroids, k, dimensions, total.skipped);
+        inertia = total.inertia;
+        return total.changed;
+    }
+
+    /**
+     * Assigns every point to its nearest centroid, the first one among equally near ones, without moving the centroids,
+     * e.g., to label every point once the centroids have been found from samples of the points.
+     */
+    public void assign(double[] points, int size, int dimensions, double[] centroids, int k, int[] assignments) {
+        pool.invoke(new Assignment(points, dimensions, centroids, k, tree(centroids, k, dimensions), assignments, 0,
+                                   size));
+    }
+
+    /** @return a tree over the centroids if there are enough of them for it to pay off, or <code>null</code> */
+    private static CentroidTree tree(double[] centroids, int k, int dimensions) {
+        return CentroidTree.pays(k, dimensions) ? new CentroidTree(centroids, k, dimensions) : null;
+    }
+
+    /**
+     * The sums of the coordinates and the numbers of the points assigned to every centroid in a range of points, and
+     * the sum of their squared distances to it.
+     */
+    private static final class Partial {
+
+        private final double[] sums;
+        private final int[]    counts;
+        private int            changed;
+        private int            skipped;
+        private double         inertia;
+
+        Partial(int k, int dimensions) {
+            sums = new double[k * dimensions];
+            counts = new int[k];
+        }
+
+        Partial add(Partial other) {
+            for (int i = 0; i < sums.length; i++)
+                sums[i] += other.sums[i];
+            for (int c = 0; c < counts.length; c++)
+                counts[c] += other.counts[c];
+            changed += other.changed;
+            skipped += other.skipped;
+            inertia += other.inertia;
+            return this;
+        }
+    }
+
+    private static final class Step extends RecursiveTask<Partial> {
+
+        private final double[]     points;
+        private final int          dimensions;
+        private final double[]     centroids;
+        private final int          k;
+        private final CentroidTree tree;
+        private final int[]        assignments;
+        private final KMeansBounds bounds;
+        private final int          from;
+        private final int          to;
+
+        Step(double[] points, int dimensions, double[] centroids, int k, CentroidTree tree, int[] assignments,
+             KMeansBounds bounds, int from, int to) {
+            this.points = points;
+            this.dimensions = dimensions;
+            this.centroids = centroids;
+            this.k = k;
+            this.tree = tree;
+            this.assignments = assignments;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= MIN_TASK_SIZE)
+                return bounds != null ? assignWithinBounds() : tree != null ? assignByTree() : assign();
+            int  middle = (from + to) >>> 1;
+            Step left   = new Step(points, dimensions, centroids, k, tree, assignments, bounds, from, middle);
+            Step right  = new Step(points, dimensions, centroids, k, tree, assignments, bounds, middle, to);
+            left.fork();
+            Partial rightPartial = right.compute();
+            return left.join().add(rightPartial);
+        }
+
+        private Partial assign() {
+            Partial  partial   = new Partial(k, dimensions);
+            double[] distances = new double[DistanceKernel.BLOCK_SIZE * k];
+            for (int start = from; start < to; start += DistanceKernel.BLOCK_SIZE) {
+                int end = Math.min(to, start + DistanceKernel.BLOCK_SIZE);
+                DistanceKernel.squaredDistances(points, start, end, centroids, k, dimensions, distances);
+                for (int i = start, at = 0; i < end; i++, at += k) {
+                    int nearest = DistanceKernel.nearest(distances, at, k);
+                    accumulate(partial, i, nearest, distances[at + nearest]);
+                }
+            }
+            return partial;
+        }
+
+        private Partial assignByTree() {
+            Partial             partial = new Partial(k, dimensions);
+            CentroidTree.Search search  = tree.new Search();
+            for (int i = from; i < to; i++) {
+                int nearest = search.nearest(points, i * dimensions);
+                accumulate(partial, i, nearest, search.distance());
+            }
+            return partial;
+        }
+
+        private Partial assignWithinBounds() {
+            Partial             partial   = new Partial(k, dimensions);
+            double[]            distances = new double[k];
+            CentroidTree.Search search    = tree == null ? null : tree.new Search();
+            double[]            lower     = bounds.lower;
+            for (int i = from; i < to; i++) {
+                int    nearest = assignments[i];
+                double squared = 0;
+                if (nearest >= 0) {
+                    lower[i] -= bounds.maxShift;
+                    squared = DistanceKernel.squaredDistance(points, i * dimensions, centroids, nearest * dimensions,
+                                                             dimensions);
+                    if (!bounds.separates(Math.sqrt(squared), Math.max(bounds.halfSeparations[nearest], lower[i])))
+                        nearest = -1;
+                }
+                if (nearest >= 0) {
+                    partial.skipped++;
+                } else if (search != null) {
+                    nearest = search.nearestTwo(points, i * dimensions);
+                    squared = search.distance();
+                    lower[i] = Math.sqrt(search.secondDistance());
+                } else {
+                    DistanceKernel.squaredDistances(points, i, i + 1, centroids, k, dimensions, distances);
+                    nearest = DistanceKernel.nearest(distances, 0, k);
+                    double second = Double.POSITIVE_INFINITY;
+                    for (int c = 0; c < k; c++)
+                        if (c != nearest)
+                            second = Math.min(second, distances[c]);
+                    squared = distances[nearest];
+                    lower[i] = Math.sqrt(second);
+                }
+                accumulate(partial, i, nearest, squared);
+            }
+            return partial;
+        }
+
+        /* assigns point i to the specified centroid, at the specified squared distance, and adds it to the partial */
+        private void accumulate(Partial partial, int i, int nearest, double squared) {
+            if (assignments[i] != nearest) {
+                assignments[i] = nearest;
+                partial.changed++;
+            }
+            partial.counts[nearest]++;
+            partial.inertia += squared;
+            for (int d = 0, point = i * dimensions, sum = nearest * dimensions; d < dimensions; d++)
+                partial.sums[sum + d] += points[point + d];
+        }
+    }
+
+    private static final class Assignment extends RecursiveAction {
+
+        private final double[]     points;
+        private final int          dimensions;
+        private final double[]     centroids;
+        private final int          k;
+        private final CentroidTree tree;
+        private final int[]        assignments;
+        private final int          from;
+        private final int          to;
+
+        Assignment(double[] points, int dimensions, double[] centroids, int k, CentroidTree tree, int[] assignments,
+                   int from, int to) {
+            this.points = points;
+            this.dimensions = dimensions;
+            this.centroids = centroids;
+            this.k = k;
+            this.tree = tree;
+            this.assignments = assignments;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MIN_TASK_SIZE) {
+                if (tree != null)
+                    tree.assign(points, from, to, assignments);
+                else
+                    DistanceKernel.assign(points, from, to, centroids, k, dimensions, assignments);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Assignment(points, dimensions, centroids, k, tree, assignments, from, middle),
+                      new Assignment(points, dimensions, centroids, k, tree, assignments, middle, to));
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package algorithms;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Chooses the starting centroids of k-means clustering among the points, by k-means||, the scalable variant of
+ * k-means++. Starting from one random point, every round samples each point independently, with a probability
+ * proportional to its squared distance to the candidates chosen so far, about <code>2k</code> points in all. After a
+ * few rounds, every candidate is weighed by the number of points nearest to it, and k-means++ picks the <code>k</code>
+ * seeds among the weighted candidates. The seeds are spread over the clusters of the points, so k-means needs far fewer
+ * iterations than it does from randomly chosen points, and only a few passes over the points are needed, each one
+ * spread over all cores of a {@link ForkJoinPool}, rather than the <code>k</code> passes of k-means++. With many
+ * candidates, the nearest one to each point is found through a {@link CentroidTree}.
+ * <p>
+ * Whether a point is sampled depends only on the seed of the round and the position of the point, and the ranges of
+ * the passes depend only on the number of points, so a seeder with a given seed chooses the same seeds on any number of
+ * cores.
+ */
+public final class KMeansSeeder {
+
+    /** The number of sampling rounds, which is enough for the candidates to cover the clusters of the points. */
+    static final int ROUNDS = 5;
+
+    private final ForkJoinPool pool;
+    private final Random       random;
+
+    /** Creates a seeder with a random seed that runs on the common pool. */
+    public KMeansSeeder() {
+        this(ForkJoinPool.commonPool(), new Random().nextLong());
+    }
+
+    public KMeansSeeder(ForkJoinPool pool, long seed) {
+        this.pool = pool;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Chooses <code>k</code> different points as the starting centroids, or every point, some of them more than once,
+     * if there are fewer than <code>k</code>.
+     *
+     * @param points the coordinates of the points, row by row
+     * @param size   the number of points, which is positive
+     * @return the indices of the chosen points
+     */
+    public int[] seed(double[] points, int size, int dimensions, int k) {
+        Seeding seeding    = new Seeding(points, dimensions, size);
+        int[]   candidates = {random.nextInt(size)};
+        int     oversample = 2 * k;
+        for (int round = 0, from = 0; round < ROUNDS; round++) {
+            double[] fresh = seeding.gather(candidates, from);
+            double   cost  = pool.invoke(seeding.new Cost(fresh, seeding.tree(fresh), 0, size));
+            if (!(cost > 0))
+                break;
+            int[] sampled = pool.invoke(seeding.new Sample(random.nextLong(), oversample / cost, 0, size));
+            from = candidates.length;
+            candidates = Arrays.copyOf(candidates, from + sampled.length);
+            System.arraycopy(sampled, 0, candidates, from, sampled.length);
+        }
+        double[] gathered = seeding.gather(candidates, 0);
+        long[]   weights  = pool.invoke(seeding.new Weigh(gathered, seeding.tree(gathered), candidates.length, 0,
+                                                          size));
+        return reduce(seeding, candidates, weights, k);
+    }
+
+    /* picks k of the weighted candidates by k-means++, and random points if there are too few candidates */
+    private int[] reduce(Seeding seeding, int[] candidates, long[] weights, int k) {
+        int       count   = candidates.length;
+        double[]  scores  = new double[count];
+        double[]  nearest = new double[count];
+        boolean[] taken   = new boolean[count];
+        int[]     seeds   = new int[k];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        for (int s = 0; s < k; s++) {
+            if (s < count) {
+                double total = 0;
+                int    best  = -1;
+                for (int c = 0; c < count; c++) {
+                    scores[c] = taken[c] ? 0 : weights[c] * (s == 0 ? 1 : nearest[c]);
+                    total += scores[c];
+                    if (!taken[c] && (best < 0 || scores[c] > scores[best]))
+                        best = c;
+                }
+                int    chosen = best;
+                double target = random.nextDouble() * total;
+                for (int c = 0; c < count && total > 0; c++) {
+                    if (scores[c] > 0) {
+                        chosen = c;
+                        target -= scores[c];
+                        if (target < 0)
+                            break;
+                    }
+                }
+                taken[chosen] = true;
+                seeds[s] = candidates[chosen];
+                for (int c = 0; c < count; c++)
+                    nearest[c] = Math.min(nearest[c], DistanceKernel.squaredDistance(
+                            seeding.points, candidates[c] * seeding.dimensions,
+                            seeding.points, seeds[s] * seeding.dimensions, seeding.dimensions));
+            } else {
+                seeds[s] = otherPoint(seeds, s, seeding.size);
+            }
+        }
+        return seeds;
+    }
+
+    /* a random point other than the first s seeds, or any point if every point is one of them */
+    private int otherPoint(int[] seeds, int s, int size) {
+        if (s >= size)
+            return random.nextInt(size);
+        int[] sorted = Arrays.copyOf(seeds, s);
+        Arrays.sort(sorted);
+        int point = random.nextInt(size - s);
+        for (int seed : sorted)
+            if (seed <= point)
+                point++;
+        return point;
+    }
+
+    /**
+     * @return a uniform random number in <code>[0, 1)</code> that depends only on the specified seed and point, by the
+     *         mixing function of <code>SplittableRandom</code>
+     */
+    static double uniform(long seed, int point) {
+        long z = seed + (point + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return ((z ^ (z >>> 31)) >>> 11) * 0x1.0p-53;
+    }
+
+    /** The points being seeded, and the squared distance from every one of them to the nearest candidate. */
+    private static final class Seeding {
+
+        private final double[] points;
+        private final int      dimensions;
+        private final int      size;
+        private final double[] distances;
+
+        Seeding(double[] points, int dimensions, int size) {
+            this.points = points;
+            this.dimensions = dimensions;
+            this.size = size;
+            distances = new double[size];
+            Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        }
+
+        /** @return the coordinates of the candidates from <code>from</code> on, row by row */
+        double[] gather(int[] candidates, int from) {
+            double[] gathered = new double[(candidates.length - from) * dimensions];
+            for (int c = from; c < candidates.length; c++)
+                System.arraycopy(points, candidates[c] * dimensions, gathered, (c - from) * dimensions, dimensions);
+            return gathered;
+        }
+
+        /** @return a tree over the specified candidates if there are enough of them for it to pay off, or null */
+        CentroidTree tree(double[] candidates) {
+            int count = candidates.length / dimensions;
+            return CentroidTree.pays(count, dimensions) ? new CentroidTree(candidates, count, dimensions) : null;
+        }
+
+        /** Brings the distances of a range of points up to date with new candidates, and sums them. */
+        private final class Cost extends RecursiveTask<Double> {
+
+            private final double[]     candidates;
+            private final CentroidTree tree;
+            private final int          from;
+            private final int          to;
+
+            Cost(double[] candidates, CentroidTree tree, int from, int to) {
+                this.candidates = candidates;
+                this.tree = tree;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected Double compute() {
+                if (to - from > KMeansEngine.MIN_TASK_SIZE) {
+                    int  middle = (from + to) >>> 1;
+                    Cost left   = new Cost(candidates, tree, from, middle);
+                    left.fork();
+                    double right = new Cost(candidates, tree, middle, to).compute();
+                    return left.join() + right;
+                }
+                if (tree != null) {
+                    CentroidTree.Search search = tree.new Search();
+                    double              cost   = 0;
+                    for (int i = from; i < to; i++) {
+                        search.nearest(points, i * dimensions);
+                        distances[i] = Math.min(distances[i], search.distance());
+                        cost += distances[i];
+                    }
+                    return cost;
+                }
+                int      k     = candidates.length / dimensions;
+                double[] block = new double[DistanceKernel.BLOCK_SIZE * k];
+                double   cost  = 0;
+                for (int start = from; start < to; start += DistanceKernel.BLOCK_SIZE) {
+                    int end = Math.min(to, start + DistanceKernel.BLOCK_SIZE);
+                    DistanceKernel.squaredDistances(points, start, end, candidates, k, dimensions, block);
+                    for (int i = start, at = 0; i < end; i++, at += k) {
+                        for (int c = 0; c < k; c++)
+                            distances[i] = Math.min(distances[i], block[at + c]);
+                        cost += distances[i];
+                    }
+                }
+                return cost;
+            }
+        }
+
+        /** Samples the points of a range, each one with its distance times the specified scale as its probability. */
+        private final class Sample extends RecursiveTask<int[]> {
+
+            private final long   seed;
+            private final double scale;
+            private final int    from;
+            private final int    to;
+
+            Sample(long seed, double scale, int from, int to) {
+                this.seed = seed;
+                this.scale = scale;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected int[] compute() {
+                if (to - from > KMeansEngine.MIN_TASK_SIZE) {
+                    int    middle = (from + to) >>> 1;
+                    Sample left   = new Sample(seed, scale, from, middle);
+                    left.fork();
+                    int[] right   = new Sample(seed, scale, middle, to).compute();
+                    int[] sampled = left.join();
+                    int   count   = sampled.length;
+                    sampled = Arrays.copyOf(sampled, count + right.length);
+                    System.arraycopy(right, 0, sampled, count, right.length);
+                    return sampled;
+                }
+                int[] sampled = new int[16];
+                int   count   = 0;
+                for (int i = from; i < to; i++) {
+                    if (uniform(seed, i) < distances[i] * scale) {
+                        if (count == sampled.length)
+                            sampled = Arrays.copyOf(sampled, count * 2);
+                        sampled[count++] = i;
+                    }
+                }
+                return Arrays.copyOf(sampled, count);
+            }
+        }
+
+        /** Counts the points of a range nearest to each candidate, the first one among equally near ones. */
+        private final class Weigh extends RecursiveTask<long[]> {
+
+            private final double[]     candidates;
+            private final CentroidTree tree;
+            private final int          k;
+            private final int          from;
+            private final int          to;
+
+            Weigh(double[] candidates, CentroidTree tree, int k, int from, int to) {
+                this.candidates = candidates;
+                this.tree = tree;
+                this.k = k;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected long[] compute() {
+                if (to - from > KMeansEngine.MIN_TASK_SIZE) {
+                    int   middle = (from + to) >>> 1;
+                    Weigh left   = new Weigh(candidates, tree, k, from, middle);
+                    left.fork();
+                    long[] right   = new Weigh(candidates, tree, k, middle, to).compute();
+                    long[] weights = left.join();
+                    for (int c = 0; c < k; c++)
+                        weights[c] += right[c];
+                    return weights;
+                }
+                long[] weights = new long[k];
+                if (tree != null) {
+                    CentroidTree.Search search = tree.new Search();
+                    for (int i = from; i < to; i++)
+                        weights[search.nearest(points, i * dimensions)]++;
+                    return weights;
+                }
+                double[] block = new double[DistanceKernel.BLOCK_SIZE * k];
+                for (int start = from; start < to; start += DistanceKernel.BLOCK_SIZE) {
+                    int end = Math.min(to, start + DistanceKernel.BLOCK_SIZE);
+                    DistanceKernel.squaredDistances(points, start, end, candidates, k, dimensions, block);
+                    for (int at = 0; at < (end - start) * k; at += k)
+                        weights[DistanceKernel.nearest(block, at, k)]++;
+                }
+                return weights;
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package algorithms;
+
+import data.DataSet;
+import data.LabelDictionary;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Trains a logistic regression that separates the instances of two labels by a straight line, through two of the
+ * dimensions of a {@link DataSet}, by stochastic gradient descent. The two coordinates and the class of every instance
+ * with one of the labels are copied once into three columns, the coordinates standardized so that a single learning
+ * rate suits any data; instances with other labels are left out. The columns are shuffled once, and an epoch goes
+ * through blocks of them in a new random order, updating the weights after every instance, so that an epoch reads the
+ * columns in order and allocates nothing, instead of shuffling millions of instances again.
+ * <p>
+ * An epoch can also be spread over all cores of a {@link ForkJoinPool}, in one of the {@link Parallel.Mode}s: every
+ * part of the blocks is trained on by a task of its own, with its own copy of the weights. In
+ * {@link Parallel.Mode#HOGWILD} mode, a task reads the shared weights before every block and adds its change to them
+ * after it, without locks, so that an update of one task may now and then be lost to another, as in HOGWILD!; updating
+ * the shared weights after every instance instead would have all cores fight over the same three weights. In
+ * {@link Parallel.Mode#AVERAGED} mode, every part starts from the same weights, and the new weights are the average of
+ * those of the parts, weighed by their numbers of instances; there are always {@link #PARTS} parts, so the line is the
+ * same on any number of cores.
+ * <p>
+ * The learning rate decays with the number of instances seen, as <code>rate / (1 + rate * lambda * t)</code>, where
+ * <code>lambda</code> is the weight of the L2 regularization that keeps the weights bounded on separable data.
+ */
+public final class LogisticRegression {
+
+    /** The learning rate of the first instance. */
+    static final double LEARNING_RATE = 0.5;
+
+    /** The weight of the L2 regularization. */
+    static final double REGULARIZATION = 1e-4;
+
+    /** The number of instances in a block, which an epoch goes through in order. */
+    static final int BLOCK_SIZE = 1 << 12;
+
+    /** The number of parts of the instances trained on from the same weights in {@link Parallel.Mode#AVERAGED} mode. */
+    static final int PARTS = 16;
+
+    private final ForkJoinPool pool;
+    private final double[]     xs;
+    private final double[]     ys;
+    private final double[]     classes;
+    private final int[]        blocks;
+    private final int          size;
+    private final int          positive;
+    private final int          negative;
+    private final double       xMean;
+    private final double       xScale;
+    private final double       yMean;
+    private final double       yScale;
+    private final double[]     partials;
+    private final double[]     losses;
+    private final int[]        counts;
+    private final Random       random;
+    private long               seen;
+
+    /* volatile, so that the threads of a HOGWILD epoch see the updates of one another, which they add without locks */
+    private volatile double xWeight;
+    private volatile double yWeight;
+    private volatile double bias;
+
+    /**
+     * Copies the instances of the first two labels of the dataset, in the order of their ids, that any instance has.
+     *
+     * @param xDimension the dimension of the first coordinate of the line
+     * @param yDimension the dimension of the second coordinate of the line
+     * @param seed       the seed of the shuffles, so that training with the same seed gives the same line, except in
+     *                   {@link Parallel.Mode#HOGWILD} mode
+     */
+    public LogisticRegression(DataSet dataset, int xDimension, int yDimension, long seed) {
+        this(ForkJoinPool.commonPool(), dataset, xDimension, yDimension, seed);
+    }
+
+    /**
+     * Copies the instances, like {@link #LogisticRegression(DataSet, int, int, long)}, to train on the specified pool
+     * in the parallel modes.
+     */
+    public LogisticRegression(ForkJoinPool pool, DataSet dataset, int xDimension, int yDimension, long seed) {
+        this.pool = pool;
+        LabelDictionary labels = dataset.getLabelDictionary();
+        int             first  = -1;
+        int             second = -1;
+        for (int id = 0; id < labels.size() && second < 0; id++) {
+            if (id == LabelDictionary.UNLABELED || labels.sizeOf(id) == 0)
+                continue;
+            if (first < 0)
+                first = id;
+            else
+                second = id;
+        }
+        positive = first;
+        negative = second;
+        size = second < 0 ? 0 : labels.sizeOf(first) + labels.sizeOf(second);
+        xs = new double[size];
+        ys = new double[size];
+        classes = new double[size];
+        int[] labelIds = dataset.getLabelIds();
+        for (int i = 0, at = 0; at < size; i++) {
+            if (labelIds[i] == positive || labelIds[i] == negative) {
+                xs[at] = dataset.getCoordinate(i, xDimension);
+                ys[at] = dataset.getCoordinate(i, yDimension);
+                classes[at++] = labelIds[i] == positive ? 1 : -1;
+            }
+        }
+        xMean = mean(xs);
+        xScale = scale(xs, xMean);
+        yMean = mean(ys);
+        yScale = scale(ys, yMean);
+        random = new Random(seed);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            swap(xs, i, j);
+            swap(ys, i, j);
+            swap(classes, i, j);
+        }
+        blocks = new int[(size + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        for (int block = 0; block < blocks.length; block++)
+            blocks[block] = block * BLOCK_SIZE;
+        int parts = Math.max(PARTS, pool.getParallelism());
+        partials = new double[parts * 3];
+        losses = new double[parts];
+        counts = new int[parts];
+    }
+
+    /** @return whether the dataset has instances of two labels to separate */
+    public boolean isTrainable() {
+        return size > 0;
+    }
+
+    /** @return the number of instances trained on */
+    public int size() {
+        return size;
+    }
+
+    /** @return the id of the label on the positive side of the line, or <code>-1</code> if there is none */
+    public int getPositiveLabel() {
+        return positive;
+    }
+
+    /** @return the id of the label on the negative side of the line, or <code>-1</code> if there is none */
+    public int getNegativeLabel() {
+        return negative;
+    }
+
+    /** Goes through every instance once, on a single thread, like {@link #epoch(Parallel.Mode)}. */
+    public double epoch() {
+        return epoch(Parallel.Mode.SEQUENTIAL);
+    }
+
+    /**
+     * Goes through every instance once, in a new random order of the blocks, in the specified mode.
+     *
+     * @return the mean logistic loss of the instances, each one as of just before the weights were updated with it
+     */
+    public double epoch(Parallel.Mode mode) {
+        if (size == 0)
+            return 0;
+        for (int i = blocks.length - 1; i > 0; i--) {
+            int j     = random.nextInt(i + 1);
+            int block = blocks[i];
+            blocks[i] = blocks[j];
+            blocks[j] = block;
+        }
+        double loss = 0;
+        if (mode == Parallel.Mode.SEQUENTIAL) {
+            start(0);
+            loss = train(0, 0, blocks.length, seen, 1);
+            xWeight = partials[0];
+            yWeight = partials[1];
+            bias = partials[2];
+        } else if (mode == Parallel.Mode.HOGWILD) {
+            int parts = Math.min(pool.getParallelism(), blocks.length);
+            pool.invoke(new Part(mode, parts, 0, parts));
+            for (int part = 0; part < parts; part++)
+                loss += losses[part];
+        } else {
+            int parts = Math.min(PARTS, blocks.length);
+            for (int part = 0; part < parts; part++)
+                start(part);
+            pool.invoke(new Part(mode, parts, 0, parts));
+            double w0 = 0;
+            double w1 = 0;
+            double b  = 0;
+            for (int part = 0, at = 0; part < parts; part++, at += 3) {
+                double share = (double) counts[part] / size;
+                w0 += partials[at] * share;
+                w1 += partials[at + 1] * share;
+                b += partials[at + 2] * share;
+                loss += losses[part];
+            }
+            xWeight = w0;
+            yWeight = w1;
+            bias = b;
+        }
+        seen += size;
+        return loss / size;
+    }
+
+    /**
+     * @return the coefficients <code>A</code>, <code>B</code> and <code>C</code> of the line
+     *         <code>Ax + By + C = 0</code> in the coordinates of the dataset, with the positive label on the side where
+     *         <code>Ax + By + C</code> is positive
+     */
+    public double[] getCoefficients() {
+        double a = xWeight / xScale;
+        double b = yWeight / yScale;
+        return new double[]{a, b, bias - a * xMean - b * yMean};
+    }
+
+    /* copies the weights into the partial weights of the specified part, and returns the offset of the latter */
+    private int start(int part) {
+        int at = part * 3;
+        partials[at] = xWeight;
+        partials[at + 1] = yWeight;
+        partials[at + 2] = bias;
+        return at;
+    }
+
+    /*
+     * trains the partial weights at the specified offset on the blocks from first, inclusive, to last, exclusive, the
+     * learning rate of every instance decaying as if it were the instance numbered seen, which grows by the stride from
+     * one instance to the next, and returns the sum of the losses
+     */
+    private double train(int at, int first, int last, long seen, int stride) {
+        double w0   = partials[at];
+        double w1   = partials[at + 1];
+        double b    = partials[at + 2];
+        double loss = 0;
+        for (int block = first; block < last; block++) {
+            for (int i = blocks[block], end = Math.min(size, i + BLOCK_SIZE); i < end; i++, seen += stride) {
+                double rate   = LEARNING_RATE / (1 + LEARNING_RATE * REGULARIZATION * seen);
+                double target = classes[i];
+                double margin = target * (w0 * xs[i] + w1 * ys[i] + b);
+                double gradient;
+                if (margin > 0) {
+                    double e = Math.exp(-margin);
+                    gradient = target * e / (1 + e);
+                    loss += Math.log1p(e);
+                } else {
+                    double e = Math.exp(margin);
+                    gradient = target / (1 + e);
+                    loss += Math.log1p(e) - margin;
+                }
+                double shrink = 1 - rate * REGULARIZATION;
+                w0 = w0 * shrink + rate * gradient * xs[i];
+                w1 = w1 * shrink + rate * gradient * ys[i];
+                b += rate * gradient;
+            }
+        }
+        partials[at] = w0;
+        partials[at + 1] = w1;
+        partials[at + 2] = b;
+        return loss;
+    }
+
+    /**
+     * Trains on one part of the instances after another, each one a range of the blocks, and on every part in
+     * {@link Parallel.Mode#HOGWILD} or {@link Parallel.Mode#AVERAGED} mode.
+     */
+    private final class Part extends RecursiveAction {
+
+        private final Parallel.Mode mode;
+        private final int           parts;
+        private final int           from;
+        private final int           to;
+
+        Part(Parallel.Mode mode, int parts, int from, int to) {
+            this.mode = mode;
+            this.parts = parts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Part(mode, parts, from, middle), new Part(mode, parts, middle, to));
+                return;
+            }
+            int  at    = from * 3;
+            int  first = (int) ((long) blocks.length * from / parts);
+            int  last  = (int) ((long) blocks.length * to / parts);
+            long count = seen + from;
+            if (mode == Parallel.Mode.AVERAGED) {
+                losses[from] = train(at, first, last, count, parts);
+                counts[from] = 0;
+                for (int block = first; block < last; block++)
+                    counts[from] += Math.min(size, blocks[block] + BLOCK_SIZE) - blocks[block];
+                return;
+            }
+            // the weights are read and added to once per block, so that the threads seldom contend for them
+            double loss = 0;
+            for (int block = first; block < last; block++, count += (long) BLOCK_SIZE * parts) {
+                start(from);
+                double w0 = partials[at];
+                double w1 = partials[at + 1];
+                double b  = partials[at + 2];
+                loss += train(at, block, block + 1, count, parts);
+                xWeight += partials[at] - w0;
+                yWeight += partials[at + 1] - w1;
+                bias += partials[at + 2] - b;
+            }
+            losses[from] = loss;
+        }
+    }
+
+    private static double mean(double[] column) {
+        double sum = 0;
+        for (double value : column)
+            sum += value;
+        return column.length == 0 ? 0 : sum / column.length;
+    }
+
+    /* standardizes the column in place, so that the weights are learned in standard deviations; returns the scale */
+    private static double scale(double[] column, double mean) {
+        double sum = 0;
+        for (double value : column)
+            sum += (value - mean) * (value - mean);
+        double deviation = Math.sqrt(column.length == 0 ? 0 : sum / column.length);
+        double scale     = deviation > 0 ? deviation : 1;
+        for (int i = 0; i < column.length; i++)
+            column[i] = (column[i] - mean) / scale;
+        return scale;
+    }
+
+    private static void swap(double[] column, int i, int j) {
+        double value = column[i];
+        column[i] = column[j];
+        column[j] = value;
+    }
+}
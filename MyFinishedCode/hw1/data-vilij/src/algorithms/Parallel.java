@@ -0,0 +1,31 @@
+package algorithms;
+
+/**
+ * An algorithm that can spread its training over all cores, in a {@link Mode} that is one of the options of the
+ * algorithm.
+ */
+public interface Parallel {
+
+    /** How the instances are trained on in every epoch. */
+    enum Mode {
+
+        /** On a single thread, one instance after the other. */
+        SEQUENTIAL,
+
+        /**
+         * On every core at once, each one on its own part of the instances, updating the shared weights without locks,
+         * after HOGWILD!. The updates of the threads interleave, so training is not reproducible.
+         */
+        HOGWILD,
+
+        /**
+         * On a fixed number of parts of the instances, each one from the same weights, after which the weights of the
+         * parts are averaged. The result depends only on the seed, not on the number of cores.
+         */
+        AVERAGED
+    }
+
+    Mode getParallelMode();
+
+    void setParallelMode(Mode mode);
+}
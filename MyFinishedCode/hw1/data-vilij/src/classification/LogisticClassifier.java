@@ -0,0 +1,125 @@
+package classification;
+
+import algorithms.Classifier;
+import algorithms.LogisticRegression;
+import algorithms.Parallel;
+import data.DataSet;
+import dataprocessors.AppData;
+import dataprocessors.TSDProcessor;
+import javafx.application.Platform;
+import javafx.scene.chart.XYChart;
+import ui.AppUI;
+import vilij.components.ErrorDialog;
+import vilij.templates.ApplicationTemplate;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Separates the instances of the first two labels of a dataset by the line of a {@link LogisticRegression}, trained by
+ * stochastic gradient descent on the two dimensions shown on the chart. Every iteration is one epoch over the
+ * instances, spread over all cores unless the {@link Parallel.Mode} says otherwise, after which the {@link #output} is
+ * the line learned so far. Every run shuffles the instances differently, except in the reproducible
+ * {@link Parallel.Mode#AVERAGED} mode, which always starts from the same seed.
+ */
+public class LogisticClassifier extends Classifier implements Parallel {
+
+    private static final Random RAND = new Random();
+
+    /** The seed of the shuffles in {@link Parallel.Mode#AVERAGED} mode, so that every run learns the same line. */
+    static final long AVERAGED_SEED = 0x5EEDL;
+
+    private DataSet dataset;
+    private final int maxIterations;
+    private final int updateInterval;
+    private Parallel.Mode mode = Parallel.Mode.HOGWILD;
+
+    private AtomicBoolean tocontinue;
+    private ApplicationTemplate applicationTemplate;
+
+    public void setApplicationTemplate(ApplicationTemplate applicationTemplate) {
+        this.applicationTemplate = applicationTemplate;
+    }
+
+    @Override
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    @Override
+    public int getUpdateInterval() {
+        return updateInterval;
+    }
+
+    @Override
+    public boolean tocontinue() {
+        return tocontinue.get();
+    }
+
+    @Override
+    public Parallel.Mode getParallelMode() {
+        return mode;
+    }
+
+    @Override
+    public void setParallelMode(Parallel.Mode mode) {
+        if (mode == null)
+            throw new IllegalArgumentException("The parallel mode cannot be null.");
+        this.mode = mode;
+    }
+
+    public LogisticClassifier(DataSet dataset,
+                              int maxIterations,
+                              int updateInterval,
+                              boolean tocontinue) {
+        this.dataset = dataset;
+        this.maxIterations = maxIterations;
+        this.updateInterval = updateInterval;
+        this.tocontinue = new AtomicBoolean(tocontinue);
+    }
+
+    @Override
+    public void run() {
+        TSDProcessor processor = ((AppData) applicationTemplate.getDataComponent()).getProcessor();
+        long seed = mode == Parallel.Mode.AVERAGED ? AVERAGED_SEED : RAND.nextLong();
+        LogisticRegression model = new LogisticRegression(dataset, processor.getXDimension(),
+                                                          processor.getYDimension(), seed);
+        if (!model.isTrainable()) {
+            Platform.runLater(() -> ErrorDialog.getDialog().show("Not Enough Labels",
+                                                                 "The data needs instances of two labels to classify"));
+            return;
+        }
+        double timePerTick = 1000000000;
+        double delta;
+        long now;
+        long lastTime;
+        for (int i = 1; i <= maxIterations; i++) {
+            delta = 0;
+            lastTime = System.nanoTime();
+            double loss = model.epoch(mode);
+            List<Integer> line = line(model.getCoefficients());
+            output = line;
+            if (i % updateInterval == 0) {
+                System.out.printf("Iteration number %d, loss %.6f%n", i, loss);
+                XYChart<Number, Number> chart = ((AppUI) applicationTemplate.getUIComponent()).getChart();
+                Platform.runLater(() -> processor.addClassLine(chart, line.get(0), line.get(1), line.get(2)));
+                if (!tocontinue()) {
+                    synchronized (Thread.currentThread()) {
+                        try {
+                            Thread.currentThread().wait();
+                        } catch (InterruptedException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                }
+            }
+            while (delta < 1 && i % updateInterval == 0) {
+                now = System.nanoTime();
+                delta += (now - lastTime) / timePerTick;
+                lastTime = now;
+            }
+        }
+    }
+
+}
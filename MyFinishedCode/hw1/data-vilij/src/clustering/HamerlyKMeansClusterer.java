@@ -0,0 +1,18 @@
+package clustering;
+
+import algorithms.KMeansBounds;
+import data.DataSet;
+
+/**
+ * Clusters the instances of a dataset into the same clusters as {@link KMeansClusterer}, but keeps
+ * {@link KMeansBounds} on the distances from every instance to the centroids, after Hamerly's accelerated k-means. Once
+ * the centroids move only a little, most instances are shown by their bounds to keep their cluster, and none of their
+ * distances are computed, which makes the later iterations over large datasets far cheaper.
+ */
+public class HamerlyKMeansClusterer extends KMeansClusterer {
+
+    public HamerlyKMeansClusterer(DataSet dataset, int maxIterations, int updateInterval, int numberOfClusters,
+                                  boolean toContinue) {
+        super(dataset, maxIterations, updateInterval, numberOfClusters, toContinue, true);
+    }
+}
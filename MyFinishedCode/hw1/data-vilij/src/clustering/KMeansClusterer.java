@@ -1,10 +1,15 @@
 package clustering;
 
 import algorithms.Clusterer;
+import algorithms.Convergence;
+import algorithms.Convergent;
+import algorithms.DistanceKernel;
+import algorithms.KMeansBounds;
+import algorithms.KMeansEngine;
+import algorithms.KMeansSeeder;
 import data.DataSet;
 import dataprocessors.AppData;
 import javafx.application.Platform;
-import javafx.geometry.Point2D;
 import ui.AppUI;
 import vilij.templates.ApplicationTemplate;
 
@@ -13,18 +18,30 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
+ * Clusters the instances of a dataset of any number of dimensions. The centroids are kept row by row in a single array,
+ * like the coordinates in the {@link DataSet}, so that the {@link DistanceKernel} can compare them with blocks of
+ * instances straight from the two arrays, and every iteration is run on all cores by a {@link KMeansEngine}. The
+ * starting centroids are spread over the instances by a {@link KMeansSeeder}, and the iterations stop early once the
+ * clusters have settled, as told by a {@link Convergence}.
+ *
  * @author Ritwik Banerjee
  */
-public class KMeansClusterer extends Clusterer {
+public class KMeansClusterer extends Clusterer implements Convergent {
 
-    private DataSet dataset;
-    private List<Point2D> centroids;
+    private DataSet  dataset;
+    private double[] centroids;
+    private int[]    clusterLabels;
+    private int[]    assignments;
+    private double   tolerance = Convergence.DEFAULT_TOLERANCE;
 
+    private volatile Convergence.Reason stopReason;
+
+    private KMeansBounds        bounds;
+    private final boolean       bounded;
+    private final KMeansEngine  engine = new KMeansEngine();
+    private final KMeansSeeder  seeder = new KMeansSeeder();
     private final int           maxIterations;
     private final int           updateInterval;
     private final AtomicBoolean tocontinue;
@@ -32,11 +49,21 @@ public class KMeansClusterer extends Clusterer {
 
 
     public KMeansClusterer(DataSet dataset, int maxIterations, int updateInterval, int numberOfClusters, boolean toContinue) {
+        this(dataset, maxIterations, updateInterval, numberOfClusters, toContinue, false);
+    }
+
+    /**
+     * @param bounded whether the iterations keep {@link KMeansBounds} to skip the distances that cannot change the
+     *                clusters, which gives the same clusters
+     */
+    protected KMeansClusterer(DataSet dataset, int maxIterations, int updateInterval, int numberOfClusters,
+                              boolean toContinue, boolean bounded) {
         super(numberOfClusters);
         this.dataset = dataset;
         this.maxIterations = maxIterations;
         this.updateInterval = updateInterval;
         this.tocontinue = new AtomicBoolean(toContinue);
+        this.bounded = bounded;
     }
 
     @Override
@@ -48,6 +75,19 @@ public class KMeansClusterer extends Clusterer {
     @Override
     public boolean tocontinue() { return tocontinue.get(); }
 
+    @Override
+    public double getTolerance() { return tolerance; }
+
+    @Override
+    public void setTolerance(double tolerance) {
+        if (!(tolerance >= 0))
+            throw new IllegalArgumentException("The tolerance cannot be negative.");
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public Convergence.Reason getStopReason() { return stopReason; }
+
     @Override
     public void setApplicationTemplate(ApplicationTemplate applicationTemplate) {
         this.applicationTemplate = applicationTemplate;
@@ -56,33 +96,36 @@ public class KMeansClusterer extends Clusterer {
     @Override
     public void run() {
         initializeCentroids();
+        stopReason = null;
+        Convergence convergence = new Convergence(tolerance);
+        boolean converged = false;
         int iteration = 0;
         double timePerTick = 1000000000;
         double delta;
         long now;
         long lastTime;
-        while (iteration++ < maxIterations) {
+        while (!converged && iteration++ < maxIterations) {
             if (iteration % updateInterval == 0)
                 Platform.runLater(() -> ((AppUI) applicationTemplate.getUIComponent()).getChart().getData().clear());
             delta = 0;
             lastTime = System.nanoTime();
+            double[] before     = centroids.clone();
+            int      reassigned = engine.iterate(dataset.getCoordinates(), dataset.size(), dataset.getDimensions(),
+                                                 centroids, numberOfClusters, assignments, bounds);
+            converged = convergence.update(reassigned, Convergence.largestShift(before, centroids, numberOfClusters,
+                                                                                dataset.getDimensions()),
+                                           engine.getInertia() / dataset.size());
             assignLabels();
-            recomputeCentroids();
             System.out.print("Update " + iteration + " : ");
             if (iteration % updateInterval == 0) {
                 System.out.println("Chart Updated");
-                Platform.runLater(() -> {
-                            ((AppData) applicationTemplate.getDataComponent()).getProcessor().setDataLabels(dataset.getLabels());
-                            ((AppData) applicationTemplate.getDataComponent()).getProcessor().setDataPoints(dataset.getLocations());
-                            ((AppData) applicationTemplate.getDataComponent()).displayData();
-                        }
-                );
+                display();
                 while (delta < 1) {
                     now = System.nanoTime();
                     delta += (now - lastTime) / timePerTick;
                     lastTime = now;
                 }
-                if (!tocontinue())
+                if (!tocontinue() && !converged)
                     synchronized (Thread.currentThread()) {
                         try {
                             Thread.currentThread().wait();
@@ -94,57 +137,42 @@ public class KMeansClusterer extends Clusterer {
             else
                 System.out.println("Not Updated");
         }
-    }
-
-    private void initializeCentroids() {
-        Set<String>  chosen        = new HashSet<>();
-        List<String> instanceNames = new ArrayList<>(dataset.getLabels().keySet());
-        Random       r             = new Random();
-        while (chosen.size() < numberOfClusters) {
-            int i = r.nextInt(instanceNames.size());
-            while (chosen.contains(instanceNames.get(i)))
-                ++i;
-            chosen.add(instanceNames.get(i));
+        stopReason = convergence.getReason();
+        System.out.println("Stopped after " + Math.min(iteration, maxIterations) + " iterations: " + stopReason);
+        if (converged && iteration % updateInterval != 0) {
+            Platform.runLater(() -> ((AppUI) applicationTemplate.getUIComponent()).getChart().getData().clear());
+            display();
         }
-        centroids = chosen.stream().map(name -> dataset.getLocations().get(name)).collect(Collectors.toList());
     }
 
-    private void assignLabels() {
-        dataset.getLocations().forEach((instanceName, location) -> {
-            double minDistance      = Double.MAX_VALUE;
-            int    minDistanceIndex = -1;
-            for (int i = 0; i < centroids.size(); i++) {
-                double distance = computeDistance(centroids.get(i), location);
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    minDistanceIndex = i;
+    private void display() {
+        Platform.runLater(() -> {
+                    ((AppData) applicationTemplate.getDataComponent()).getProcessor().setDataSet(dataset);
+                    ((AppData) applicationTemplate.getDataComponent()).displayData();
                 }
-            }
-            dataset.getLabels().put(instanceName, Integer.toString(minDistanceIndex));
-        });
+        );
     }
 
-    private void recomputeCentroids() {
-        IntStream.range(0, numberOfClusters).forEach(i -> {
-            AtomicInteger clusterSize = new AtomicInteger();
-            Point2D sum = dataset.getLabels()
-                    .entrySet()
-                    .stream()
-                    .filter(entry -> i == Integer.parseInt(entry.getValue()))
-                    .map(entry -> dataset.getLocations().get(entry.getKey()))
-                    .reduce(new Point2D(0, 0), (p, q) -> {
-                        clusterSize.incrementAndGet();
-                        return new Point2D(p.getX() + q.getX(), p.getY() + q.getY());
-                    });
-            Point2D newCentroid = new Point2D(sum.getX() / clusterSize.get(), sum.getY() / clusterSize.get());
-            if (!newCentroid.equals(centroids.get(i))) {
-                centroids.set(i, newCentroid);
-            }
-        });
+    private void initializeCentroids() {
+        int   dimensions = dataset.getDimensions();
+        int[] chosen     = seeder.seed(dataset.getCoordinates(), dataset.size(), dimensions, numberOfClusters);
+        centroids = new double[numberOfClusters * dimensions];
+        clusterLabels = new int[numberOfClusters];
+        int k = 0;
+        for (int i : chosen) {
+            System.arraycopy(dataset.getCoordinates(), i * dimensions, centroids, k * dimensions, dimensions);
+            clusterLabels[k] = dataset.labelId(Integer.toString(k));
+            k++;
+        }
+        assignments = new int[dataset.size()];
+        Arrays.fill(assignments, -1);
+        bounds = bounded ? new KMeansBounds(dataset.size(), numberOfClusters) : null;
     }
 
-    private static double computeDistance(Point2D p, Point2D q) {
-        return Math.sqrt(Math.pow(p.getX() - q.getX(), 2) + Math.pow(p.getY() - q.getY(), 2));
+    /* labels every instance with the cluster it was assigned to by the last iteration */
+    private void assignLabels() {
+        for (int i = 0; i < dataset.size(); i++)
+            dataset.setLabel(i, clusterLabels[assignments[i]]);
     }
 
 }
\ No newline at end of file
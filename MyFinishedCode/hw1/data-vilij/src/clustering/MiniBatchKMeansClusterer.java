@@ -0,0 +1,217 @@
+package clustering;
+
+import algorithms.Batched;
+import algorithms.CentroidTree;
+import algorithms.Clusterer;
+import algorithms.Convergence;
+import algorithms.Convergent;
+import algorithms.DistanceKernel;
+import algorithms.KMeansEngine;
+import algorithms.KMeansSeeder;
+import data.DataSet;
+import dataprocessors.AppData;
+import javafx.application.Platform;
+import ui.AppUI;
+import vilij.templates.ApplicationTemplate;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Clusters the instances of a dataset too large for every iteration to go through all of them, after Sculley's
+ * mini-batch k-means. Every iteration draws a batch of random instances, assigns them to their nearest centroids, and
+ * moves each centroid towards its instances by a learning rate of one over the number of instances it has been given so
+ * far, so the centroids settle as they learn. The starting centroids are chosen by a {@link KMeansSeeder}. Whenever
+ * the chart is updated, and once the iterations are done, every instance is labeled with the cluster of its nearest
+ * centroid, on all cores, so that the chart never shows clusters next to labels left from older batches. Those are
+ * the only passes over all the instances.
+ * <p>
+ * The iterations stop early once the centroids, or the inertia of the batches, have settled, as a {@link Convergence}
+ * over batches tells: the inertia of the batches has settled once its average has not improved for a number of batches
+ * in a row, not as soon as that average changes little, which it does on a large dataset from the start.
+ */
+public class MiniBatchKMeansClusterer extends Clusterer implements Batched, Convergent {
+
+    /** The number of instances in a batch unless another one is chosen. */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private DataSet  dataset;
+    private double[] centroids;
+    private long[]   counts;
+    private int[]    clusterLabels;
+    private int      batchSize = DEFAULT_BATCH_SIZE;
+    private int[]    batch;
+    private double[] batchPoints;
+    private int[]    batchAssignments;
+    private int[]    assignments;
+    private double   tolerance = Convergence.DEFAULT_TOLERANCE;
+
+    private volatile Convergence.Reason stopReason;
+
+    private final KMeansEngine  engine = new KMeansEngine();
+    private final KMeansSeeder  seeder = new KMeansSeeder();
+    private final Random        random = new Random();
+    private final int           maxIterations;
+    private final int           updateInterval;
+    private final AtomicBoolean tocontinue;
+    private ApplicationTemplate applicationTemplate;
+
+    public MiniBatchKMeansClusterer(DataSet dataset, int maxIterations, int updateInterval, int numberOfClusters,
+                                    boolean toContinue) {
+        super(numberOfClusters);
+        this.dataset = dataset;
+        this.maxIterations = maxIterations;
+        this.updateInterval = updateInterval;
+        this.tocontinue = new AtomicBoolean(toContinue);
+    }
+
+    @Override
+    public int getMaxIterations() { return maxIterations; }
+
+    @Override
+    public int getUpdateInterval() { return updateInterval; }
+
+    @Override
+    public boolean tocontinue() { return tocontinue.get(); }
+
+    @Override
+    public int getBatchSize() { return batchSize; }
+
+    @Override
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("The batch size must be positive.");
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public double getTolerance() { return tolerance; }
+
+    @Override
+    public void setTolerance(double tolerance) {
+        if (!(tolerance >= 0))
+            throw new IllegalArgumentException("The tolerance cannot be negative.");
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public Convergence.Reason getStopReason() { return stopReason; }
+
+    @Override
+    public void setApplicationTemplate(ApplicationTemplate applicationTemplate) {
+        this.applicationTemplate = applicationTemplate;
+    }
+
+    @Override
+    public void run() {
+        initializeCentroids();
+        stopReason = null;
+        Convergence convergence = new Convergence(tolerance, batchSize, dataset.size());
+        boolean converged = false;
+        int iteration = 0;
+        double timePerTick = 1000000000;
+        double delta;
+        long now;
+        long lastTime;
+        while (!converged && iteration++ < maxIterations) {
+            if (iteration % updateInterval == 0)
+                Platform.runLater(() -> ((AppUI) applicationTemplate.getUIComponent()).getChart().getData().clear());
+            delta = 0;
+            lastTime = System.nanoTime();
+            double[] before       = centroids.clone();
+            double   batchInertia = learnBatch();
+            converged = convergence.updateBatch(Convergence.largestShift(before, centroids, numberOfClusters,
+                                                                         dataset.getDimensions()), batchInertia);
+            System.out.print("Update " + iteration + " : ");
+            if (iteration % updateInterval == 0) {
+                System.out.println("Chart Updated");
+                assignLabels();
+                display();
+                while (delta < 1) {
+                    now = System.nanoTime();
+                    delta += (now - lastTime) / timePerTick;
+                    lastTime = now;
+                }
+                if (!tocontinue() && !converged)
+                    synchronized (Thread.currentThread()) {
+                        try {
+                            Thread.currentThread().wait();
+                        }catch (InterruptedException e) {
+                            e.printStackTrace();
+                        }
+                    }
+            }
+            else
+                System.out.println("Not Updated");
+        }
+        stopReason = convergence.getReason();
+        System.out.println("Stopped after " + Math.min(iteration, maxIterations) + " iterations: " + stopReason);
+        assignLabels();
+        Platform.runLater(() -> ((AppUI) applicationTemplate.getUIComponent()).getChart().getData().clear());
+        display();
+    }
+
+    private void display() {
+        Platform.runLater(() -> {
+                    ((AppData) applicationTemplate.getDataComponent()).getProcessor().setDataSet(dataset);
+                    ((AppData) applicationTemplate.getDataComponent()).displayData();
+                }
+        );
+    }
+
+    private void initializeCentroids() {
+        int   dimensions = dataset.getDimensions();
+        int[] chosen     = seeder.seed(dataset.getCoordinates(), dataset.size(), dimensions, numberOfClusters);
+        centroids = new double[numberOfClusters * dimensions];
+        counts = new long[numberOfClusters];
+        clusterLabels = new int[numberOfClusters];
+        int k = 0;
+        for (int i : chosen) {
+            System.arraycopy(dataset.getCoordinates(), i * dimensions, centroids, k * dimensions, dimensions);
+            clusterLabels[k] = dataset.labelId(Integer.toString(k));
+            k++;
+        }
+        batch = new int[batchSize];
+        batchPoints = new double[batchSize * dimensions];
+        batchAssignments = new int[batchSize];
+        assignments = new int[dataset.size()];
+    }
+
+    /*
+     * draws a batch, with replacement, and moves every centroid towards the instances of the batch nearest to it;
+     * returns the mean squared distance from the instances of the batch to their centroids before they moved
+     */
+    private double learnBatch() {
+        int      dimensions  = dataset.getDimensions();
+        double[] coordinates = dataset.getCoordinates();
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = random.nextInt(dataset.size());
+            System.arraycopy(coordinates, batch[i] * dimensions, batchPoints, i * dimensions, dimensions);
+        }
+        if (CentroidTree.pays(numberOfClusters, dimensions))
+            new CentroidTree(centroids, numberOfClusters, dimensions).assign(batchPoints, 0, batch.length,
+                                                                             batchAssignments);
+        else
+            DistanceKernel.assign(batchPoints, 0, batch.length, centroids, numberOfClusters, dimensions,
+                                  batchAssignments);
+        double inertia = 0;
+        for (int i = 0; i < batch.length; i++)
+            inertia += DistanceKernel.squaredDistance(batchPoints, i * dimensions, centroids,
+                                                      batchAssignments[i] * dimensions, dimensions);
+        for (int i = 0; i < batch.length; i++) {
+            int    centroid = batchAssignments[i] * dimensions;
+            double rate     = 1.0 / ++counts[batchAssignments[i]];
+            for (int d = 0; d < dimensions; d++)
+                centroids[centroid + d] += rate * (batchPoints[i * dimensions + d] - centroids[centroid + d]);
+        }
+        return inertia / batch.length;
+    }
+
+    /* labels every instance with the cluster of its nearest centroid */
+    private void assignLabels() {
+        engine.assign(dataset.getCoordinates(), dataset.size(), dataset.getDimensions(), centroids, numberOfClusters,
+                      assignments);
+        for (int i = 0; i < assignments.length; i++)
+            dataset.setLabel(i, clusterLabels[assignments[i]]);
+    }
+}
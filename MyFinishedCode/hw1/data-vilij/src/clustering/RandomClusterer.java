@@ -47,6 +47,9 @@ public class RandomClusterer extends Clusterer {
 
     @Override
     public void run() {
+        int[] clusterLabels = new int[numberOfClusters + 1];
+        for (int k = 0; k <= numberOfClusters; k++)
+            clusterLabels[k] = dataset.labelId(Integer.toString(k));
         int iteration = 0;
         double timePerTick = 1000000000;
         double delta;
@@ -57,13 +60,13 @@ public class RandomClusterer extends Clusterer {
                 Platform.runLater(() -> ((AppUI) applicationTemplate.getUIComponent()).getChart().getData().clear());
             delta = 0;
             lastTime = System.nanoTime();
-            dataset.getLocations().forEach((instanceName, location) -> dataset.getLabels().put(instanceName, Integer.toString((int)Math.ceil(Math.random() * numberOfClusters))));
+            for (int i = 0; i < dataset.size(); i++)
+                dataset.setLabel(i, clusterLabels[(int) Math.ceil(Math.random() * numberOfClusters)]);
             System.out.print("Update " + iteration + " : ");
             if (iteration % updateInterval == 0) {
                 System.out.println("Chart Updated");
                 Platform.runLater(() -> {
-                            ((AppData) applicationTemplate.getDataComponent()).getProcessor().setDataLabels(dataset.getLabels());
-                            ((AppData) applicationTemplate.getDataComponent()).getProcessor().setDataPoints(dataset.getLocations());
+                            ((AppData) applicationTemplate.getDataComponent()).getProcessor().setDataSet(dataset);
                             ((AppData) applicationTemplate.getDataComponent()).displayData();
                         }
                 );
@@ -0,0 +1,121 @@
+package data;
+
+import dataprocessors.ParseMonitor;
+import dataprocessors.TSDBCodec;
+import dataprocessors.TSDParser;
+import dataprocessors.TSDValidator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * The dataset of a data file, read once and then shared by everything that loads that file. Every load gets its own
+ * {@link DataSet#share() shared} view of the same columns, which only copies what it changes, so the data is held in
+ * memory once no matter how many views there are. Algorithms do not open the file: they run on a view of the dataset
+ * of the {@link dataprocessors.TSDProcessor}, which has the edits made since the load.
+ * <p>
+ * Sessions are kept for the few most recently used files, by their path. A session is reused as long as the
+ * modification time and size of its file are unchanged, so loading an unchanged file again does not read it again.
+ */
+public final class DataSession {
+
+    /** The number of files whose datasets are kept. */
+    static final int MAX_SESSIONS = 4;
+
+    private static final Map<Path, DataSession> sessions = new LinkedHashMap<Path, DataSession>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, DataSession> eldest) {
+            return size() > MAX_SESSIONS;
+        }
+    };
+
+    private final FileTime modified;
+    private final long     size;
+    private final DataSet  dataSet;
+
+    /* the size is that of the bytes read, which is less than that of the file if the file was read in part */
+    private DataSession(FileTime modified, long size, DataSet dataSet) {
+        this.modified = modified;
+        this.size = size;
+        this.dataSet = dataSet;
+    }
+
+    /**
+     * Returns a view of the dataset of the specified <code>.tsd</code> or <code>.tsdb</code> file, which is only read
+     * if it has not been read before, or has changed since.
+     *
+     * @throws IOException                                   if the file cannot be read
+     * @throws dataprocessors.TSDValidator.InvalidDataException if the file does not follow the <code>.tsd</code> data
+     *                                                       format, in which case nothing is kept
+     */
+    public static DataSet open(Path dataFilePath) throws Exception {
+        return open(dataFilePath, ParseMonitor.NONE);
+    }
+
+    /**
+     * Returns a view of the dataset of the specified file, as {@link #open(Path)} does, reporting the progress of the
+     * read to the specified monitor. A file that does not have to be read again is reported as read at once.
+     *
+     * @throws CancellationException if the monitor cancels the read, in which case nothing is kept
+     */
+    public static DataSet open(Path dataFilePath, ParseMonitor monitor) throws Exception {
+        return open(dataFilePath, Long.MAX_VALUE, monitor);
+    }
+
+    /**
+     * Returns a view of the dataset of the first bytes of the specified file, as {@link #open(Path, ParseMonitor)}
+     * does, leaving out what has been appended after them, e.g., so that the instances of a file that is still being
+     * written are the lines of a {@link dataprocessors.TSDDocument} opened on the same bytes. A <code>.tsdb</code> file
+     * is always read whole.
+     *
+     * @param size the number of bytes to read, which are all the bytes of the file if it has fewer
+     */
+    public static DataSet open(Path dataFilePath, long size, ParseMonitor monitor) throws Exception {
+        Path                key        = dataFilePath.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        long                read       = TSDBCodec.isBinary(key) ? attributes.size()
+                                                                  : Math.min(size, attributes.size());
+        DataSession         session;
+        synchronized (sessions) {
+            session = sessions.get(key);
+        }
+        // a session of a file that was read in part is not reused, as the file has grown since
+        if (session == null || !session.modified.equals(attributes.lastModifiedTime()) || session.size != read
+            || read != attributes.size()) {
+            session = new DataSession(attributes.lastModifiedTime(), read, read(key, read, monitor));
+            synchronized (sessions) {
+                sessions.put(key, session);
+            }
+        } else {
+            monitor.advance(session.size, session.dataSet.size(), 0);
+        }
+        return session.dataSet.share();
+    }
+
+    /** Forgets the dataset of the specified file, so that the next {@link #open(Path)} reads the file again. */
+    public static void invalidate(Path dataFilePath) {
+        synchronized (sessions) {
+            sessions.remove(dataFilePath.toAbsolutePath().normalize());
+        }
+    }
+
+    private static DataSet read(Path dataFilePath, long size, ParseMonitor monitor) throws Exception {
+        if (TSDBCodec.isBinary(dataFilePath)) {
+            // binary files are read in a single pass that is too quick to be worth reporting on
+            DataSet dataSet = TSDBCodec.read(dataFilePath);
+            monitor.advance(Files.size(dataFilePath), dataSet.size(), 0);
+            if (monitor.isCancelled())
+                throw new CancellationException();
+            return dataSet;
+        }
+        DataSet dataSet = new DataSet();
+        TSDParser.parse(dataFilePath, size, dataSet::addInstance, new TSDValidator(), monitor);
+        return dataSet;
+    }
+}
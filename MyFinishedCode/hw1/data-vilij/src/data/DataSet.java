@@ -1,23 +1,35 @@
 package data;
 
+import dataprocessors.CoordinateParser;
+import dataprocessors.TSDBCodec;
+import dataprocessors.TSDParser;
 import javafx.geometry.Point2D;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
- * This class specifies how an algorithm will expect the dataset to be. It is
- * provided as a rudimentary structure only, and does not include many of the
- * sanity checks and other requirements of the use cases. As such, you can
- * completely write your own class to represent a set of data instances as long
- * as the algorithm can read from and write into two {@link java.util.Map}
- * objects representing the name-to-label map and the name-to-location (i.e.,
- * the x,y values) map. These two are the {@link DataSet#labels} and
- * {@link DataSet#locations} maps in this class.
+ * This class specifies how an algorithm will expect the dataset to be. Every instance has the same number of
+ * coordinates, its {@link #getDimensions() dimensions}, which is set by the first instance added to the empty dataset.
+ * The coordinates of all instances are stored row by row in a single <code>double</code> array, so that the
+ * coordinates of instance <code>i</code> are {@link #getCoordinates()}<code>[i * d]</code> up to
+ * {@link #getCoordinates()}<code>[(i + 1) * d]</code> for <code>d</code> dimensions, and the labels are stored as ids
+ * into a {@link LabelDictionary} that holds every distinct label string once. Instance <code>i</code> is described by
+ * {@link #getName(int)}, its coordinates and {@link #getLabelIds()}<code>[i]</code>; the arrays may be longer than
+ * needed, so only the values of the first {@link #size()} instances are meaningful.
+ * <p>
+ * Algorithms can read these arrays directly, but must change them only through the methods of this class: a dataset made
+ * by {@link #share()} uses the same arrays as the original until either of them changes its instances, and only then
+ * copies them (the label ids and the coordinates separately). For compatibility, the name-to-label map and the
+ * name-to-location (i.e., the first two coordinates) map are still available as the {@link DataSet#getLabels()} and
+ * {@link DataSet#getLocations()} views, which read from and write into the arrays.
  *
  * @author Ritwik Banerjee
  */
@@ -32,51 +44,493 @@ public class DataSet {
         }
     }
 
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The number of dimensions of an empty dataset, until its first instance is added. */
+    public static final int DEFAULT_DIMENSIONS = 2;
+
+    private static final String DIMENSION_ERROR_MSG = "The instance has %d coordinates instead of %d.";
+
     private static String nameFormatCheck(String name) throws InvalidDataNameException {
         if (!name.startsWith("@"))
             throw new InvalidDataNameException(name);
         return name;
     }
 
-    private static Point2D locationOf(String locationString) {
-        String[] coordinateStrings = locationString.trim().split(",");
-        return new Point2D(Double.parseDouble(coordinateStrings[0]), Double.parseDouble(coordinateStrings[1]));
+    private static double[] coordinatesOf(String coordinatesString) {
+        String[] values = coordinatesString.split(",", -1);
+        if (values.length < 2)
+            throw new NumberFormatException("There is a missing number.");
+        double[] coordinates = new double[values.length];
+        for (int d = 0; d < values.length; d++)
+            coordinates[d] = CoordinateParser.parse(values[d], 0, values[d].length());
+        return coordinates;
     }
 
-    private Map<String, String>  labels;
-    private Map<String, Point2D> locations;
+    private String[] names;
+    private double[] coordinates;
+    private int      dimensions;
+    private int[]    labelIds;
+    private int      size;
+
+    /* open-addressing index from a name to its position, storing position + 1 so that 0 marks an empty slot */
+    private int[] nameSlots;
+
+    /* whether the names, locations and name slots, or the label ids, are also used by another dataset */
+    private boolean columnsShared;
+    private boolean labelsShared;
+    private int     modifications;
+
+    private final LabelDictionary labels;
+
+    private Map<String, String>  labelView;
+    private Map<String, Point2D> locationView;
 
     /** Creates an empty dataset. */
     public DataSet() {
-        labels = new HashMap<>();
-        locations = new HashMap<>();
+        names = new String[INITIAL_CAPACITY];
+        dimensions = DEFAULT_DIMENSIONS;
+        coordinates = new double[INITIAL_CAPACITY * dimensions];
+        labelIds = new int[INITIAL_CAPACITY];
+        nameSlots = new int[INITIAL_CAPACITY * 2];
+        labels = new LabelDictionary();
+    }
+
+    private DataSet(DataSet original) {
+        names = original.names;
+        coordinates = original.coordinates;
+        dimensions = original.dimensions;
+        labelIds = original.labelIds;
+        nameSlots = original.nameSlots;
+        size = original.size;
+        labels = new LabelDictionary(original.labels);
+        columnsShared = true;
+        labelsShared = true;
+    }
+
+    /**
+     * @return a dataset with the same instances, which uses the same arrays as this one until either of the two changes
+     *         them, so that sharing a large dataset costs nothing until it is relabeled or edited
+     */
+    public synchronized DataSet share() {
+        columnsShared = true;
+        labelsShared = true;
+        return new DataSet(this);
+    }
+
+    public int size()                  { return size; }
+
+    /** @return a number that changes whenever an instance is added, removed or moved, e.g., to tell when to re-index */
+    public int getModifications()      { return modifications; }
+
+    public String getName(int i)       { return names[i]; }
+
+    /** @return the number of coordinates of every instance */
+    public int getDimensions()         { return dimensions; }
+
+    /** @return the coordinates of all instances, row by row */
+    public double[] getCoordinates()   { return coordinates; }
+
+    public double getCoordinate(int i, int dimension) {
+        return coordinates[i * dimensions + dimension];
+    }
+
+    public int[] getLabelIds()         { return labelIds; }
+
+    public String getLabel(int i)      { return labels.name(labelIds[i]); }
+
+    public LabelDictionary getLabelDictionary() { return labels; }
+
+    /** @return the number of ids in the label dictionary, some of which may no longer be in use */
+    public int getLabelCount()         { return labels.size(); }
+
+    public String getLabelName(int id) { return labels.name(id); }
+
+    /**
+     * @return the id of the specified label, which is added to the dictionary if it is not there yet
+     */
+    public int labelId(String label)   { return labels.id(label); }
+
+    /** @return the position of the instance with the specified name, or <code>-1</code> if there is no such instance */
+    public int indexOf(String name) {
+        int mask = nameSlots.length - 1;
+        for (int slot = mix(name.hashCode()) & mask; nameSlots[slot] != 0; slot = (slot + 1) & mask) {
+            if (names[nameSlots[slot] - 1].equals(name))
+                return nameSlots[slot] - 1;
+        }
+        return -1;
+    }
+
+    public void setLabel(int i, int labelId) {
+        ownLabels();
+        labels.decrement(labelIds[i]);
+        labels.increment(labelId);
+        labelIds[i] = labelId;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the number of coordinates is not the dimensions of the dataset
+     */
+    public void setCoordinates(int i, double... point) {
+        checkDimensions(point);
+        ownColumns();
+        modifications++;
+        System.arraycopy(point, 0, coordinates, i * dimensions, dimensions);
+    }
+
+    public Map<String, String> getLabels() {
+        if (labelView == null)
+            labelView = new InstanceView<String>() {
+                @Override
+                String value(int i)                { return getLabel(i); }
+
+                @Override
+                void update(int i, String label)   { setLabel(i, labelId(label)); }
+            };
+        return labelView;
     }
 
-    public Map<String, String> getLabels()     { return labels; }
+    /**
+     * @return a view of the first two coordinates of every instance, which can only be changed if the dataset has two
+     *         dimensions
+     */
+    public Map<String, Point2D> getLocations() {
+        if (locationView == null)
+            locationView = new InstanceView<Point2D>() {
+                @Override
+                Point2D value(int i)               { return new Point2D(getCoordinate(i, 0), getCoordinate(i, 1)); }
+
+                @Override
+                void update(int i, Point2D point)  { setCoordinates(i, point.getX(), point.getY()); }
+            };
+        return locationView;
+    }
 
-    public Map<String, Point2D> getLocations() { return locations; }
+    /** @return the instance at the specified position as a line of a <code>.tsd</code> file, without the new line */
+    public String toTSDLine(int i) {
+        StringBuilder line = new StringBuilder().append(names[i]).append('\t').append(getLabel(i)).append('\t');
+        for (int d = 0; d < dimensions; d++)
+            line.append(d == 0 ? "" : ",").append(getCoordinate(i, d));
+        return line.toString();
+    }
 
     public void updateLabel(String instanceName, String newlabel) {
-        if (labels.get(instanceName) == null)
+        int i = indexOf(instanceName);
+        if (i < 0)
             throw new NoSuchElementException();
-        labels.put(instanceName, newlabel);
+        setLabel(i, labelId(newlabel));
+    }
+
+    /**
+     * Adds an instance, or replaces the label and coordinates of the instance with the same name. The coordinates are
+     * copied into the dataset.
+     *
+     * @return the position of the instance
+     * @throws IllegalArgumentException if the dataset is not empty, and the number of coordinates is not its dimensions
+     */
+    public int addInstance(String name, String label, double... point) {
+        checkDimensions(point);
+        return addInstance(name, labelId(label), point);
+    }
+
+    /**
+     * Adds an instance whose label is already in the dictionary, or replaces the label and coordinates of the instance
+     * with the same name.
+     *
+     * @return the position of the instance
+     * @throws IllegalArgumentException if the dataset is not empty, and the number of coordinates is not its dimensions
+     * @see #labelId(String)
+     */
+    public int addInstance(String name, int labelId, double... point) {
+        checkDimensions(point);
+        if (point.length != dimensions)
+            setDimensions(point.length);
+        int i = indexOf(name);
+        if (i < 0) {
+            ownColumns();
+            ownLabels();
+            if (size == names.length)
+                grow();
+            i = size++;
+            names[i] = name;
+            insertSlot(i);
+            labels.increment(labelId);
+            labelIds[i] = labelId;
+        } else
+            setLabel(i, labelId);
+        setCoordinates(i, point);
+        return i;
+    }
+
+    /**
+     * Removes the instance with the specified name. The last instance takes its position, so that removing is a
+     * constant-time operation.
+     *
+     * @return whether there was such an instance
+     */
+    public boolean removeInstance(String name) {
+        int i = indexOf(name);
+        if (i < 0)
+            return false;
+        ownColumns();
+        ownLabels();
+        modifications++;
+        removeSlot(i);
+        labels.decrement(labelIds[i]);
+        int last = --size;
+        if (i != last) {
+            removeSlot(last);
+            names[i] = names[last];
+            labelIds[i] = labelIds[last];
+            System.arraycopy(coordinates, last * dimensions, coordinates, i * dimensions, dimensions);
+            insertSlot(i);
+        }
+        names[last] = null;
+        return true;
+    }
+
+    /** Makes room for the specified number of instances, so that adding them does not need to grow the columns. */
+    public void ensureCapacity(int capacity) {
+        if (capacity > names.length)
+            resize(Integer.highestOneBit(capacity - 1) << 1);
+    }
+
+    /**
+     * Fills this empty dataset with whole columns at once, as read from a binary file, instead of adding the instances
+     * one by one: the dataset takes the arrays instead of copying them, counts the labels and indexes the names in one
+     * pass, and checks nothing else.
+     *
+     * @param names       the names of the instances, all different
+     * @param coordinates the coordinates of the instances, instance by instance
+     * @param dimensions  the number of coordinates of every instance
+     * @param labelIds    the label ids of the instances, all of them already in the {@link #getLabelDictionary()}
+     * @param size        the number of instances, at the start of the arrays
+     * @throws IllegalArgumentException if the dataset is not empty, the arrays are too short, there are fewer than two
+     *                                  dimensions, a label id is not in the dictionary, or two names are the same; the
+     *                                  dataset is left empty
+     */
+    public void load(String[] names, double[] coordinates, int dimensions, int[] labelIds, int size) {
+        if (this.size > 0)
+            throw new IllegalArgumentException("Only an empty dataset can be loaded.");
+        if (dimensions < 2 || names.length < size || labelIds.length < size
+            || coordinates.length < (long) size * dimensions)
+            throw new IllegalArgumentException("The columns do not hold " + size + " instances.");
+        for (int i = 0; i < size; i++)
+            if (labelIds[i] < 0 || labelIds[i] >= labels.size())
+                throw new IllegalArgumentException("There is no label with the id " + labelIds[i] + ".");
+        int[] slots = new int[slotCount(Math.max(INITIAL_CAPACITY, names.length))];
+        int   mask  = slots.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = mix(names[i].hashCode()) & mask;
+            for (; slots[slot] != 0; slot = (slot + 1) & mask)
+                if (names[slots[slot] - 1].equals(names[i]))
+                    throw new IllegalArgumentException("There are duplicate names.");
+            slots[slot] = i + 1;
+        }
+        int capacity = Math.max(INITIAL_CAPACITY, names.length);
+        this.names = names.length < capacity ? Arrays.copyOf(names, capacity) : names;
+        this.coordinates = coordinates.length < (long) capacity * dimensions
+                           ? Arrays.copyOf(coordinates, capacity * dimensions) : coordinates;
+        this.labelIds = labelIds.length < capacity ? Arrays.copyOf(labelIds, capacity) : labelIds;
+        this.dimensions = dimensions;
+        this.size = size;
+        nameSlots = slots;
+        columnsShared = false;
+        labelsShared = false;
+        modifications++;
+        for (int i = 0; i < size; i++)
+            labels.increment(labelIds[i]);
+    }
+
+    /** Removes every instance and label. */
+    public void clear() {
+        if (columnsShared || labelsShared) {
+            names = new String[INITIAL_CAPACITY];
+            coordinates = new double[INITIAL_CAPACITY * dimensions];
+            labelIds = new int[INITIAL_CAPACITY];
+            nameSlots = new int[INITIAL_CAPACITY * 2];
+            columnsShared = false;
+            labelsShared = false;
+        }
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(nameSlots, 0);
+        modifications++;
+        size = 0;
+        labels.clear();
     }
 
     private void addInstance(String tsdLine) throws InvalidDataNameException {
         String[] arr = tsdLine.split("\t");
-        labels.put(nameFormatCheck(arr[0]), arr[1]);
-        locations.put(arr[0], locationOf(arr[2]));
+        addInstance(nameFormatCheck(arr[0]), arr[1], coordinatesOf(arr[2]));
+    }
+
+    /* an empty dataset takes the dimensions of its first instance, which has at least the two that a chart shows */
+    private void checkDimensions(double[] point) {
+        if (point.length < 2 || point.length != dimensions && size > 0)
+            throw new IllegalArgumentException(String.format(DIMENSION_ERROR_MSG, point.length, dimensions));
+    }
+
+    private void setDimensions(int dimensions) {
+        ownColumns();
+        this.dimensions = dimensions;
+        coordinates = new double[names.length * dimensions];
+    }
+
+    /* copies the arrays that are shared with another dataset before they are changed */
+    private synchronized void ownColumns() {
+        if (columnsShared) {
+            names = names.clone();
+            coordinates = coordinates.clone();
+            nameSlots = nameSlots.clone();
+            columnsShared = false;
+        }
+    }
+
+    private synchronized void ownLabels() {
+        if (labelsShared) {
+            labelIds = labelIds.clone();
+            labelsShared = false;
+        }
+    }
+
+    private void grow() {
+        resize(names.length * 2);
+    }
+
+    private void resize(int capacity) {
+        names = Arrays.copyOf(names, capacity);
+        coordinates = Arrays.copyOf(coordinates, capacity * dimensions);
+        labelIds = Arrays.copyOf(labelIds, capacity);
+        nameSlots = new int[slotCount(capacity)];
+        columnsShared = false;
+        labelsShared = false;
+        for (int i = 0; i < size; i++)
+            insertSlot(i);
+    }
+
+    /*
+     * the number of name slots for the specified capacity: a power of two, so that a mask finds a slot, and at least
+     * twice the capacity, which is not a power of two after a load
+     */
+    private static int slotCount(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) << 1;
+    }
+
+    private void insertSlot(int i) {
+        int mask = nameSlots.length - 1;
+        int slot = mix(names[i].hashCode()) & mask;
+        while (nameSlots[slot] != 0)
+            slot = (slot + 1) & mask;
+        nameSlots[slot] = i + 1;
+    }
+
+    /* deletes the slot of the instance at the specified position, shifting back the slots probed after it */
+    private void removeSlot(int i) {
+        int mask = nameSlots.length - 1;
+        int slot = mix(names[i].hashCode()) & mask;
+        while (nameSlots[slot] != i + 1)
+            slot = (slot + 1) & mask;
+        for (int next = (slot + 1) & mask; nameSlots[next] != 0; next = (next + 1) & mask) {
+            int home = mix(names[nameSlots[next] - 1].hashCode()) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                nameSlots[slot] = nameSlots[next];
+                slot = next;
+            }
+        }
+        nameSlots[slot] = 0;
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Reads a dataset from either a text <code>.tsd</code> file or a binary <code>.tsdb</code> file.
+     *
+     * @see TSDBCodec
+     */
+    public static DataSet fromFile(Path dataFilePath) throws IOException {
+        return TSDBCodec.isBinary(dataFilePath) ? TSDBCodec.read(dataFilePath) : fromTSDFile(dataFilePath);
     }
 
     public static DataSet fromTSDFile(Path tsdFilePath) throws IOException {
         DataSet dataset = new DataSet();
-        Files.lines(tsdFilePath).forEach(line -> {
-            try {
-                dataset.addInstance(line);
-            } catch (InvalidDataNameException e) {
-                e.printStackTrace();
-            }
-        });
+        try {
+            TSDParser.parse(tsdFilePath, dataset::addInstance);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            // the instances on the valid lines have been added, so only the error is reported
+            System.err.println(e.getMessage());
+        }
         return dataset;
     }
-}
\ No newline at end of file
+
+    /**
+     * A map from instance names to one of their attributes, which reads from and writes into the columns of this
+     * dataset. Only the attributes of existing instances can be changed through the view.
+     */
+    private abstract class InstanceView<V> extends AbstractMap<String, V> {
+
+        abstract V value(int i);
+
+        abstract void update(int i, V value);
+
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && indexOf((String) key) >= 0;
+        }
+
+        @Override
+        public V get(Object key) {
+            int i = key instanceof String ? indexOf((String) key) : -1;
+            return i < 0 ? null : value(i);
+        }
+
+        @Override
+        public V put(String key, V value) {
+            int i = indexOf(key);
+            if (i < 0)
+                throw new NoSuchElementException(key);
+            V previous = value(i);
+            update(i, value);
+            return previous;
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet() {
+            return new AbstractSet<Entry<String, V>>() {
+                @Override
+                public int size() { return size; }
+
+                @Override
+                public Iterator<Entry<String, V>> iterator() {
+                    return new Iterator<Entry<String, V>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() { return next < size; }
+
+                        @Override
+                        public Entry<String, V> next() {
+                            if (next >= size)
+                                throw new NoSuchElementException();
+                            int i = next++;
+                            return new SimpleEntry<String, V>(names[i], value(i)) {
+                                @Override
+                                public V setValue(V value) {
+                                    update(i, value);
+                                    return super.setValue(value);
+                                }
+                            };
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
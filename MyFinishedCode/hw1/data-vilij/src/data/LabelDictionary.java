@@ -0,0 +1,100 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The distinct labels of a {@link DataSet}. Every label string is interned once and given an id, and the number of
+ * instances with each label is kept up to date as instances are added, removed or relabeled, so that the label
+ * statistics are constant-time reads. Unlabeled instances, written with the label <code>null</code> in the data, always
+ * have the id {@link #UNLABELED}, which is not counted as a label.
+ *
+ * @see DataSet#getLabelDictionary()
+ */
+public final class LabelDictionary {
+
+    public static final String UNLABELED_NAME = "null";
+    public static final int    UNLABELED      = 0;
+
+    private final List<String>         names = new ArrayList<>();
+    private final Map<String, Integer> index = new HashMap<>();
+    private int[]                      sizes = new int[8];
+    private int                        usedCount;
+    private List<String>               usedNames;
+
+    LabelDictionary() {
+        clear();
+    }
+
+    LabelDictionary(LabelDictionary original) {
+        names.addAll(original.names);
+        index.putAll(original.index);
+        sizes = original.sizes.clone();
+        usedCount = original.usedCount;
+        usedNames = original.usedNames;
+    }
+
+    /** @return the number of ids in the dictionary, including {@link #UNLABELED} and labels that are no longer used */
+    public int size()            { return names.size(); }
+
+    public String name(int id)   { return names.get(id); }
+
+    /** @return the number of instances with the specified label id */
+    public int sizeOf(int id)    { return sizes[id]; }
+
+    /** @return the number of labels, other than {@link #UNLABELED}, that at least one instance has */
+    public int usedCount()       { return usedCount; }
+
+    /** @return the id of the specified label, which is added to the dictionary if it is not there yet */
+    public int id(String label) {
+        Integer id = index.get(label);
+        if (id == null) {
+            id = names.size();
+            names.add(label);
+            index.put(label, id);
+            if (id == sizes.length)
+                sizes = Arrays.copyOf(sizes, id * 2);
+        }
+        return id;
+    }
+
+    /** @return the labels, other than {@link #UNLABELED}, that at least one instance has, in the order of their ids */
+    public List<String> usedNames() {
+        if (usedNames == null) {
+            List<String> used = new ArrayList<>(usedCount);
+            for (int id = 0; id < names.size(); id++)
+                if (id != UNLABELED && sizes[id] > 0)
+                    used.add(names.get(id));
+            usedNames = Collections.unmodifiableList(used);
+        }
+        return usedNames;
+    }
+
+    void increment(int id) {
+        if (sizes[id]++ == 0 && id != UNLABELED) {
+            usedCount++;
+            usedNames = null;
+        }
+    }
+
+    void decrement(int id) {
+        if (--sizes[id] == 0 && id != UNLABELED) {
+            usedCount--;
+            usedNames = null;
+        }
+    }
+
+    /** Removes every label, leaving only {@link #UNLABELED}. */
+    void clear() {
+        names.clear();
+        index.clear();
+        Arrays.fill(sizes, 0);
+        usedCount = 0;
+        usedNames = null;
+        id(UNLABELED_NAME);
+    }
+}
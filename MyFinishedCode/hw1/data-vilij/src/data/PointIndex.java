@@ -0,0 +1,187 @@
+package data;
+
+import java.util.Arrays;
+
+/**
+ * A kd-tree over a set of 2-D points, e.g., the instances of a {@link DataSet}, for finding the points at a location or
+ * the point nearest to it in logarithmic time. The tree is implicit: the points are reordered so that every range of
+ * the arrays is split by its middle point, alternately on x and on y, and the coordinates are copied in that order, so
+ * the index holds no node objects and stays valid however the original arrays change afterwards.
+ * <p>
+ * Several points may have the same coordinates; {@link #pointsAt(double, double)} finds all of them. Coordinates are
+ * compared as by {@link Double#compare(double, double)}, so even <code>NaN</code> coordinates can be found.
+ */
+public final class PointIndex {
+
+    /* ranges of at most this many points are scanned instead of being split further */
+    private static final int LEAF_SIZE = 8;
+
+    private final int[]    ids;
+    private final double[] xs;
+    private final double[] ys;
+
+    /**
+     * Indexes the first <code>size</code> points of the specified coordinate arrays; a point is identified by its
+     * position in those arrays.
+     */
+    public PointIndex(double[] x, double[] y, int size) {
+        ids = new int[size];
+        xs = Arrays.copyOf(x, size);
+        ys = Arrays.copyOf(y, size);
+        for (int i = 0; i < size; i++)
+            ids[i] = i;
+        build(0, size, true);
+    }
+
+    /** Indexes the first two coordinates of the instances of the specified dataset, identified by their positions. */
+    public PointIndex(DataSet dataSet) {
+        this(dataSet, 0, 1);
+    }
+
+    /**
+     * Indexes the instances of the specified dataset, identified by their positions, as projected onto the plane of
+     * the two specified dimensions.
+     */
+    public PointIndex(DataSet dataSet, int xDimension, int yDimension) {
+        this(column(dataSet, xDimension), column(dataSet, yDimension), dataSet.size());
+    }
+
+    private static double[] column(DataSet dataSet, int dimension) {
+        double[] column = new double[dataSet.size()];
+        for (int i = 0; i < column.length; i++)
+            column[i] = dataSet.getCoordinate(i, dimension);
+        return column;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /** @return the positions of every point at exactly the specified coordinates, in increasing order */
+    public int[] pointsAt(double x, double y) {
+        int[] found = new int[4];
+        int   count = 0;
+        int[] stack = new int[64];
+        int   top   = 0;
+        stack[top++] = 0;
+        stack[top++] = ids.length << 1 | 1;
+        while (top > 0) {
+            int     packed = stack[--top];
+            int     lo     = stack[--top];
+            int     hi     = packed >>> 1;
+            boolean byX    = (packed & 1) == 1;
+            int     mid    = (lo + hi) >>> 1;
+            boolean leaf   = hi - lo <= LEAF_SIZE;
+            for (int i = leaf ? lo : mid; i < (leaf ? hi : mid + 1); i++) {
+                if (Double.compare(xs[i], x) == 0 && Double.compare(ys[i], y) == 0) {
+                    if (count == found.length)
+                        found = Arrays.copyOf(found, count * 2);
+                    found[count++] = ids[i];
+                }
+            }
+            if (leaf)
+                continue;
+            int comparison = byX ? Double.compare(x, xs[mid]) : Double.compare(y, ys[mid]);
+            if (top + 4 > stack.length)
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            // points equal to the middle one on the splitting axis may be on either side of it
+            if (comparison <= 0) {
+                stack[top++] = lo;
+                stack[top++] = mid << 1 | (byX ? 0 : 1);
+            }
+            if (comparison >= 0) {
+                stack[top++] = mid + 1;
+                stack[top++] = hi << 1 | (byX ? 0 : 1);
+            }
+        }
+        int[] result = Arrays.copyOf(found, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * @return the position of the point nearest to the specified coordinates, or <code>-1</code> if there are no
+     *         points; of several equally near points, any one may be returned
+     */
+    public int nearest(double x, double y) {
+        if (ids.length == 0)
+            return -1;
+        double[] best = {Double.POSITIVE_INFINITY, -1};
+        nearest(0, ids.length, true, x, y, best);
+        return (int) best[1];
+    }
+
+    private void nearest(int lo, int hi, boolean byX, double x, double y, double[] best) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int i = lo; i < hi; i++)
+                consider(i, x, y, best);
+            return;
+        }
+        int    mid        = (lo + hi) >>> 1;
+        double difference = byX ? x - xs[mid] : y - ys[mid];
+        consider(mid, x, y, best);
+        if (difference < 0) {
+            nearest(lo, mid, !byX, x, y, best);
+            if (difference * difference < best[0])
+                nearest(mid + 1, hi, !byX, x, y, best);
+        } else {
+            nearest(mid + 1, hi, !byX, x, y, best);
+            if (difference * difference < best[0])
+                nearest(lo, mid, !byX, x, y, best);
+        }
+    }
+
+    private void consider(int i, double x, double y, double[] best) {
+        double dx       = xs[i] - x;
+        double dy       = ys[i] - y;
+        double distance = dx * dx + dy * dy;
+        if (distance < best[0] || best[1] < 0) {
+            best[0] = distance;
+            best[1] = ids[i];
+        }
+    }
+
+    private void build(int lo, int hi, boolean byX) {
+        while (hi - lo > LEAF_SIZE) {
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi - 1, mid, byX);
+            build(lo, mid, !byX);
+            lo = mid + 1;
+            byX = !byX;
+        }
+    }
+
+    /** Moves the k-th smallest point of the range, on the specified axis, to position k (Wirth's selection). */
+    private void select(int lo, int hi, int k, boolean byX) {
+        double[] axis = byX ? xs : ys;
+        while (lo < hi) {
+            double pivot = axis[k];
+            int    i     = lo;
+            int    j     = hi;
+            do {
+                while (Double.compare(axis[i], pivot) < 0)
+                    i++;
+                while (Double.compare(pivot, axis[j]) < 0)
+                    j--;
+                if (i <= j)
+                    swap(i++, j--);
+            } while (i <= j);
+            if (j < k)
+                lo = i;
+            if (k < i)
+                hi = j;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        double x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        double y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+    }
+}
@@ -1,5 +1,9 @@
 package dataprocessors;
 
+import data.DataSession;
+import data.DataSet;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import settings.AppPropertyTypes;
 import ui.AppUI;
 import vilij.components.DataComponent;
@@ -13,6 +17,9 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This is the concrete application-specific implementation of the data component defined by the Vilij framework.
@@ -27,12 +34,35 @@ public class AppData implements DataComponent {
         return processor;
     }
 
+    /** The number of lines of the data that are shown in the text area. */
+    public static final int TEXT_AREA_LINES = 10;
+
+    /** Message of a background load, with the bytes read, the lines parsed and the errors found so far. */
+    private static final String LOAD_PROGRESS = "%,d bytes read, %,d lines parsed, %,d errors";
+
     private TSDProcessor        processor;
     private ApplicationTemplate applicationTemplate;
-    private ArrayList<String>   extraLines = new ArrayList<>();
+    private TSDDocument         document   = new TSDDocument();
+    private Path                loadedPath;
+    private TSDFollower         follower;
+    private int                 followed; // counts the followers started and stopped, to drop what stopped ones read
+    private List<String>        shownLines = new ArrayList<>();
 
-    public ArrayList<String> getExtraLines() {
-        return extraLines;
+    /** @return every line of the data: those shown in the text area, followed by those that do not fit in it */
+    public TSDDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * @return the first line of the data that is not shown in the text area yet, which from now on counts as shown,
+     *         or <code>null</code> if every line is shown
+     */
+    public String nextHiddenLine() {
+        if (shownLines.size() >= document.lineCount())
+            return null;
+        String line = document.getLine(shownLines.size());
+        shownLines.add(line);
+        return line;
     }
 
     public AppData(ApplicationTemplate applicationTemplate) {
@@ -43,61 +73,234 @@ public class AppData implements DataComponent {
     @Override
     public void loadData(Path dataFilePath) {
         try {
-            short counter = 0;
-            String reader2;
-            String input = "";
-            String total;
-            BufferedReader reader = new BufferedReader(new FileReader(dataFilePath.toFile()));
-            while ((reader2 = reader.readLine()) != null) {
-                counter++;
-                if (counter <= 10) {
-                    input += reader2;
-                    input += '\n';
-                }
-                else
-                {
-                    extraLines.add(reader2);
-                }
+            show(read(dataFilePath, false, ParseMonitor.NONE));
+        } catch (IOException e) {
+            System.out.println("ERROR");
+        } catch (Exception e) {
+            showLoadError(dataFilePath);
+        }
+    }
+
+    /**
+     * Returns a task that reads the specified data file off the JavaFX thread, with the bytes read, lines parsed and
+     * errors found so far as its message. The task is not started. Once the file has been read, the data, the text
+     * area and the chart are replaced at once on the JavaFX thread, and then the specified action runs; if the task
+     * fails or is cancelled, the current data is left as it was.
+     *
+     * @param toFollow whether the file is to be {@link #follow(Runnable) followed} once it has been loaded, in which
+     *                 case a last line without a new line, which may still be being written, is left to the follower
+     */
+    public Task<?> loadDataInBackground(Path dataFilePath, boolean toFollow, Runnable whenLoaded) {
+        return new ParseTask<LoadedData>(dataFilePath) {
+            @Override
+            protected LoadedData call() throws Exception {
+                return read(dataFilePath, toFollow, monitor());
             }
-            total = input;
-            if (extraLines.size() > 0)
-            {
-                for (int i = 0; i < extraLines.size(); i++)
-                {
-                    total += extraLines.get(i) + '\n';
-                }
+
+            @Override
+            protected void succeeded() {
+                show(getValue());
+                whenLoaded.run();
+            }
+
+            @Override
+            protected void failed() {
+                if (!(getException() instanceof CancellationException))
+                    showLoadError(dataFilePath);
             }
-            loadData(total);
-            if (counter >= 1)
-                input = input.substring(0, input.length() - 1);
-            ((AppUI) applicationTemplate.getUIComponent()).getTextArea().setText(input);
-            if (counter > 10)
-            {
-                Dialog ExtraLines = applicationTemplate.getDialog(Dialog.DialogType.ERROR);
-                ExtraLines.show(applicationTemplate.manager.getPropertyValue(AppPropertyTypes.MORE_LINES.name()),
-                        applicationTemplate.manager.getPropertyValue(AppPropertyTypes.MORE_LINES_MSG1.name()) +
-                                    counter +
-                                    applicationTemplate.manager.getPropertyValue(AppPropertyTypes.MORE_LINES_MSG2.name()));
+        };
+    }
+
+    /**
+     * Returns a task that checks whether the specified <code>.tsd</code> file is valid, off the JavaFX thread and
+     * without loading it, with the same progress message as a load. The task is not started. Once it is over, a
+     * dialog tells whether the file is valid, or lists its errors; the current data is never touched.
+     *
+     * @see TSDParser#validate(Path, TSDValidator)
+     */
+    public Task<?> validateDataInBackground(Path dataFilePath) {
+        return new ParseTask<Integer>(dataFilePath) {
+            @Override
+            protected Integer call() throws Exception {
+                return TSDParser.validate(dataFilePath, new TSDValidator(), monitor());
+            }
+
+            @Override
+            protected void succeeded() {
+                Dialog valid = applicationTemplate.getDialog(Dialog.DialogType.ERROR);
+                valid.show(applicationTemplate.manager.getPropertyValue(AppPropertyTypes.VALID_FILE_TITLE.name()),
+                           dataFilePath.getFileName() +
+                           applicationTemplate.manager.getPropertyValue(AppPropertyTypes.VALID_FILE_MSG.name()) +
+                           getValue());
+            }
+
+            @Override
+            protected void failed() {
+                if (getException() instanceof CancellationException)
+                    return;
+                Dialog error = applicationTemplate.getDialog(Dialog.DialogType.ERROR);
+                error.show(applicationTemplate.manager.getPropertyValue(PropertyTypes.LOAD_ERROR_TITLE.name()),
+                           getException().getMessage());
+            }
+        };
+    }
+
+    /**
+     * Reads the dataset and the lines of the specified file, without touching the current data, so it can run on any
+     * thread. Both are read up to the same size of the file, taken once, so that line <code>i</code> is still instance
+     * <code>i</code> when lines are appended during the read, and the follower starts right after them.
+     *
+     * @param completeLines whether to leave out a last line without a new line
+     * @throws CancellationException if the monitor cancels the read
+     */
+    private static LoadedData read(Path dataFilePath, boolean completeLines, ParseMonitor monitor) throws Exception {
+        boolean     binary   = TSDBCodec.isBinary(dataFilePath);
+        long        size     = binary ? Long.MAX_VALUE
+                                      : completeLines ? TSDParser.completeLinesSize(dataFilePath)
+                                                      : Files.size(dataFilePath);
+        DataSet     dataSet  = DataSession.open(dataFilePath, size, monitor);
+        TSDDocument document = binary ? TSDDocument.of(dataSet) : TSDDocument.open(dataFilePath, size);
+        if (monitor.isCancelled()) {
+            document.close();
+            throw new CancellationException();
+        }
+        return new LoadedData(dataFilePath, dataSet, document);
+    }
+
+    /** Replaces the current data with data that has been read, and shows it. Runs on the JavaFX thread. */
+    private void show(LoadedData loaded) {
+        clear();
+        processor.load(loaded.dataSet);
+        document = loaded.document;
+        loadedPath = loaded.dataFilePath;
+        int counter = document.lineCount();
+        shownLines = new ArrayList<>(document.lines().subList(0, Math.min(counter, TEXT_AREA_LINES)));
+        ((AppUI) applicationTemplate.getUIComponent()).getTextArea().setText(String.join("\n", shownLines));
+        ((AppUI) applicationTemplate.getUIComponent()).setHasNewText(false);
+        ((AppUI) applicationTemplate.getUIComponent()).showDocument(document);
+        if (counter > TEXT_AREA_LINES)
+        {
+            Dialog ExtraLines = applicationTemplate.getDialog(Dialog.DialogType.ERROR);
+            ExtraLines.show(applicationTemplate.manager.getPropertyValue(AppPropertyTypes.MORE_LINES.name()),
+                    applicationTemplate.manager.getPropertyValue(AppPropertyTypes.MORE_LINES_MSG1.name()) +
+                                counter +
+                                applicationTemplate.manager.getPropertyValue(AppPropertyTypes.MORE_LINES_MSG2.name()));
+        }
+    }
+
+    /**
+     * Starts following the <code>.tsd</code> file the data was loaded from, so that lines appended to it are added to
+     * the data, the list of lines, the chart and the statistics as they are written. If the file is rewritten instead,
+     * the specified action runs, which is expected to load it again. Does nothing if the data was not loaded from a
+     * <code>.tsd</code> file. The follower starts right after the bytes that the data was read from; if those end in
+     * the middle of a line, i.e., the data was not loaded to be followed, the file is loaded again once it grows.
+     *
+     * @throws IOException if the file cannot be watched
+     * @see TSDFollower
+     */
+    public void follow(Runnable whenRewritten) throws IOException {
+        stopFollowing();
+        if (loadedPath == null || TSDBCodec.isBinary(loadedPath))
+            return;
+        int following = ++followed;
+        follower = new TSDFollower(loadedPath, document.getSourceSize(), document.lineCount(), new TSDFollower.Listener() {
+            @Override
+            public void appended(TSDFollower.Appended appended) {
+                Platform.runLater(() -> {
+                    if (following == followed)
+                        append(appended);
+                });
+            }
+
+            @Override
+            public void rewritten() {
+                Platform.runLater(() -> {
+                    if (following == followed) {
+                        stopFollowing();
+                        whenRewritten.run();
+                    }
+                });
             }
+        });
+    }
+
+    public void stopFollowing() {
+        followed++;
+        if (follower == null)
+            return;
+        try {
+            follower.close();
         } catch (IOException e) {
-            System.out.println("ERROR");
+            System.err.println(e.getMessage());
+        }
+        follower = null;
+    }
+
+    /** Adds lines appended to the followed file to the data, and shows them. Runs on the JavaFX thread. */
+    private void append(TSDFollower.Appended appended) {
+        AppUI        ui        = (AppUI) applicationTemplate.getUIComponent();
+        int          first     = processor.getDataSet().size();
+        TSDValidator validator = new TSDValidator();
+        processor.append(appended, validator);
+        document.replace(document.lineCount(), document.lineCount(), appended.getLines());
+        ui.linesAppended(document.lineCount() - appended.getLines().size());
+        if (!ui.getChart().getData().isEmpty())
+            processor.appendToChartData(ui.getChart(), first);
+        try {
+            ui.displayStats(true);
         } catch (Exception e) {
+            // the statistics already say that the text area has an error
+        }
+        try {
+            validator.check();
+        } catch (TSDValidator.InvalidDataException e) {
             Dialog error = applicationTemplate.getDialog(Dialog.DialogType.ERROR);
             error.show(applicationTemplate.manager.getPropertyValue(PropertyTypes.LOAD_ERROR_TITLE.name()),
-                    applicationTemplate.manager.getPropertyValue(PropertyTypes.LOAD_ERROR_MSG.name()) + dataFilePath.getFileName().toString());
+                       e.getMessage());
         }
     }
 
+    private void showLoadError(Path dataFilePath) {
+        Dialog error = applicationTemplate.getDialog(Dialog.DialogType.ERROR);
+        error.show(applicationTemplate.manager.getPropertyValue(PropertyTypes.LOAD_ERROR_TITLE.name()),
+                applicationTemplate.manager.getPropertyValue(PropertyTypes.LOAD_ERROR_MSG.name()) + dataFilePath.getFileName().toString());
+    }
+
     public void loadData(String dataString) throws Exception {
             processor.processString(dataString);
     }
 
+    /**
+     * Brings the data in step with the specified text of the text area, followed by the lines that do not fit in it.
+     * Only the lines that changed since the last call are parsed again.
+     *
+     * @throws Exception if the text does not follow the <code>.tsd</code> data format
+     */
+    public void loadText(String text) throws Exception {
+        List<String> lines   = Arrays.asList(text.split("\n", -1));
+        int          oldSize = shownLines.size();
+        int          newSize = lines.size();
+        int          prefix  = 0;
+        while (prefix < oldSize && prefix < newSize && shownLines.get(prefix).equals(lines.get(prefix)))
+            prefix++;
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+               && shownLines.get(oldSize - 1 - suffix).equals(lines.get(newSize - 1 - suffix)))
+            suffix++;
+        document.replace(prefix, oldSize - suffix, lines.subList(prefix, newSize - suffix));
+        shownLines = new ArrayList<>(lines);
+        processor.processEdit(document.lines(), prefix, oldSize - suffix, newSize - suffix - prefix);
+    }
+
+    /**
+     * Saves the data as it is in memory, with every line and the labels given by the last algorithm that ran, to a
+     * <code>.tsd</code> or <code>.tsdb</code> file depending on its name. The text area must have been parsed first.
+     */
     @Override
     public void saveData(Path dataFilePath) {
-        // NOTE : completing this method was not a part of HW 1. You may have implemented file saving from the
-        // confirmation dialog elsewhere in a different way.
-        try (PrintWriter writer = new PrintWriter(Files.newOutputStream(dataFilePath))) {
-            writer.write(((AppUI) applicationTemplate.getUIComponent()).getCurrentText());
+        try {
+            TSDWriter.save(processor.getDataSet(), dataFilePath);
+            DataSession.invalidate(dataFilePath);
         } catch (IOException e) {
             System.err.println(e.getMessage());
         }
@@ -105,11 +308,65 @@ public class AppData implements DataComponent {
 
     @Override
     public void clear() {
+        stopFollowing();
+        loadedPath = null;
         processor.clear();
-        extraLines.clear();
+        try {
+            document.close();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+        document = new TSDDocument();
+        shownLines = new ArrayList<>();
     }
 
     public void displayData() {
-        processor.toChartData(((AppUI) applicationTemplate.getUIComponent()).getChart());
+        AppUI ui = (AppUI) applicationTemplate.getUIComponent();
+        ui.setDimensions(processor.getDataSet().getDimensions());
+        processor.toChartData(ui.getChart());
+    }
+
+    /** The data of a file that has been read, but not shown yet. */
+    private static final class LoadedData {
+        private final Path        dataFilePath;
+        private final DataSet     dataSet;
+        private final TSDDocument document;
+
+        LoadedData(Path dataFilePath, DataSet dataSet, TSDDocument document) {
+            this.dataFilePath = dataFilePath;
+            this.dataSet = dataSet;
+            this.document = document;
+        }
+    }
+
+    /** A task that parses a data file, with the progress of the parse as its message. */
+    private abstract static class ParseTask<V> extends Task<V> {
+        private final Path          dataFilePath;
+        private final AtomicLong    bytes  = new AtomicLong();
+        private final AtomicInteger lines  = new AtomicInteger();
+        private final AtomicInteger errors = new AtomicInteger();
+
+        ParseTask(Path dataFilePath) {
+            this.dataFilePath = dataFilePath;
+            updateMessage(String.format(LOAD_PROGRESS, 0L, 0, 0));
+        }
+
+        /** @return a monitor that reports the progress of the parse as the progress and message of this task */
+        ParseMonitor monitor() throws IOException {
+            long total = Files.size(dataFilePath);
+            return new ParseMonitor() {
+                @Override
+                public void advance(long bytesRead, int linesParsed, int errorsFound) {
+                    updateProgress(bytes.addAndGet(bytesRead), total);
+                    updateMessage(String.format(LOAD_PROGRESS, bytes.get(), lines.addAndGet(linesParsed),
+                                                errors.addAndGet(errorsFound)));
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return ParseTask.this.isCancelled();
+                }
+            };
+        }
     }
 }
@@ -0,0 +1,123 @@
+package dataprocessors;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes the numbers of the <code>x,y</code> field of <code>.tsd</code> data straight from a range of bytes or
+ * characters, without creating any objects. Plain decimal numbers, with an optional sign, fraction and exponent, of at
+ * most 18 significant digits whose value and power of ten are both exactly representable as a <code>double</code>,
+ * are computed with a single rounded multiplication or division, which gives exactly the same <code>double</code> as
+ * {@link Double#parseDouble(String)} (this is Clinger's fast path). That covers the coordinates of nearly every data
+ * file. Anything else, including invalid numbers, is handed to {@link Double#parseDouble(String)}, so the results and
+ * the error messages are always the same as those of the JDK.
+ *
+ * @see TSDParser
+ */
+public final class CoordinateParser {
+
+    /** The largest integer below which every integer is exactly representable as a <code>double</code>. */
+    private static final long MAX_EXACT_INTEGER = 1L << 53;
+
+    private static final int MAX_DIGITS = 18;
+
+    /* every power of ten that is exactly representable as a double */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private CoordinateParser() {}
+
+    /**
+     * Decodes the number in the specified range of UTF-8 bytes.
+     *
+     * @throws NumberFormatException if the range does not hold a number
+     */
+    public static double parse(ByteBuffer bytes, int from, int to) {
+        return parse(bytes, null, from, to);
+    }
+
+    /**
+     * Decodes the number in the specified range of characters.
+     *
+     * @throws NumberFormatException if the range does not hold a number
+     */
+    public static double parse(CharSequence chars, int from, int to) {
+        return parse(null, chars, from, to);
+    }
+
+    private static double parse(ByteBuffer bytes, CharSequence chars, int from, int to) {
+        int     i        = from;
+        boolean negative = false;
+        if (i < to && (at(bytes, chars, i) == '-' || at(bytes, chars, i) == '+'))
+            negative = at(bytes, chars, i++) == '-';
+
+        // the mantissa may overflow once it has too many digits, but then the fast path is not taken anyway
+        long mantissa    = 0;
+        int  digits      = 0;
+        int  significant = 0;
+        int  exponent    = 0;
+        for (; i < to && isDigit(at(bytes, chars, i)); i++, digits++) {
+            int digit = at(bytes, chars, i) - '0';
+            if (mantissa != 0 || digit != 0)
+                significant++;
+            mantissa = mantissa * 10 + digit;
+        }
+        if (i < to && at(bytes, chars, i) == '.') {
+            for (i++; i < to && isDigit(at(bytes, chars, i)); i++, digits++, exponent--) {
+                int digit = at(bytes, chars, i) - '0';
+                if (mantissa != 0 || digit != 0)
+                    significant++;
+                mantissa = mantissa * 10 + digit;
+            }
+        }
+        if (digits == 0 || significant > MAX_DIGITS)
+            return fallback(bytes, chars, from, to);
+
+        if (i < to && (at(bytes, chars, i) == 'e' || at(bytes, chars, i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (at(bytes, chars, i) == '-' || at(bytes, chars, i) == '+'))
+                negativeExponent = at(bytes, chars, i++) == '-';
+            int exponentStart = i;
+            int value         = 0;
+            for (; i < to && isDigit(at(bytes, chars, i)) && value < 1000; i++)
+                value = value * 10 + at(bytes, chars, i) - '0';
+            if (i == exponentStart)
+                return fallback(bytes, chars, from, to);
+            exponent += negativeExponent ? -value : value;
+        }
+        if (i != to)
+            return fallback(bytes, chars, from, to);
+
+        if (mantissa == 0)
+            return negative ? -0.0 : 0.0;
+        // a larger exponent is still exact if the mantissa can take the extra powers of ten
+        while (exponent > 22 && mantissa < MAX_EXACT_INTEGER / 10) {
+            mantissa *= 10;
+            exponent--;
+        }
+        if (mantissa > MAX_EXACT_INTEGER || exponent < -22 || exponent > 22)
+            return fallback(bytes, chars, from, to);
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int at(ByteBuffer bytes, CharSequence chars, int i) {
+        return bytes != null ? bytes.get(i) : chars.charAt(i);
+    }
+
+    private static double fallback(ByteBuffer bytes, CharSequence chars, int from, int to) {
+        if (chars != null)
+            return Double.parseDouble(chars.subSequence(from, to).toString());
+        byte[] range = new byte[to - from];
+        for (int i = 0; i < range.length; i++)
+            range[i] = bytes.get(from + i);
+        return Double.parseDouble(new String(range, StandardCharsets.UTF_8));
+    }
+}
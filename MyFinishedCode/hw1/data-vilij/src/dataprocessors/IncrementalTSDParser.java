@@ -0,0 +1,228 @@
+package dataprocessors;
+
+import data.DataSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps a {@link DataSet} in step with <code>.tsd</code> data that is being edited. Every update is compared with the
+ * lines of the previous one, and only the lines between the unchanged beginning and the unchanged end are parsed again;
+ * their old instances are removed from the dataset and the new ones are added, so that editing a single line costs the
+ * same regardless of how many lines there are.
+ * <p>
+ * The validation state is kept per line too: the parse error of every line, the number of valid lines with each name
+ * and with each number of coordinates, and the number of blank lines. {@link #check(TSDValidator)} reports the same
+ * errors, in the same order, as parsing all of the data with {@link TSDParser} would. As long as the data is valid, the
+ * dataset holds exactly the instances that such a parse would give, although not necessarily in the same order.
+ *
+ * @see TSDProcessor#processLines(List)
+ * @see TSDProcessor#processEdit(List, int, int, int)
+ */
+public final class IncrementalTSDParser {
+
+    /** A single line, as it was parsed. A valid line has a name; a line that is not valid has an error. */
+    static final class Line implements TSDParser.InstanceHandler {
+
+        final String           text;
+        final boolean          blank;
+        TSDValidator.LineError error;
+        String                 name;
+        String                 label;
+        double[]               coordinates;
+
+        Line(String text) {
+            this.text = text;
+            this.blank = text.isEmpty() || text.equals("\r");
+            if (!blank) {
+                TSDValidator validator = new TSDValidator(1, false);
+                TSDParser.parseLine(text, this, validator);
+                if (validator.getErrorCount() > 0)
+                    error = validator.getErrors().get(0);
+            }
+        }
+
+        @Override
+        public void instance(String name, String label, double[] coordinates) {
+            this.name = name;
+            this.label = label;
+            this.coordinates = coordinates.clone();
+        }
+    }
+
+    private final DataSet               dataSet;
+    private final List<Line>            lines           = new ArrayList<>();
+    private final Map<String, Integer>  nameCounts      = new HashMap<>();
+    private final Map<String, Line>     owners          = new HashMap<>();
+    private final Map<Integer, Integer> dimensionCounts = new HashMap<>();
+    private int                         validLines;
+    private int                         invalidLines;
+    private int                         blankLines;
+
+    /**
+     * @param dataSet the dataset to keep in step with the data, which should be empty
+     */
+    public IncrementalTSDParser(DataSet dataSet) {
+        this.dataSet = dataSet;
+    }
+
+    public DataSet getDataSet()  { return dataSet; }
+
+    public int getLineCount()    { return lines.size(); }
+
+    /**
+     * Brings the dataset in step with the specified lines, parsing only the ones that changed since the last update.
+     *
+     * @param newLines the lines of the data, without their new lines
+     * @return the number of lines that were parsed
+     */
+    public int update(List<String> newLines) {
+        int oldSize = lines.size();
+        int newSize = newLines.size();
+        int prefix  = 0;
+        while (prefix < oldSize && prefix < newSize && lines.get(prefix).text.equals(newLines.get(prefix)))
+            prefix++;
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+               && lines.get(oldSize - 1 - suffix).text.equals(newLines.get(newSize - 1 - suffix)))
+            suffix++;
+
+        return replace(prefix, oldSize - suffix, newLines.subList(prefix, newSize - suffix));
+    }
+
+    /**
+     * Brings the dataset in step with an edit that is already known, in which the lines from <code>from</code>,
+     * inclusive, up to <code>to</code>, exclusive, were replaced with the specified lines. Only those lines are parsed.
+     *
+     * @return the number of lines that were parsed
+     */
+    public int replace(int from, int to, List<String> newLines) {
+        List<Line>  removed = lines.subList(from, to);
+        Set<String> orphans = new HashSet<>();
+        for (Line line : removed)
+            remove(line, orphans);
+        List<Line> added = new ArrayList<>(newLines.size());
+        for (String text : newLines) {
+            Line line = new Line(text);
+            add(line);
+            added.add(line);
+        }
+        removed.clear();
+        lines.addAll(from, added);
+        for (String name : orphans)
+            if (!owners.containsKey(name) && nameCounts.containsKey(name))
+                adopt(name);
+        // owners whose coordinates did not fit the dataset may fit once the lines that did not fit them are gone
+        if (owners.size() != dataSet.size())
+            for (Line owner : owners.values())
+                if (dataSet.indexOf(owner.name) < 0)
+                    put(owner);
+        return added.size();
+    }
+
+    /**
+     * Reports every error in the data, as of the last update, to the specified validator.
+     *
+     * @throws TSDValidator.InvalidDataException if there are any errors
+     */
+    public void check(TSDValidator validator) throws TSDValidator.InvalidDataException {
+        int lastContent = lines.size() - 1;
+        while (lastContent >= 0 && lines.get(lastContent).blank)
+            lastContent--;
+        int trailingBlankLines = lines.size() - 1 - lastContent;
+        if (invalidLines == 0 && blankLines == trailingBlankLines && validLines == nameCounts.size()
+            && dimensionCounts.size() <= 1)
+            return;
+
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i <= lastContent && !validator.shouldStop(); i++) {
+            Line line = lines.get(i);
+            // like TSDParser, only the last of several blank lines in a row is reported, when more data follows it
+            if (line.blank && !lines.get(i + 1).blank)
+                validator.error(i + 1, 1, new TSDProcessor.InvalidDataNameException("").getMessage());
+            else if (line.error != null)
+                validator.error(i + 1, line.error.getColumn(), line.error.getMessage());
+            else if (!line.blank && validator.checkDimensions(line.coordinates.length, i + 1)
+                     && nameCounts.get(line.name) > 1 && !seen.add(line.name))
+                validator.error(i + 1, 1, TSDValidator.DUPLICATE_NAME);
+        }
+        validator.check();
+    }
+
+    /** Forgets every line. The dataset is left as it is. */
+    public void clear() {
+        lines.clear();
+        nameCounts.clear();
+        owners.clear();
+        dimensionCounts.clear();
+        validLines = 0;
+        invalidLines = 0;
+        blankLines = 0;
+    }
+
+    private void add(Line line) {
+        if (line.blank)
+            blankLines++;
+        else if (line.error != null)
+            invalidLines++;
+        else {
+            validLines++;
+            nameCounts.merge(line.name, 1, Integer::sum);
+            dimensionCounts.merge(line.coordinates.length, 1, Integer::sum);
+            if (owners.putIfAbsent(line.name, line) == null)
+                put(line);
+        }
+    }
+
+    /**
+     * Removes a line. If its instance is the one in the dataset, but other lines still have the same name, the name is
+     * added to the orphans, to be taken over by one of those lines once the update is complete.
+     */
+    private void remove(Line line, Set<String> orphans) {
+        if (line.blank)
+            blankLines--;
+        else if (line.error != null)
+            invalidLines--;
+        else {
+            validLines--;
+            if (dimensionCounts.merge(line.coordinates.length, -1, Integer::sum) == 0)
+                dimensionCounts.remove(line.coordinates.length);
+            int count = nameCounts.get(line.name) - 1;
+            if (count == 0)
+                nameCounts.remove(line.name);
+            else
+                nameCounts.put(line.name, count);
+            if (owners.get(line.name) == line) {
+                owners.remove(line.name);
+                if (count == 0)
+                    dataSet.removeInstance(line.name);
+                else
+                    orphans.add(line.name);
+            }
+        }
+    }
+
+    /* only needed when a name had duplicates, so the data was not valid to begin with */
+    private void adopt(String name) {
+        for (Line line : lines) {
+            if (line.error == null && !line.blank && line.name.equals(name)) {
+                owners.put(name, line);
+                put(line);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds the instance of a line to the dataset, unless the dataset has instances with another number of coordinates,
+     * which only happens while the data is not valid.
+     */
+    private void put(Line line) {
+        if (dataSet.size() == 0 || dataSet.getDimensions() == line.coordinates.length)
+            dataSet.addInstance(line.name, line.label, line.coordinates);
+    }
+}
@@ -0,0 +1,126 @@
+package dataprocessors;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The instance names seen so far by a validation-only parse, kept as 64-bit fingerprints of their UTF-8 bytes in an
+ * open-addressing table, each one next to the position of its name in the file. That is 21 to 43 bytes per name,
+ * whatever the length of the names, instead of a {@link String} and a hash-set entry for each. The table starts small
+ * and doubles as names are added, up to {@link #MAX_NAMES} names.
+ * <p>
+ * Two distinct names share a fingerprint with a probability of about n<sup>2</sup>/2<sup>65</sup> for n names, so
+ * a name is only read again from the file, and compared byte for byte with the new one, when their fingerprints are
+ * the same: a name is reported as a duplicate exactly when a full parse would report it.
+ *
+ * @see TSDParser#validate(java.nio.file.Path, TSDValidator)
+ */
+final class NameFingerprints {
+
+    /** The largest number of slots in the table, which takes 4 GiB at this size. */
+    static final int MAX_CAPACITY = 1 << 28;
+
+    /** The largest number of names that can be checked, which keeps the table at most three quarters full. */
+    static final int MAX_NAMES = MAX_CAPACITY - MAX_CAPACITY / 4;
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    /* marks an empty slot; a fingerprint that happens to be 0 is stored as 1 */
+    private static final long EMPTY = 0;
+
+    private final FileChannel channel;
+    private long[]            slots     = new long[INITIAL_CAPACITY];
+    private long[]            positions = new long[INITIAL_CAPACITY];
+    private ByteBuffer        earlier   = ByteBuffer.allocate(256);
+    private int               size;
+
+    /** @param channel the file the names are read from, from which a name is read again to tell it from another */
+    NameFingerprints(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds the name in the specified range of bytes, which is followed by a tab in the file.
+     *
+     * @param position the position of the name in the file
+     * @return <code>false</code> if the same name has already been added
+     * @throws IOException if an earlier name cannot be read again, or there are more than {@link #MAX_NAMES} names
+     */
+    boolean add(ByteBuffer bytes, int from, int to, long position) throws IOException {
+        return add(of(bytes, from, to), bytes, from, to, position);
+    }
+
+    /** Adds the name in the specified range of bytes, whose fingerprint is the specified one. */
+    boolean add(long fingerprint, ByteBuffer bytes, int from, int to, long position) throws IOException {
+        if (fingerprint == EMPTY)
+            fingerprint = 1;
+        if (size >= slots.length - slots.length / 4)
+            grow();
+        int mask = slots.length - 1;
+        for (int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+            if (slots[i] == fingerprint && sameName(positions[i], bytes, from, to))
+                return false;
+            if (slots[i] == EMPTY) {
+                slots[i] = fingerprint;
+                positions[i] = position;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    /** @return the fingerprint of the specified range of bytes: FNV-1a, its bits mixed by MurmurHash3's finalizer */
+    static long of(ByteBuffer bytes, int from, int to) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            hash ^= bytes.get(i) & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /* whether the name at the specified position of the file, which ends with a tab, is the specified range of bytes */
+    private boolean sameName(long position, ByteBuffer bytes, int from, int to) throws IOException {
+        int length = to - from;
+        if (earlier.capacity() <= length)
+            earlier = ByteBuffer.allocate(Math.max(length + 1, earlier.capacity() * 2));
+        earlier.clear();
+        earlier.limit(length + 1);
+        while (earlier.hasRemaining())
+            if (channel.read(earlier, position + earlier.position()) < 0)
+                return false;
+        for (int i = 0; i < length; i++)
+            if (earlier.get(i) != bytes.get(from + i))
+                return false;
+        return earlier.get(length) == '\t';
+    }
+
+    private void grow() throws IOException {
+        if (slots.length >= MAX_CAPACITY)
+            throw new IOException("There are more than " + MAX_NAMES + " instances to check for duplicate names.");
+        long[] oldSlots     = slots;
+        long[] oldPositions = positions;
+        slots = new long[oldSlots.length * 2];
+        positions = new long[oldSlots.length * 2];
+        int mask = slots.length - 1;
+        for (int old = 0; old < oldSlots.length; old++) {
+            if (oldSlots[old] == EMPTY)
+                continue;
+            int i = (int) oldSlots[old] & mask;
+            while (slots[i] != EMPTY)
+                i = (i + 1) & mask;
+            slots[i] = oldSlots[old];
+            positions[i] = oldPositions[old];
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package dataprocessors;
+
+/**
+ * Follows a parse of a data file as it goes, e.g., to show its progress while the file is loaded in the background,
+ * and lets it be cancelled. A parallel parse calls the monitor from several threads at once, so it must be
+ * thread-safe.
+ *
+ * @see TSDParser#parse(java.nio.file.Path, TSDParser.InstanceHandler, TSDValidator, ParseMonitor)
+ */
+public interface ParseMonitor {
+
+    /** A monitor that ignores the progress and never cancels. */
+    ParseMonitor NONE = new ParseMonitor() {
+        @Override
+        public void advance(long bytes, int lines, int errors) {}
+
+        @Override
+        public boolean isCancelled() { return false; }
+    };
+
+    /**
+     * Called every few thousand lines with the number of bytes and lines parsed, and errors found, since the previous
+     * call.
+     */
+    void advance(long bytes, int lines, int errors);
+
+    /**
+     * @return whether the parse should stop, in which case the parser throws a
+     *         {@link java.util.concurrent.CancellationException} the next time it reports its progress
+     */
+    boolean isCancelled();
+}
@@ -0,0 +1,306 @@
+package dataprocessors;
+
+import data.DataSet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes the binary, column-oriented <code>.tsdb</code> version of the <code>.tsd</code> data format. A
+ * <code>.tsdb</code> file holds, in this order and in big-endian byte order:
+ * <ol>
+ * <li>a header: the magic bytes <code>TSDB</code>, the format version, the number of instances, the number of labels,
+ * the size in bytes of the instance-name table and the number of coordinates of every instance,</li>
+ * <li>the label dictionary, as one length-prefixed UTF-8 string per label,</li>
+ * <li>the instance-name table, as the end offset of every name followed by all the names in UTF-8,</li>
+ * <li>the coordinates, instance by instance, and the label-id column, and</li>
+ * <li>a CRC-32 checksum of everything before it.</li>
+ * </ol>
+ * Every section is memory-mapped when the file is read, and the columns are read straight from the mapped sections
+ * into the {@link DataSet}, so nothing is parsed. Files of the first version, which only had two coordinates and stored
+ * them as an x column and a y column, and whose header did not have the number of coordinates, can still be read.
+ *
+ * @see TSDParser
+ */
+public final class TSDBCodec {
+
+    public static final String TSD_EXTENSION  = ".tsd";
+    public static final String TSDB_EXTENSION = ".tsdb";
+
+    private static final int MAGIC       = 0x54534442; // "TSDB"
+    private static final int VERSION     = 2;
+
+    /* the first version had no number of coordinates in its header, and stored them as an x and a y column */
+    private static final int XY_VERSION = 1;
+
+    /* the largest array that every virtual machine can allocate */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private TSDBCodec() {}
+
+    /** @return whether the specified file is in the binary <code>.tsdb</code> format, judging by its name */
+    public static boolean isBinary(Path dataFilePath) {
+        return dataFilePath.getFileName().toString().toLowerCase().endsWith(TSDB_EXTENSION);
+    }
+
+    /**
+     * Writes the specified dataset to a <code>.tsdb</code> file. The file is written through the {@link TSDWriter}, so
+     * it is replaced atomically and the memory used does not depend on the size of the dataset.
+     *
+     * @throws IOException if the file cannot be written, or the instance names take more than
+     *                     {@link Integer#MAX_VALUE} bytes, in which case it is left as it was
+     */
+    public static void write(DataSet dataSet, Path tsdbFilePath) throws IOException {
+        int  count     = dataSet.size();
+        long namesSize = 0;
+        for (int i = 0; i < count; i++)
+            namesSize += TSDWriter.utf8Length(dataSet.getName(i));
+        if (namesSize > Integer.MAX_VALUE)
+            throw new IOException("The instance names take " + namesSize + " bytes, more than the "
+                                  + Integer.MAX_VALUE + " bytes a " + TSDB_EXTENSION + " file can hold.");
+        int labelCount = dataSet.getLabelCount();
+        int dimensions = dataSet.getDimensions();
+        int namesTotal = (int) namesSize;
+        TSDWriter.atomically(tsdbFilePath, true, out -> {
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(count);
+            out.putInt(labelCount);
+            out.putInt(namesTotal);
+            out.putInt(dimensions);
+            for (int id = 0; id < labelCount; id++) {
+                String label = dataSet.getLabelName(id);
+                out.putInt(TSDWriter.utf8Length(label));
+                out.putUTF8(label);
+            }
+            int end = 0;
+            for (int i = 0; i < count; i++) {
+                end += TSDWriter.utf8Length(dataSet.getName(i));
+                out.putInt(end);
+            }
+            for (int i = 0; i < count; i++)
+                out.putUTF8(dataSet.getName(i));
+            double[] coordinates = dataSet.getCoordinates();
+            for (int i = 0; i < count * dimensions; i++)
+                out.putDouble(coordinates[i]);
+            for (int i = 0; i < count; i++)
+                out.putInt(dataSet.getLabelIds()[i]);
+            out.flush();
+            out.putLong(out.checksum());
+        });
+    }
+
+    /**
+     * Reads a <code>.tsdb</code> file into a new dataset.
+     *
+     * @throws IOException if the file cannot be read, is not a <code>.tsdb</code> file, or is corrupted
+     */
+    public static DataSet read(Path tsdbFilePath) throws IOException {
+        DataSet dataSet = new DataSet();
+        read(tsdbFilePath, dataSet);
+        return dataSet;
+    }
+
+    /**
+     * Reads a <code>.tsdb</code> file into the specified, empty, dataset.
+     *
+     * @see #read(Path)
+     */
+    public static void read(Path tsdbFilePath, DataSet dataSet) throws IOException {
+        String corrupted = tsdbFilePath.getFileName() + " is corrupted.";
+        try (FileChannel channel = FileChannel.open(tsdbFilePath, StandardOpenOption.READ)) {
+            Input in = new Input(channel);
+            if (in.getInt() != MAGIC)
+                throw new IOException(tsdbFilePath.getFileName() + " is not a " + TSDB_EXTENSION + " file.");
+            int version = in.getInt();
+            if (version != VERSION && version != XY_VERSION)
+                throw new IOException(tsdbFilePath.getFileName() + " was written by an unsupported version.");
+            int count      = in.getInt();
+            int labelCount = in.getInt();
+            int namesSize  = in.getInt();
+            int dimensions = version == XY_VERSION ? 2 : in.getInt();
+            // the columns are allocated before the checksum is checked, so the counts must at least fit in the file
+            if (count < 0 || labelCount < 0 || namesSize < 0 || dimensions < 2
+                || (long) count * (2 * Integer.BYTES + (long) dimensions * Double.BYTES) + namesSize > channel.size())
+                throw new IOException(corrupted);
+            if ((long) count * dimensions > MAX_ARRAY_SIZE)
+                throw new IOException(tsdbFilePath.getFileName() + " has too many coordinates to be read.");
+
+            String[] labels = new String[labelCount];
+            for (int id = 0; id < labelCount; id++)
+                labels[id] = in.getString(in.getInt());
+            int[] nameEnds = new int[count];
+            in.getInts(nameEnds, 0, count);
+            String[] names = new String[count];
+            int      start = 0;
+            for (int i = 0; i < count; i++) {
+                if (nameEnds[i] < start || nameEnds[i] > namesSize)
+                    throw new IOException(corrupted);
+                names[i] = in.getString(nameEnds[i] - start);
+                start = nameEnds[i];
+            }
+            if (start != namesSize)
+                throw new IOException(corrupted);
+            double[] coordinates = new double[count * dimensions];
+            if (version == XY_VERSION) {
+                double[] columns = new double[2 * count];
+                in.getDoubles(columns, 0, columns.length);
+                for (int i = 0; i < count; i++) {
+                    coordinates[2 * i] = columns[i];
+                    coordinates[2 * i + 1] = columns[count + i];
+                }
+            } else
+                in.getDoubles(coordinates, 0, coordinates.length);
+            int[] labelIds = new int[count];
+            in.getInts(labelIds, 0, count);
+            long checksum = in.checksum();
+            if (channel.size() != in.position() + Long.BYTES || in.getLong() != checksum)
+                throw new IOException(corrupted);
+
+            int[] ids = new int[labelCount];
+            for (int id = 0; id < labelCount; id++)
+                ids[id] = dataSet.labelId(labels[id]);
+            for (int i = 0; i < count; i++) {
+                if (labelIds[i] < 0 || labelIds[i] >= labelCount)
+                    throw new IOException(corrupted);
+                labelIds[i] = ids[labelIds[i]];
+            }
+            try {
+                dataSet.load(names, coordinates, dimensions, labelIds, count);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(corrupted, e);
+            }
+        }
+    }
+
+    /**
+     * Converts a <code>.tsd</code> file to a <code>.tsdb</code> file, or the other way around, depending on the name of
+     * the source file.
+     *
+     * @throws Exception if the source file cannot be read, or is not valid
+     */
+    public static void convert(Path source, Path target) throws Exception {
+        if (isBinary(source)) {
+            TSDWriter.writeText(read(source), target);
+        } else {
+            DataSet dataSet = new DataSet();
+            TSDParser.parse(source, dataSet::addInstance);
+            write(dataSet, target);
+        }
+    }
+
+    /**
+     * Converts between the two formats from the command line.
+     *
+     * @param args the source file and the target file
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: TSDBCodec <source" + TSD_EXTENSION + "|source" + TSDB_EXTENSION + "> <target>");
+            System.exit(1);
+        }
+        convert(Paths.get(args[0]), Paths.get(args[1]));
+    }
+
+    /**
+     * Reads a file from start to end through memory-mapped windows of at most {@link TSDParser#WINDOW_SIZE} bytes, so
+     * that no section has to fit in a single mapping, and sums the checksum of the bytes read so far. Columns are
+     * copied into arrays in bulk, from a view of each window.
+     */
+    private static final class Input {
+
+        private final FileChannel channel;
+        private final long        size;
+        private final CRC32       checksum = new CRC32();
+        private ByteBuffer        window   = ByteBuffer.allocate(0);
+        private long              windowPosition;
+        private int               summed;
+        private byte[]            bytes    = new byte[256];
+
+        Input(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        long position() {
+            return windowPosition + window.position();
+        }
+
+        int getInt() throws IOException {
+            require(Integer.BYTES);
+            return window.getInt();
+        }
+
+        long getLong() throws IOException {
+            require(Long.BYTES);
+            return window.getLong();
+        }
+
+        /** @return the string of the specified number of UTF-8 bytes */
+        String getString(int length) throws IOException {
+            if (length < 0 || length > TSDParser.WINDOW_SIZE)
+                throw new IOException("A string has an invalid length of " + length + " bytes.");
+            require(length);
+            if (bytes.length < length)
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            window.get(bytes, 0, length);
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        void getInts(int[] column, int from, int count) throws IOException {
+            while (count > 0) {
+                require(Integer.BYTES);
+                int n = Math.min(count, window.remaining() / Integer.BYTES);
+                window.asIntBuffer().get(column, from, n);
+                window.position(window.position() + n * Integer.BYTES);
+                from += n;
+                count -= n;
+            }
+        }
+
+        void getDoubles(double[] column, int from, int count) throws IOException {
+            while (count > 0) {
+                require(Double.BYTES);
+                int n = Math.min(count, window.remaining() / Double.BYTES);
+                window.asDoubleBuffer().get(column, from, n);
+                window.position(window.position() + n * Double.BYTES);
+                from += n;
+                count -= n;
+            }
+        }
+
+        /** @return the CRC-32 checksum of every byte read so far */
+        long checksum() {
+            sum();
+            return checksum.getValue();
+        }
+
+        /* maps the next window, starting at the current position, if fewer bytes than specified are left in this one */
+        private void require(int bytes) throws IOException {
+            if (window.remaining() >= bytes)
+                return;
+            long position = position();
+            if (position + bytes > size)
+                throw new IOException("Unexpected end of file.");
+            sum();
+            long length = Math.min(TSDParser.WINDOW_SIZE, size - position);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            windowPosition = position;
+            summed = 0;
+        }
+
+        /* adds the bytes of the window read since the last sum to the checksum */
+        private void sum() {
+            ByteBuffer read = window.duplicate();
+            read.limit(window.position()).position(summed);
+            checksum.update(read);
+            summed = window.position();
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package dataprocessors;
+
+import data.DataSet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The lines of <code>.tsd</code> data, as a piece table. The document starts from an unedited {@link LineSource}, e.g.,
+ * the memory-mapped file the data was loaded from, and every edit only appends the new lines to a separate buffer and
+ * splits the list of pieces that say which lines of the source and of the buffer make up the document. Nothing is
+ * copied from the source until a line is asked for, so opening a document costs one pass over the file to index its
+ * lines, and reading a line costs the same regardless of how long the document is.
+ * <p>
+ * A document is not thread-safe; it is meant to be used on the JavaFX application thread.
+ *
+ * @see AppData
+ */
+public final class TSDDocument implements Closeable {
+
+    /** The unedited lines a document starts from. */
+    public interface LineSource {
+        int lineCount();
+
+        String line(int i);
+    }
+
+    /** A run of consecutive lines, either of the source or of the buffer of added lines. */
+    private static final class Piece {
+
+        private final boolean added;
+        private final int     start;
+        private final int     count;
+
+        Piece(boolean added, int start, int count) {
+            this.added = added;
+            this.start = start;
+            this.count = count;
+        }
+    }
+
+    private static final LineSource EMPTY = new LineSource() {
+        @Override
+        public int lineCount()       { return 0; }
+
+        @Override
+        public String line(int i)    { throw new IndexOutOfBoundsException(); }
+    };
+
+    private final LineSource   source;
+    private final List<String> addedLines = new ArrayList<>();
+    private final List<Piece>  pieces     = new ArrayList<>();
+    private int                lineCount;
+
+    /** Creates an empty document. */
+    public TSDDocument() {
+        this(EMPTY);
+    }
+
+    public TSDDocument(LineSource source) {
+        this.source = source;
+        this.lineCount = source.lineCount();
+        if (lineCount > 0)
+            pieces.add(new Piece(false, 0, lineCount));
+    }
+
+    /**
+     * Opens a document on the lines of the specified <code>.tsd</code> file, which is memory-mapped rather than read.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    public static TSDDocument open(Path tsdFilePath) throws IOException {
+        return open(tsdFilePath, Long.MAX_VALUE);
+    }
+
+    /**
+     * Opens a document on the lines of the first bytes of the specified <code>.tsd</code> file, like
+     * {@link TSDParser#parse(Path, long, TSDParser.InstanceHandler, TSDValidator, ParseMonitor)}, so that the two
+     * have the same lines even if the file grows in between.
+     *
+     * @param size the number of bytes to open, which are all the bytes of the file if it has fewer
+     */
+    public static TSDDocument open(Path tsdFilePath, long size) throws IOException {
+        return new TSDDocument(new MappedLines(tsdFilePath, size));
+    }
+
+    /** Creates a document on the lines of the specified dataset, e.g., one that was read from a binary file. */
+    public static TSDDocument of(DataSet dataSet) {
+        int count = dataSet.size();
+        return new TSDDocument(new LineSource() {
+            @Override
+            public int lineCount()       { return count; }
+
+            @Override
+            public String line(int i)    { return dataSet.toTSDLine(i); }
+        });
+    }
+
+    public int lineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return the number of bytes of the file that the document was opened on, or 0 if it was not opened on a file
+     */
+    public long getSourceSize() {
+        return source instanceof MappedLines ? ((MappedLines) source).size : 0;
+    }
+
+    public String getLine(int i) {
+        if (i < 0 || i >= lineCount)
+            throw new IndexOutOfBoundsException("Line " + i + " of " + lineCount);
+        for (Piece piece : pieces) {
+            if (i < piece.count)
+                return piece.added ? addedLines.get(piece.start + i) : source.line(piece.start + i);
+            i -= piece.count;
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Replaces the lines from <code>from</code>, inclusive, up to <code>to</code>, exclusive, with the specified lines.
+     */
+    public void replace(int from, int to, List<String> lines) {
+        if (from < 0 || to < from || to > lineCount)
+            throw new IndexOutOfBoundsException("Lines " + from + " to " + to + " of " + lineCount);
+        int first = split(from);
+        int last  = split(to);
+        pieces.subList(first, last).clear();
+        if (!lines.isEmpty()) {
+            Piece previous = first > 0 ? pieces.get(first - 1) : null;
+            // lines added right after the previous added lines, e.g., by appending again and again, extend their piece
+            if (previous != null && previous.added && previous.start + previous.count == addedLines.size())
+                pieces.set(first - 1, new Piece(true, previous.start, previous.count + lines.size()));
+            else
+                pieces.add(first, new Piece(true, addedLines.size(), lines.size()));
+            addedLines.addAll(lines);
+        }
+        lineCount += lines.size() - (to - from);
+    }
+
+    /** @return a read-only view of the lines; iterating over it reads the pieces in order */
+    public List<String> lines() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) { return getLine(index); }
+
+            @Override
+            public int size()            { return lineCount; }
+
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private int piece;
+                    private int offset;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (piece < pieces.size() && offset == pieces.get(piece).count) {
+                            piece++;
+                            offset = 0;
+                        }
+                        return piece < pieces.size();
+                    }
+
+                    @Override
+                    public String next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        Piece current = pieces.get(piece);
+                        int   i       = current.start + offset++;
+                        return current.added ? addedLines.get(i) : source.line(i);
+                    }
+                };
+            }
+        };
+    }
+
+    /** Writes every line, each followed by a new line. */
+    public void writeTo(Writer writer) throws IOException {
+        for (String line : lines()) {
+            writer.write(line);
+            writer.write('\n');
+        }
+    }
+
+    /** Releases the file the document was opened on, if any. */
+    @Override
+    public void close() throws IOException {
+        if (source instanceof Closeable)
+            ((Closeable) source).close();
+    }
+
+    /**
+     * Makes sure that a piece starts at the specified line.
+     *
+     * @return the index of that piece, or the number of pieces if the line is the end of the document
+     */
+    private int split(int line) {
+        for (int p = 0; p < pieces.size(); p++) {
+            Piece piece = pieces.get(p);
+            if (line == 0)
+                return p;
+            if (line < piece.count) {
+                pieces.set(p, new Piece(piece.added, piece.start, line));
+                pieces.add(p + 1, new Piece(piece.added, piece.start + line, piece.count - line));
+                return p + 1;
+            }
+            line -= piece.count;
+        }
+        return pieces.size();
+    }
+
+    /**
+     * The lines of a memory-mapped file. The offset of every {@link #STRIDE}-th line is indexed when the file is
+     * opened, so a line is found by scanning at most that many lines from the nearest indexed one. Reading the lines in
+     * order continues from the end of the previous line instead.
+     */
+    private static final class MappedLines implements LineSource, Closeable {
+
+        private static final int STRIDE = 64;
+
+        private final FileChannel        channel;
+        private final long               size;
+        private final MappedByteBuffer[] windows;
+        private long[]                   index = new long[16];
+        private int                      lineCount;
+        private byte[]                   scratch = new byte[64];
+        private int                      lastLine = -1;
+        private long                     lastEnd;
+
+        MappedLines(Path path, long limit) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                size = Math.min(channel.size(), limit);
+                windows = new MappedByteBuffer[(int) ((size + TSDParser.WINDOW_SIZE - 1) / TSDParser.WINDOW_SIZE)];
+                for (int w = 0; w < windows.length; w++) {
+                    long start = w * TSDParser.WINDOW_SIZE;
+                    windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                                             Math.min(TSDParser.WINDOW_SIZE, size - start));
+                }
+                indexLines();
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private void indexLines() {
+            long lineStart = 0;
+            for (int w = 0; w < windows.length; w++) {
+                MappedByteBuffer window = windows[w];
+                for (int i = 0; i < window.limit(); i++) {
+                    if (window.get(i) == '\n') {
+                        addLine(lineStart);
+                        lineStart = w * TSDParser.WINDOW_SIZE + i + 1;
+                    }
+                }
+            }
+            if (lineStart < size)
+                addLine(lineStart);
+        }
+
+        private void addLine(long start) {
+            if (lineCount % STRIDE == 0) {
+                int slot = lineCount / STRIDE;
+                if (slot == index.length)
+                    index = Arrays.copyOf(index, slot * 2);
+                index[slot] = start;
+            }
+            lineCount++;
+        }
+
+        @Override
+        public int lineCount() {
+            return lineCount;
+        }
+
+        @Override
+        public String line(int i) {
+            long start;
+            if (i == lastLine + 1 && lastLine >= 0)
+                start = lastEnd + 1;
+            else {
+                start = index[i / STRIDE];
+                for (int skip = i % STRIDE; skip > 0; skip--)
+                    start = endOf(start) + 1;
+            }
+            long end = endOf(start);
+            lastLine = i;
+            lastEnd = end;
+            if (end > start && byteAt(end - 1) == '\r')
+                end--;
+            int length = (int) (end - start);
+            if (scratch.length < length)
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            for (int b = 0; b < length; b++)
+                scratch[b] = byteAt(start + b);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /** @return the position of the new line that ends the line starting at the specified position */
+        private long endOf(long start) {
+            long position = start;
+            while (position < size && byteAt(position) != '\n')
+                position++;
+            return position;
+        }
+
+        private byte byteAt(long position) {
+            return windows[(int) (position / TSDParser.WINDOW_SIZE)].get((int) (position % TSDParser.WINDOW_SIZE));
+        }
+
+        @Override
+        public void close() throws IOException {
+            Arrays.fill(windows, null);
+            channel.close();
+        }
+    }
+}
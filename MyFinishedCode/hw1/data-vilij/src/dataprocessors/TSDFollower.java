@@ -0,0 +1,238 @@
+package dataprocessors;
+
+import data.DataSet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Follows a <code>.tsd</code> file that other programs keep appending to. The directory of the file is watched by a
+ * {@link WatchService} on a daemon thread, and whenever the file grows, only the bytes appended since the last offset
+ * are read, split into lines and parsed on that thread, so an update costs time in proportion to the new data rather
+ * than to the whole file. Only complete lines are read; a line that is still being written is read once its new line
+ * has been written too.
+ * <p>
+ * A file that shrinks, or that is replaced by another file, e.g., by an atomic save, has been rewritten rather than
+ * appended to. The listener is then told to load it again, and the follower stops. The same goes for a file that grows
+ * after a last line without a new line was read, as that line has changed; data loaded to be followed therefore stops
+ * at its last complete line, and the follower reads the rest.
+ *
+ * @see AppData#follow(Runnable)
+ */
+public final class TSDFollower implements Closeable {
+
+    /** Receives the changes of a followed file. Both methods are called on the thread that watches the file. */
+    public interface Listener {
+        void appended(Appended appended);
+
+        /** Called once the file has been rewritten, after which the follower has stopped. */
+        void rewritten();
+    }
+
+    /** The complete lines appended to a followed file since the previous change, already parsed. */
+    public static final class Appended {
+
+        private final int                             firstLine;
+        private final int                             blankLineBefore;
+        private final List<String>                    lines;
+        private final List<IncrementalTSDParser.Line> parsed;
+
+        Appended(int firstLine, int blankLineBefore, List<String> lines) {
+            this.firstLine = firstLine;
+            this.blankLineBefore = blankLineBefore;
+            this.lines = Collections.unmodifiableList(lines);
+            this.parsed = new ArrayList<>(lines.size());
+            for (String line : lines)
+                parsed.add(new IncrementalTSDParser.Line(line));
+        }
+
+        /** @return the number of lines of the file before the appended ones */
+        public int getFirstLine()       { return firstLine; }
+
+        public List<String> getLines()  { return lines; }
+
+        /**
+         * Adds the instances of the valid new lines to the specified dataset, and reports the errors of the others,
+         * numbered as lines of the whole file, to the specified validator. The errors are those that parsing the whole
+         * file would give: a name that is already in the dataset is a duplicate, and every instance needs as many
+         * coordinates as those in the dataset.
+         */
+        public void addTo(DataSet dataSet, TSDValidator validator) {
+            int pendingBlankLine = blankLineBefore;
+            if (dataSet.size() > 0)
+                validator.expectDimensions(dataSet.getDimensions());
+            for (int i = 0; i < parsed.size() && !validator.shouldStop(); i++) {
+                IncrementalTSDParser.Line line   = parsed.get(i);
+                int                       number = firstLine + i + 1;
+                // like TSDParser, only the last of several blank lines in a row is reported, when more data follows it
+                if (line.blank) {
+                    pendingBlankLine = number;
+                    continue;
+                }
+                if (pendingBlankLine > 0) {
+                    validator.error(pendingBlankLine, 1, new TSDProcessor.InvalidDataNameException("").getMessage());
+                    pendingBlankLine = 0;
+                }
+                if (line.error != null)
+                    validator.error(number, line.error.getColumn(), line.error.getMessage());
+                else if (validator.checkDimensions(line.coordinates.length, number)) {
+                    if (dataSet.indexOf(line.name) >= 0)
+                        validator.error(number, 1, TSDValidator.DUPLICATE_NAME);
+                    else
+                        dataSet.addInstance(line.name, line.label, line.coordinates);
+                }
+            }
+        }
+    }
+
+    private final Path         path;
+    private final Listener     listener;
+    private final WatchService watcher;
+    private final Object       fileKey;
+    private long               offset;
+    private int                lineCount;
+    private int                pendingBlankLine;
+    private boolean            partialLastLine;
+
+    /**
+     * Starts following the specified file, of which the first <code>offset</code> bytes, in <code>lineCount</code>
+     * lines, have been read already.
+     *
+     * @throws IOException if the file or its directory cannot be watched
+     */
+    public TSDFollower(Path tsdFilePath, long offset, int lineCount, Listener listener) throws IOException {
+        this.path = tsdFilePath.toAbsolutePath().normalize();
+        this.listener = listener;
+        this.offset = offset;
+        this.lineCount = lineCount;
+        this.fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        if (offset > 0) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                channel.read(last, offset - 1);
+                // the last line read so far had no new line, so anything appended would have changed it
+                partialLastLine = last.get(0) != '\n';
+            }
+        }
+        watcher = path.getFileSystem().newWatchService();
+        try {
+            path.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                                      StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            watcher.close();
+            throw e;
+        }
+        Thread thread = new Thread(this::watch, "Following " + path.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Stops following the file. */
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+    }
+
+    private void watch() {
+        try {
+            // the file may have changed before it was watched
+            if (!poll())
+                return;
+            while (true) {
+                WatchKey key     = watcher.take();
+                boolean  changed = false;
+                for (WatchEvent<?> event : key.pollEvents())
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                               || path.getFileName().equals(event.context());
+                if (changed && !poll())
+                    return;
+                if (!key.reset())
+                    return;
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // the follower was closed
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Reads whatever has been appended to the file since the last offset.
+     *
+     * @return <code>false</code> if the file has been rewritten, in which case the follower has stopped
+     */
+    private boolean poll() throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return true; // it may be about to be replaced, which is seen when it is created again
+        }
+        boolean rewritten = !Objects.equals(attributes.fileKey(), fileKey) || attributes.size() < offset
+                            || partialLastLine && attributes.size() > offset;
+        if (rewritten) {
+            watcher.close();
+            listener.rewritten();
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            while (offset < size) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size - offset, TSDParser.WINDOW_SIZE));
+                while (buffer.hasRemaining())
+                    if (channel.read(buffer, offset + buffer.position()) < 0)
+                        break;
+                int consumed = split(buffer.array(), buffer.position());
+                if (consumed == 0) {
+                    if (buffer.capacity() == TSDParser.WINDOW_SIZE)
+                        throw new IOException("Line " + (lineCount + 1) + " is longer than " + TSDParser.WINDOW_SIZE
+                                              + " bytes.");
+                    break; // the last line is not complete yet
+                }
+                offset += consumed;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hands the complete lines in the specified bytes to the listener.
+     *
+     * @return the number of bytes of those lines, including their new lines
+     */
+    private int split(byte[] bytes, int length) {
+        List<String> lines     = new ArrayList<>();
+        int          lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == '\n') {
+                int end = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+                lines.add(new String(bytes, lineStart, end - lineStart, StandardCharsets.UTF_8));
+                lineStart = i + 1;
+            }
+        }
+        if (lines.isEmpty())
+            return 0;
+        Appended appended = new Appended(lineCount, pendingBlankLine, lines);
+        lineCount += lines.size();
+        pendingBlankLine = lines.get(lines.size() - 1).isEmpty() ? lineCount : 0;
+        listener.appended(appended);
+        return lineStart;
+    }
+}
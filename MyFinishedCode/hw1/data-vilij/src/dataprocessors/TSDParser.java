@@ -0,0 +1,587 @@
+package dataprocessors;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reads <code>.tsd</code> files through memory-mapped windows of a {@link FileChannel}. Every line is decoded straight
+ * from the mapped bytes: only the instance name and label become {@link String} objects, the coordinates are decoded
+ * by the {@link CoordinateParser}, and no line strings or intermediate split arrays are created. This keeps the heap
+ * footprint of a load close to the size of the resulting data, regardless of how big the file is.
+ * <p>
+ * Large inputs are split into byte ranges that end on a new line, and the ranges are parsed in parallel on the
+ * fork-join common pool. The decoded instances are then handed to the {@link InstanceHandler} on the calling thread,
+ * in file order, so the handler never has to be thread-safe and sees exactly what a sequential parse would give it.
+ * <p>
+ * Every problem in the data is reported to a {@link TSDValidator}, which also checks that instance names are unique,
+ * and that every instance has as many comma-separated coordinates, at least two, as the first one.
+ * Once the whole input has been read, the parser throws a {@link TSDValidator.InvalidDataException} listing the errors,
+ * if there were any.
+ * <p>
+ * A {@link ParseMonitor} can follow the progress of a long parse, and cancel it.
+ *
+ * @see TSDProcessor
+ * @see TSDValidator
+ */
+public final class TSDParser {
+
+    /**
+     * Receives every instance decoded by the parser, in file order. The array of coordinates is reused by the parser,
+     * so a handler that keeps them must copy them.
+     */
+    public interface InstanceHandler {
+        void instance(String name, String label, double[] coordinates) throws Exception;
+    }
+
+    /** Size of each mapped region of the file. A single line must fit in one window. */
+    static final long WINDOW_SIZE = 64L << 20;
+
+    /** Inputs smaller than this are parsed on the calling thread, since splitting them is not worth it. */
+    static final long PARALLEL_THRESHOLD = 8L << 20;
+
+    /** Smallest byte range handed to a single fork-join task. */
+    static final long MIN_CHUNK_SIZE = 1L << 20;
+
+    /** The number of lines parsed between two reports to the {@link ParseMonitor}. */
+    static final int REPORT_INTERVAL = 1 << 14;
+
+    private static final String MISSING_NUMBER = "There is a missing number.";
+
+    private final InstanceHandler handler;
+    private final TSDValidator    validator;
+    private final boolean         wholeInput;
+    private final ParseMonitor    monitor;
+    private byte[]                scratch = new byte[64];
+    private double[]              values  = new double[4];
+    private double[]              point   = new double[2];
+    private int                   lineNumber;
+    private int                   pendingBlankLine;
+    private boolean               hadContent;
+    private int                   reportedLines;
+    private int                   reportedErrors;
+    private NameFingerprints      fingerprints;
+    private long                  windowPosition;
+
+    private TSDParser(InstanceHandler handler, TSDValidator validator, boolean wholeInput) {
+        this(handler, validator, wholeInput, ParseMonitor.NONE);
+    }
+
+    /**
+     * @param wholeInput whether the parser sees all lines of the input, and so checks that the names are unique and
+     *                   that every instance has as many coordinates as the first one
+     */
+    private TSDParser(InstanceHandler handler, TSDValidator validator, boolean wholeInput, ParseMonitor monitor) {
+        this.handler = handler;
+        this.validator = validator;
+        this.wholeInput = wholeInput;
+        this.monitor = monitor;
+    }
+
+    /**
+     * Parses the specified <code>.tsd</code> file, handing every valid instance to the handler. Files of at least
+     * {@link #PARALLEL_THRESHOLD} bytes are parsed in parallel.
+     *
+     * @param tsdFilePath the file to parse
+     * @param handler     the receiver of the decoded instances
+     * @return the number of lines in the file
+     * @throws IOException                       if the file cannot be read
+     * @throws TSDValidator.InvalidDataException if the file does not follow the <code>.tsd</code> data format; valid
+     *                                           lines have still been handed to the handler
+     */
+    public static int parse(Path tsdFilePath, InstanceHandler handler) throws Exception {
+        return parse(tsdFilePath, handler, new TSDValidator());
+    }
+
+    /**
+     * Parses the specified <code>.tsd</code> file, reporting every problem to the specified validator.
+     *
+     * @see #parse(Path, InstanceHandler)
+     */
+    public static int parse(Path tsdFilePath, InstanceHandler handler, TSDValidator validator) throws Exception {
+        return parse(tsdFilePath, handler, validator, tsdFilePath.toFile().length() >= PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Parses the specified <code>.tsd</code> file, reporting every problem to the specified validator.
+     *
+     * @param parallel whether to split the file into byte ranges and parse them on all cores
+     * @see #parse(Path, InstanceHandler)
+     */
+    public static int parse(Path tsdFilePath, InstanceHandler handler, TSDValidator validator, boolean parallel)
+            throws Exception {
+        return parse(tsdFilePath, handler, validator, parallel, ParseMonitor.NONE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Parses the specified <code>.tsd</code> file, reporting every problem to the specified validator and the progress
+     * to the specified monitor.
+     *
+     * @throws java.util.concurrent.CancellationException if the monitor cancels the parse
+     * @see #parse(Path, InstanceHandler)
+     */
+    public static int parse(Path tsdFilePath, InstanceHandler handler, TSDValidator validator, ParseMonitor monitor)
+            throws Exception {
+        return parse(tsdFilePath, Long.MAX_VALUE, handler, validator, monitor);
+    }
+
+    /**
+     * Parses the first bytes of the specified <code>.tsd</code> file, and nothing that has been appended after them,
+     * e.g., the bytes that a file still being written had when its size was taken.
+     *
+     * @param size the number of bytes to parse, which are all the bytes of the file if it has fewer
+     * @see #parse(Path, InstanceHandler, TSDValidator, ParseMonitor)
+     */
+    public static int parse(Path tsdFilePath, long size, InstanceHandler handler, TSDValidator validator,
+                            ParseMonitor monitor) throws Exception {
+        boolean parallel = Math.min(size, tsdFilePath.toFile().length()) >= PARALLEL_THRESHOLD;
+        return parse(tsdFilePath, handler, validator, parallel, monitor, size);
+    }
+
+    /**
+     * @return the number of bytes of the specified file up to and including its last new line, i.e., the size of its
+     *         complete lines, leaving out a last line that may still be being written
+     */
+    public static long completeLinesSize(Path tsdFilePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(tsdFilePath, StandardOpenOption.READ)) {
+            ByteBuffer block = ByteBuffer.allocate(4096);
+            for (long end = channel.size(); end > 0; end -= block.capacity()) {
+                long start = Math.max(0, end - block.capacity());
+                block.clear();
+                block.limit((int) (end - start));
+                while (block.hasRemaining())
+                    if (channel.read(block, start + block.position()) < 0)
+                        break;
+                for (int i = block.position() - 1; i >= 0; i--)
+                    if (block.get(i) == '\n')
+                        return start + i + 1;
+            }
+            return 0;
+        }
+    }
+
+    private static int parse(Path tsdFilePath, InstanceHandler handler, TSDValidator validator, boolean parallel,
+                             ParseMonitor monitor, long limit) throws Exception {
+        try (FileChannel channel = FileChannel.open(tsdFilePath, StandardOpenOption.READ)) {
+            long size = Math.min(channel.size(), limit);
+            if (!parallel || size < 2 * MIN_CHUNK_SIZE) {
+                TSDParser parser = new TSDParser(handler, validator, true, monitor);
+                parser.parse(channel, 0, size);
+                return parser.finish();
+            }
+            long[]      boundaries = boundaries(channel, size);
+            List<Chunk> chunks     = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.length; i++) {
+                long start = boundaries[i];
+                long end   = boundaries[i + 1];
+                chunks.add(new Chunk(validator, monitor, parser -> parser.parse(channel, start, end)));
+            }
+            return merge(chunks, handler, validator);
+        }
+    }
+
+    /**
+     * Checks that the specified <code>.tsd</code> file is valid, without keeping any of its data. The file is read
+     * sequentially, and the only thing kept is a {@link NameFingerprints fingerprint} and the position of each instance
+     * name, to find duplicates, so the memory used is a few dozen bytes per line, however long the lines are. The
+     * errors are the same, with the same messages, as those of a full parse.
+     *
+     * @return the number of lines in the file
+     * @throws IOException                       if the file cannot be read, or has more than
+     *                                           {@link NameFingerprints#MAX_NAMES} instances
+     * @throws TSDValidator.InvalidDataException if the file does not follow the <code>.tsd</code> data format
+     */
+    public static int validate(Path tsdFilePath, TSDValidator validator) throws Exception {
+        return validate(tsdFilePath, validator, ParseMonitor.NONE);
+    }
+
+    /**
+     * Checks that the specified <code>.tsd</code> file is valid, reporting the progress to the specified monitor.
+     *
+     * @throws java.util.concurrent.CancellationException if the monitor cancels the check
+     * @see #validate(Path, TSDValidator)
+     */
+    public static int validate(Path tsdFilePath, TSDValidator validator, ParseMonitor monitor) throws Exception {
+        try (FileChannel channel = FileChannel.open(tsdFilePath, StandardOpenOption.READ)) {
+            long      size   = channel.size();
+            TSDParser parser = new TSDParser(null, validator, true, monitor);
+            parser.fingerprints = new NameFingerprints(channel);
+            try {
+                parser.parse(channel, 0, size);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return parser.finish();
+        }
+    }
+
+    /**
+     * Parses <code>.tsd</code> data that is already in memory, handing every valid instance to the handler. Inputs of
+     * at least {@link #PARALLEL_THRESHOLD} bytes are parsed in parallel.
+     *
+     * @param tsdString the data to parse
+     * @param handler   the receiver of the decoded instances
+     * @return the number of lines in the data
+     * @throws TSDValidator.InvalidDataException if the data does not follow the <code>.tsd</code> data format; valid
+     *                                           lines have still been handed to the handler
+     */
+    public static int parse(String tsdString, InstanceHandler handler) throws Exception {
+        return parse(tsdString, handler, new TSDValidator());
+    }
+
+    /**
+     * Parses <code>.tsd</code> data that is already in memory, reporting every problem to the specified validator.
+     *
+     * @see #parse(String, InstanceHandler)
+     */
+    public static int parse(String tsdString, InstanceHandler handler, TSDValidator validator) throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(tsdString.getBytes(StandardCharsets.UTF_8));
+        int        size   = buffer.limit();
+        if (size < PARALLEL_THRESHOLD) {
+            TSDParser parser = new TSDParser(handler, validator, true);
+            parser.parse(buffer, 0, size, true);
+            return parser.finish();
+        }
+        List<Integer> boundaries = new ArrayList<>();
+        boundaries.add(0);
+        long chunkSize = chunkSize(size);
+        for (int position = (int) chunkSize; position < size; position += chunkSize) {
+            while (position < size && buffer.get(position - 1) != '\n')
+                position++;
+            if (position < size)
+                boundaries.add(position);
+        }
+        boundaries.add(size);
+        List<Chunk> chunks = new ArrayList<>();
+        for (int i = 0; i + 1 < boundaries.size(); i++) {
+            int from = boundaries.get(i);
+            int to   = boundaries.get(i + 1);
+            chunks.add(new Chunk(validator, ParseMonitor.NONE, parser -> parser.parse(buffer, from, to, true)));
+        }
+        return merge(chunks, handler, validator);
+    }
+
+    /**
+     * Parses a single line on its own, without the new line. Errors are reported on line 1, blank lines are not
+     * reported at all, and neither the name nor the number of coordinates is compared with those of other lines.
+     *
+     * @see IncrementalTSDParser
+     */
+    static void parseLine(String line, InstanceHandler handler, TSDValidator validator) {
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        new TSDParser(handler, validator, false).parseLine(buffer, 0, buffer.limit());
+    }
+
+    private static long chunkSize(long size) {
+        int tasks = Runtime.getRuntime().availableProcessors() * 4;
+        return Math.max(MIN_CHUNK_SIZE, size / tasks + 1);
+    }
+
+    /** Splits the file into byte ranges whose every start, except the first, directly follows a new line. */
+    private static long[] boundaries(FileChannel channel, long size) throws IOException {
+        long       chunkSize  = chunkSize(size);
+        List<Long> boundaries = new ArrayList<>();
+        ByteBuffer probe      = ByteBuffer.allocate(4096);
+        boundaries.add(0L);
+        long position = chunkSize;
+        while (position < size) {
+            long newLine = -1;
+            for (long at = position - 1; newLine < 0 && at < size; at += probe.capacity()) {
+                probe.clear();
+                int read = channel.read(probe, at);
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        newLine = at + i;
+                        break;
+                    }
+                }
+            }
+            if (newLine < 0 || newLine + 1 >= size)
+                break;
+            boundaries.add(newLine + 1);
+            position = newLine + 1 + chunkSize;
+        }
+        boundaries.add(size);
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = boundaries.get(i);
+        return result;
+    }
+
+    /**
+     * Parses all chunks in parallel, then hands their instances to the handler in order. Line numbers that the chunks
+     * count from their own start are shifted by the number of lines in all earlier chunks, so that errors point to
+     * the exact line of the whole input. Names are only checked for duplicates, and coordinates for their number, here,
+     * where all chunks are seen.
+     */
+    private static int merge(List<Chunk> chunks, InstanceHandler handler, TSDValidator validator) throws Exception {
+        ForkJoinTask.invokeAll(chunks);
+        TSDParser merged     = new TSDParser(handler, validator, true);
+        int       lineOffset = 0;
+        for (Chunk chunk : chunks) {
+            if (chunk.failure != null)
+                throw chunk.failure;
+            TSDParser parser = chunk.parser;
+            if (merged.pendingBlankLine > 0 && parser.hadContent) {
+                merged.blankLineError(merged.pendingBlankLine);
+                merged.pendingBlankLine = 0;
+            }
+            List<TSDValidator.LineError> errors = chunk.validator.getErrors();
+            int                          next   = 0;
+            int                          start  = 0;
+            for (int i = 0; i < chunk.size && !validator.shouldStop(); i++) {
+                for (; next < errors.size() && errors.get(next).getLine() < chunk.lines[i]; next++)
+                    merged.error(lineOffset, errors.get(next));
+                int line       = lineOffset + chunk.lines[i];
+                int dimensions = chunk.ends[i] - start;
+                if (!validator.shouldStop() && validator.checkDimensions(dimensions, line)
+                    && validator.checkName(chunk.names.get(i), line))
+                    merged.handle(chunk.names.get(i), chunk.labels.get(i),
+                                  merged.point(chunk.coordinates, start, dimensions), line);
+                start = chunk.ends[i];
+            }
+            for (; next < errors.size() && !validator.shouldStop(); next++)
+                merged.error(lineOffset, errors.get(next));
+            validator.suppressed(chunk.validator.getErrorCount() - errors.size());
+            if (validator.shouldStop())
+                break;
+            if (parser.pendingBlankLine > 0)
+                merged.pendingBlankLine = lineOffset + parser.pendingBlankLine;
+            else if (parser.hadContent)
+                merged.pendingBlankLine = 0;
+            lineOffset += parser.lineNumber;
+        }
+        merged.lineNumber = lineOffset;
+        return merged.finish();
+    }
+
+    private int finish() throws Exception {
+        validator.check();
+        return lineNumber;
+    }
+
+    private void parse(FileChannel channel, long start, long end) throws IOException {
+        long position = start;
+        while (position < end) {
+            windowPosition = position;
+            long       length     = Math.min(WINDOW_SIZE, end - position);
+            boolean    lastWindow = position + length == end;
+            ByteBuffer window     = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int        consumed   = parse(window, 0, (int) length, lastWindow);
+            if (validator.shouldStop())
+                return;
+            if (consumed == 0)
+                throw new IOException("Line " + (lineNumber + 1) + " is longer than " + WINDOW_SIZE + " bytes.");
+            position += consumed;
+        }
+    }
+
+    /**
+     * Parses the complete lines in the specified range of the buffer.
+     *
+     * @param last whether the range ends the input, in which case a final line without a new line is parsed too
+     * @return the number of bytes consumed
+     */
+    private int parse(ByteBuffer buffer, int from, int to, boolean last) {
+        int lineStart  = from;
+        int reportedAt = from;
+        for (int i = from; i < to && !validator.shouldStop(); i++) {
+            if (buffer.get(i) == '\n') {
+                parseLine(buffer, lineStart, i);
+                lineStart = i + 1;
+                if (lineNumber - reportedLines >= REPORT_INTERVAL) {
+                    report(lineStart - reportedAt);
+                    reportedAt = lineStart;
+                }
+            }
+        }
+        if (last && lineStart < to && !validator.shouldStop()) {
+            parseLine(buffer, lineStart, to);
+            lineStart = to;
+        }
+        report(lineStart - reportedAt);
+        return lineStart - from;
+    }
+
+    /**
+     * Tells the monitor how far the parse has come since the last report.
+     *
+     * @throws CancellationException if the monitor cancels the parse
+     */
+    private void report(long bytes) {
+        int errors = validator.getErrorCount();
+        monitor.advance(bytes, lineNumber - reportedLines, errors - reportedErrors);
+        reportedLines = lineNumber;
+        reportedErrors = errors;
+        if (monitor.isCancelled())
+            throw new CancellationException();
+    }
+
+    private void parseLine(ByteBuffer buffer, int from, int to) {
+        lineNumber++;
+        if (to > from && buffer.get(to - 1) == '\r')
+            to--;
+        // blank lines only count as errors when more data follows them, just like String.split drops trailing ones
+        if (to == from) {
+            pendingBlankLine = lineNumber;
+            return;
+        }
+        hadContent = true;
+        if (pendingBlankLine > 0) {
+            blankLineError(pendingBlankLine);
+            pendingBlankLine = 0;
+        }
+        int nameEnd = indexOf(buffer, '\t', from, to);
+        if (buffer.get(from) != '@') {
+            validator.error(lineNumber, 1,
+                            new TSDProcessor.InvalidDataNameException(decode(buffer, from, nameEnd)).getMessage());
+            return;
+        }
+        int labelEnd = nameEnd == to ? to : indexOf(buffer, '\t', nameEnd + 1, to);
+        if (labelEnd == to) {
+            validator.error(lineNumber, to - from + 1, MISSING_NUMBER);
+            return;
+        }
+        int coordinatesStart = labelEnd + 1;
+        int coordinatesEnd   = indexOf(buffer, '\t', coordinatesStart, to);
+        if (indexOf(buffer, ',', coordinatesStart, coordinatesEnd) == coordinatesEnd) {
+            validator.error(lineNumber, coordinatesEnd - from + 1, MISSING_NUMBER);
+            return;
+        }
+        int dimensions = 0;
+        for (int start = coordinatesStart; start <= coordinatesEnd; dimensions++) {
+            int end = indexOf(buffer, ',', start, coordinatesEnd);
+            if (dimensions == values.length)
+                values = Arrays.copyOf(values, dimensions * 2);
+            try {
+                values[dimensions] = CoordinateParser.parse(buffer, start, end);
+            } catch (NumberFormatException e) {
+                validator.error(lineNumber, start - from + 1, e.getMessage());
+                return;
+            }
+            start = end + 1;
+        }
+        if (wholeInput && !validator.checkDimensions(dimensions, lineNumber))
+            return;
+        if (fingerprints != null) {
+            boolean added;
+            try {
+                added = fingerprints.add(buffer, from, nameEnd, windowPosition + from);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (!added)
+                validator.error(lineNumber, 1, TSDValidator.DUPLICATE_NAME);
+            return;
+        }
+        String name  = decode(buffer, from, nameEnd);
+        String label = decode(buffer, nameEnd + 1, labelEnd);
+        if (!wholeInput || validator.checkName(name, lineNumber))
+            handle(name, label, point(values, 0, dimensions), lineNumber);
+    }
+
+    private void handle(String name, String label, double[] coordinates, int line) {
+        try {
+            handler.instance(name, label, coordinates);
+        } catch (Exception e) {
+            validator.error(line, 1, e.getMessage());
+        }
+    }
+
+    /** @return the specified coordinates, copied into an array of their own length that is reused for the next ones */
+    private double[] point(double[] values, int from, int dimensions) {
+        if (point.length != dimensions)
+            point = new double[dimensions];
+        System.arraycopy(values, from, point, 0, dimensions);
+        return point;
+    }
+
+    private void blankLineError(int line) {
+        validator.error(line, 1, new TSDProcessor.InvalidDataNameException("").getMessage());
+    }
+
+    /** Reports an error found by a chunk, whose line is counted from the start of the chunk. */
+    private void error(int lineOffset, TSDValidator.LineError error) {
+        validator.error(lineOffset + error.getLine(), error.getColumn(), error.getMessage());
+    }
+
+    private static int indexOf(ByteBuffer buffer, char c, int from, int to) {
+        for (int i = from; i < to; i++)
+            if (buffer.get(i) == c)
+                return i;
+        return to;
+    }
+
+    private String decode(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        if (scratch.length < length)
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        for (int i = 0; i < length; i++)
+            scratch[i] = buffer.get(from + i);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private interface ChunkBody {
+        void parse(TSDParser parser) throws IOException;
+    }
+
+    /**
+     * A byte range of the input, parsed on its own into columns that are merged once all chunks are done. The chunk
+     * keeps its own errors, under the same cap and fail-fast setting as the validator of the whole input.
+     */
+    private static final class Chunk extends RecursiveAction implements InstanceHandler {
+
+        private final ChunkBody    body;
+        private final TSDValidator validator;
+        private final TSDParser    parser;
+        private final List<String> names       = new ArrayList<>();
+        private final List<String> labels      = new ArrayList<>();
+        private double[]           coordinates = new double[2048];
+        private int[]              ends        = new int[1024];
+        private int[]              lines       = new int[1024];
+        private int                size;
+        private IOException        failure;
+
+        Chunk(TSDValidator inputValidator, ParseMonitor monitor, ChunkBody body) {
+            this.body = body;
+            this.validator = new TSDValidator(inputValidator.getMaxErrors(), inputValidator.isFailFast());
+            this.parser = new TSDParser(this, validator, false, monitor);
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                body.parse(parser);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        @Override
+        public void instance(String name, String label, double[] point) {
+            int start = size == 0 ? 0 : ends[size - 1];
+            if (size == ends.length) {
+                ends = Arrays.copyOf(ends, size * 2);
+                lines = Arrays.copyOf(lines, size * 2);
+            }
+            if (start + point.length > coordinates.length)
+                coordinates = Arrays.copyOf(coordinates, Math.max(coordinates.length * 2, start + point.length));
+            names.add(name);
+            labels.add(label);
+            System.arraycopy(point, 0, coordinates, start, point.length);
+            ends[size] = start + point.length;
+            lines[size] = parser.lineNumber;
+            size++;
+        }
+    }
+}
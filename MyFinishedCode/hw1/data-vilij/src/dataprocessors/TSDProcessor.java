@@ -3,23 +3,27 @@ package dataprocessors;
 import algorithms.Algorithm;
 import algorithms.Classifier;
 import classification.RandomClassifier;
+import data.DataSet;
+import data.PointIndex;
 import javafx.geometry.Point2D;
 import javafx.scene.ImageCursor;
+import javafx.scene.Node;
 import javafx.scene.chart.XYChart;
+import javafx.scene.control.Label;
 import javafx.scene.control.Tooltip;
 import javafx.scene.image.Image;
 import ui.AppUI;
+import ui.Palette;
 
 import java.lang.reflect.Array;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
 
 /**
  * The data files used by this data visualization applications follow a tab-separated format, where each data point is
- * named, labeled, and has a specific location in the 2-dimensional X-Y plane. This class handles the parsing and
- * processing of such data. It also handles exporting the data to a 2-D plot.
+ * named, labeled, and has a specific location given by two or more comma-separated coordinates, the same number for
+ * every point. This class handles the parsing and processing of such data. It also handles exporting the data to a 2-D
+ * plot, which shows the projection of the points onto the plane of two chosen dimensions, by default the first two.
  * <p>
  * A sample file in this format has been provided in the application's <code>resources/data</code> folder.
  *
@@ -38,146 +42,284 @@ public final class TSDProcessor {
     }
 
     public Map<String, String> getDataLabels() {
-        return dataLabels;
+        return dataSet.getLabels();
     }
 
-    public void setDataLabels(Map<String, String> dataLabels) {
-        this.dataLabels = dataLabels;
+    public Map<String, Point2D> getDataPoints() {
+        return dataSet.getLocations();
     }
 
-    public Map<String, Point2D> getDataPoints() {
-        return dataPoints;
+    public DataSet getDataSet() {
+        return dataSet;
     }
 
-    public void setDataPoints(Map<String, Point2D> dataPoints) {
-        this.dataPoints = dataPoints;
+    public void setDataSet(DataSet dataSet) {
+        this.dataSet = dataSet;
     }
 
-    private Map<String, String>  dataLabels;
-    private Map<String, Point2D> dataPoints;
-    private AtomicInteger instances = new AtomicInteger();
+    /** Replaces the data with a dataset that has been read elsewhere, e.g., from a <code>.tsdb</code> file. */
+    void load(DataSet dataSet) {
+        this.dataSet = dataSet;
+        instances.set(dataSet.size());
+    }
+
+    /** Charts of more labels than this show no legend; the tooltip of every point names its label instead. */
+    static final int MAX_LEGEND_ENTRIES = 16;
+
+    private DataSet              dataSet;
+    private AtomicInteger        instances = new AtomicInteger();
+    private IncrementalTSDParser lineParser;
+    private PointIndex           pointIndex;
+    private DataSet              indexedDataSet;
+    private int                  indexedModifications;
+    private int                  indexedXDimension;
+    private int                  indexedYDimension;
+    private int                  xDimension;
+    private int                  yDimension = 1;
 
     public int getInstances() {
         return instances.get();
     }
 
     public TSDProcessor() {
-        dataLabels = new HashMap<>();
-        dataPoints = new HashMap<>();
+        dataSet = new DataSet();
     }
 
     public int getNumOfLabels(){
-        ArrayList<String> labels = new ArrayList<>();
-        int count = 0;
-        for (String label : dataLabels.values())
-        {
-            if (!labels.contains(label) && !label.equals("null"))
-            {
-                labels.add(label);
-                count++;
-            }
-        }
-        return count;
+        return dataSet.getLabelDictionary().usedCount();
     }
     public String getLabelNames(){
-        ArrayList<String> labels = new ArrayList<>();
-        for (String label : dataLabels.values())
-        {
-            if (!labels.contains(label) && !label.equals("null"))
-                labels.add(label);
-        }
-        return labels.toString();
+        return dataSet.getLabelDictionary().usedNames().toString();
     }
+
     /**
-     * Processes the data and populated two {@link Map} objects with the data.
+     * Chooses the dimensions shown on the x and y axes of the chart. In place of dimensions that the data does not
+     * have, the first and the second one, respectively, are shown.
+     */
+    public void setProjection(int xDimension, int yDimension) {
+        this.xDimension = xDimension;
+        this.yDimension = yDimension;
+    }
+
+    /** @return the dimension of the data shown on the x axis of the chart */
+    public int getXDimension() {
+        return xDimension < dataSet.getDimensions() ? xDimension : 0;
+    }
+
+    /** @return the dimension of the data shown on the y axis of the chart */
+    public int getYDimension() {
+        return yDimension < dataSet.getDimensions() ? yDimension : 1;
+    }
+
+    /**
+     * Processes the data and populates the {@link DataSet} with it.
      *
      * @param tsdString the input data provided as a single {@link String}
-     * @throws Exception if the input string does not follow the <code>.tsd</code> data format
+     * @throws Exception if the input string does not follow the <code>.tsd</code> data format; the message lists
+     *                   every error found, up to {@link TSDValidator#DEFAULT_MAX_ERRORS}
      */
     public void processString(String tsdString) throws Exception {
-        ArrayList<String> names    = new ArrayList<>();
-        AtomicInteger counter      = new AtomicInteger();
-        AtomicBoolean hadAnError   = new AtomicBoolean(false);
-        StringBuilder errorMessage = new StringBuilder();
+        processString(tsdString, new TSDValidator());
+    }
+
+    /**
+     * Processes the data and populates the {@link DataSet} with it, reporting every problem to the
+     * specified validator.
+     *
+     * @see #processString(String)
+     */
+    public void processString(String tsdString, TSDValidator validator) throws Exception {
         instances.set(0);
+        lineParser = null;
+        TSDParser.parse(tsdString, this::addInstance, validator);
+    }
 
-        Stream.of(tsdString.split("\n"))
-              .map(line -> Arrays.asList(line.split("\t")))
-                .forEach(list -> {
-                  try {
-                      counter.getAndIncrement();
-                      String   name  = checkedname(list.get(0));
-                      for (String n : names)
-                          if (n.equals(name))
-                          {
-                              Exception e = new Exception("There are duplicate names.");
-                              throw e;
-                          }
-                      names.add(name);
-                      String   label = list.get(1);
-                      instances.incrementAndGet();
-                      String[] pair  = list.get(2).split(",");
-                      Point2D  point = new Point2D(Double.parseDouble(pair[0]), Double.parseDouble(pair[1]));
-                      dataLabels.put(name, label);
-                      dataPoints.put(name, point);
-                  }
-                  catch (ArrayIndexOutOfBoundsException e) {
-                      errorMessage.setLength(0);
-                      errorMessage.append("There is a missing number.");
-                      errorMessage.append("\nThere is an error on line: ");
-                      errorMessage.append(counter.get());
-                      hadAnError.set(true);
-                  }
-                  catch (Exception e) {
-                      errorMessage.setLength(0);
-                      errorMessage.append(e.getMessage());
-                      errorMessage.append("\nThere is an error on line: ");
-                      errorMessage.append(counter.get());
-                      hadAnError.set(true);
-                  }
-              });
-        if (errorMessage.length() > 0)
-            throw new Exception(errorMessage.toString());
+    /**
+     * Processes the data, given line by line, and brings the {@link DataSet} in step with it. Only the lines that
+     * changed since the previous call are parsed, as long as the dataset has not been replaced or cleared in between.
+     *
+     * @param lines the lines of the data, without their new lines
+     * @throws Exception if the data does not follow the <code>.tsd</code> data format; the message lists every error
+     *                   found, up to {@link TSDValidator#DEFAULT_MAX_ERRORS}
+     * @see IncrementalTSDParser
+     */
+    public void processLines(List<String> lines) throws Exception {
+        if (lineParser == null || lineParser.getDataSet() != dataSet) {
+            // the dataset may still be in use by an algorithm, so it is replaced rather than cleared
+            dataSet = new DataSet();
+            lineParser = new IncrementalTSDParser(dataSet);
+        }
+        lineParser.update(lines);
+        instances.set(dataSet.size());
+        lineParser.check(new TSDValidator());
     }
 
     /**
-     * Exports the data to the specified 2-D chart.
+     * Processes an edit of the data, in which the lines from <code>from</code>, inclusive, up to <code>to</code>,
+     * exclusive, were replaced with <code>count</code> lines. Only the new lines are parsed, unless the dataset has been
+     * replaced or cleared since the previous call, in which case all lines are.
+     *
+     * @param lines all lines of the data, after the edit
+     * @throws Exception if the data does not follow the <code>.tsd</code> data format
+     * @see #processLines(List)
+     */
+    public void processEdit(List<String> lines, int from, int to, int count) throws Exception {
+        if (lineParser == null || lineParser.getDataSet() != dataSet) {
+            processLines(lines);
+            return;
+        }
+        lineParser.replace(from, to, lines.subList(from, from + count));
+        instances.set(dataSet.size());
+        lineParser.check(new TSDValidator());
+    }
+
+    /**
+     * Adds the instances of lines appended to the followed data file. The lines are not part of what
+     * {@link #processEdit(List, int, int, int)} has seen, so the next edit parses all lines again.
+     *
+     * @see TSDFollower.Appended#addTo(DataSet, TSDValidator)
+     */
+    void append(TSDFollower.Appended appended, TSDValidator validator) {
+        appended.addTo(dataSet, validator);
+        instances.set(dataSet.size());
+        lineParser = null;
+    }
+
+    /**
+     * Adds a single instance that has already been decoded and validated by the {@link TSDParser}.
+     */
+    void addInstance(String name, String label, double[] coordinates) {
+        instances.incrementAndGet();
+        dataSet.addInstance(name, label, coordinates);
+    }
+
+    /**
+     * Exports the data, projected onto the plane of the chosen dimensions, to the specified 2-D chart.
      *
      * @param chart the specified chart
      */
     void toChartData(XYChart<Number, Number> chart) {
-        Set<String> labels = new HashSet<>(dataLabels.values());
-        Image image = new Image("properties/darling.png");
-        for (String label : labels) {
-            XYChart.Series<Number, Number> series = new XYChart.Series<>();
-            series.setName(label);
-            dataLabels.entrySet().stream().filter(entry -> entry.getValue().equals(label)).forEach(entry -> {
-                Point2D point = dataPoints.get(entry.getKey());
-                series.getData().add(new XYChart.Data<>(point.getX(), point.getY()));
-            });
-            chart.getData().add(series);
+        Image                                image    = new Image("properties/darling.png");
+        List<XYChart.Series<Number, Number>> series   = new ArrayList<>();
+        int                                  x        = getXDimension();
+        int                                  y        = getYDimension();
+        int[]                                labelIds = dataSet.getLabelIds();
+        for (int id = 0; id < dataSet.getLabelCount(); id++) {
+            XYChart.Series<Number, Number> labelSeries = new XYChart.Series<>();
+            labelSeries.setName(dataSet.getLabelName(id));
+            series.add(labelSeries);
+        }
+        for (int i = 0; i < dataSet.size(); i++)
+            series.get(labelIds[i]).getData().add(new XYChart.Data<>(dataSet.getCoordinate(i, x),
+                                                                     dataSet.getCoordinate(i, y)));
+        int shown = 0;
+        for (XYChart.Series<Number, Number> labelSeries : series)
+            if (!labelSeries.getData().isEmpty())
+                shown++;
+        chart.setLegendVisible(shown <= MAX_LEGEND_ENTRIES);
+        for (int id = 0; id < series.size(); id++) {
+            XYChart.Series<Number, Number> labelSeries = series.get(id);
+            if (labelSeries.getData().isEmpty())
+                continue;
+            chart.getData().add(labelSeries);
+            color(labelSeries, id);
+            labelSeries.getData().forEach(numberNumberData -> decorate(numberNumberData, image, labelSeries, chart));
+        }
+        colorLegend(chart);
+    }
+
+    /**
+     * Adds the instances from the specified position on, e.g., those of lines appended to the followed data file, to
+     * the specified 2-D chart, which already shows the instances before them.
+     */
+    void appendToChartData(XYChart<Number, Number> chart, int from) {
+        Image                                       image    = new Image("properties/darling.png");
+        Map<String, XYChart.Series<Number, Number>> series   = new HashMap<>();
+        int                                         x        = getXDimension();
+        int                                         y        = getYDimension();
+        int[]                                       labelIds = dataSet.getLabelIds();
+        for (XYChart.Series<Number, Number> labelSeries : chart.getData())
+            series.put(labelSeries.getName(), labelSeries);
+        for (int i = from; i < dataSet.size(); i++) {
+            XYChart.Series<Number, Number> labelSeries = series.get(dataSet.getLabel(i));
+            if (labelSeries == null) {
+                labelSeries = new XYChart.Series<>();
+                labelSeries.setName(dataSet.getLabel(i));
+                series.put(labelSeries.getName(), labelSeries);
+                chart.setLegendVisible(chart.getData().size() < MAX_LEGEND_ENTRIES);
+                chart.getData().add(labelSeries);
+                color(labelSeries, labelIds[i]);
+            }
+            XYChart.Data<Number, Number> point = new XYChart.Data<>(dataSet.getCoordinate(i, x),
+                                                                    dataSet.getCoordinate(i, y));
+            labelSeries.getData().add(point);
+            decorate(point, image, labelSeries, chart);
         }
-        chart.getData().forEach(numberNumberSeries -> {
-            numberNumberSeries.getData().forEach(numberNumberData -> {
-                Tooltip.install(numberNumberData.getNode(),
-                        new Tooltip(getKey(new Point2D(numberNumberData.getXValue().doubleValue(), numberNumberData.getYValue().doubleValue()))));
-                numberNumberData.getNode().setOnMouseEntered(event -> numberNumberData.getNode().setCursor(new ImageCursor(image, image.getWidth(), image.getHeight())));
-            });
-            numberNumberSeries.getNode().setId("daddy");
+        colorLegend(chart);
+    }
+
+    /* gives the series of the label with the specified id the color of that label in the palette */
+    private static void color(XYChart.Series<Number, Number> labelSeries, int id) {
+        labelSeries.getNode().setId("daddy");
+        labelSeries.getNode().getProperties().put(Palette.class, Palette.color(id));
+    }
+
+    /* gives the symbol of every entry of the legend the color of its series, which the legend does not know about */
+    private static void colorLegend(XYChart<Number, Number> chart) {
+        if (!chart.isLegendVisible())
+            return;
+        Map<String, Object> colors = new HashMap<>();
+        for (XYChart.Series<Number, Number> labelSeries : chart.getData())
+            colors.put(labelSeries.getName(), labelSeries.getNode().getProperties().get(Palette.class));
+        for (Node item : chart.lookupAll(".chart-legend-item")) {
+            if (item instanceof Label && ((Label) item).getGraphic() != null) {
+                Object color = colors.get(((Label) item).getText());
+                if (color != null)
+                    ((Label) item).getGraphic().setStyle("-fx-background-color: " + color + ", white;");
             }
-        );
+        }
     }
 
+    private void decorate(XYChart.Data<Number, Number> numberNumberData, Image image,
+                          XYChart.Series<Number, Number> labelSeries, XYChart<Number, Number> chart) {
+        String key = getKey(new Point2D(numberNumberData.getXValue().doubleValue(), numberNumberData.getYValue().doubleValue()));
+        Tooltip.install(numberNumberData.getNode(),
+                new Tooltip(chart.isLegendVisible() ? key : key + " (" + labelSeries.getName() + ")"));
+        numberNumberData.getNode().setStyle("-fx-background-color: "
+                                            + labelSeries.getNode().getProperties().get(Palette.class) + ", white;");
+        numberNumberData.getNode().setOnMouseEntered(event -> numberNumberData.getNode().setCursor(new ImageCursor(image, image.getWidth(), image.getHeight())));
+    }
+
+    /** @return the names of every instance at the specified location, separated by commas */
     String getKey(Point2D point)
     {
-        for (String key : dataPoints.keySet())
-            if (point.equals(dataPoints.get(key)))
-                return key;
-        return "";
+        StringJoiner names = new StringJoiner(", ");
+        for (int i : getPointIndex().pointsAt(point.getX(), point.getY()))
+            names.add(dataSet.getName(i));
+        return names.toString();
+    }
+
+    /**
+     * @return an index of the locations of the instances on the chart, whose points are their positions in the
+     *         {@link DataSet}; it is built again only after the instances or the chosen dimensions have changed
+     */
+    public PointIndex getPointIndex() {
+        int x = getXDimension();
+        int y = getYDimension();
+        if (pointIndex == null || indexedDataSet != dataSet || indexedModifications != dataSet.getModifications()
+            || indexedXDimension != x || indexedYDimension != y) {
+            pointIndex = new PointIndex(dataSet, x, y);
+            indexedDataSet = dataSet;
+            indexedModifications = dataSet.getModifications();
+            indexedXDimension = x;
+            indexedYDimension = y;
+        }
+        return pointIndex;
     }
     void clear() {
-        dataPoints.clear();
-        dataLabels.clear();
+        dataSet.clear();
+        instances.set(0);
+        lineParser = null;
     }
 
     private String checkedname(String name) throws InvalidDataNameException {
@@ -189,8 +331,8 @@ public final class TSDProcessor {
     public synchronized void addClassLine(XYChart<Number, Number> chart, Integer A, Integer B, Integer C)
     {
 
-        double lowerX = ((Point2D) (dataPoints.values().toArray()[0])).getX();
-        double upperX = ((Point2D) (dataPoints.values().toArray()[0])).getX();
+        double lowerX = dataSet.getCoordinate(0, getXDimension());
+        double upperX = dataSet.getCoordinate(0, getXDimension());
         for (XYChart.Series<Number, Number> series : chart.getData())
         {
             for (XYChart.Data<Number, Number> data : series.getData())
@@ -0,0 +1,189 @@
+package dataprocessors;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects the problems found while reading <code>.tsd</code> data. Instance names are kept in a hash index, so that
+ * checking a name for duplicates takes constant time. Every error is recorded with its line and column, up to a cap;
+ * errors beyond the cap are only counted. In fail-fast mode, reading stops at the first error.
+ *
+ * @see TSDParser
+ */
+public final class TSDValidator {
+
+    /** A single problem in the data, located by its 1-based line and column. */
+    public static final class LineError {
+
+        private final int    line;
+        private final int    column;
+        private final String message;
+
+        public LineError(int line, int column, String message) {
+            this.line = line;
+            this.column = column;
+            this.message = message;
+        }
+
+        public int getLine()       { return line; }
+
+        public int getColumn()     { return column; }
+
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return message + "\nThere is an error on line: " + line + ", column: " + column;
+        }
+    }
+
+    /** Thrown once the data has been read, if any errors were found. */
+    public static class InvalidDataException extends Exception {
+
+        private final List<LineError> errors;
+        private final int             errorCount;
+
+        InvalidDataException(List<LineError> errors, int errorCount) {
+            super(report(errors, errorCount));
+            this.errors = errors;
+            this.errorCount = errorCount;
+        }
+
+        public List<LineError> getErrors() { return errors; }
+
+        public int getErrorCount()         { return errorCount; }
+
+        private static String report(List<LineError> errors, int errorCount) {
+            StringBuilder report = new StringBuilder();
+            for (LineError error : errors) {
+                if (report.length() > 0)
+                    report.append('\n');
+                report.append(error);
+            }
+            if (errorCount > errors.size())
+                report.append(String.format("%n... and %d more errors.", errorCount - errors.size()));
+            return report.toString();
+        }
+    }
+
+    /** The number of errors kept by default, which is about as many as an error dialog can show. */
+    public static final int DEFAULT_MAX_ERRORS = 10;
+
+    static final String DUPLICATE_NAME = "There are duplicate names.";
+
+    static final String DIMENSION_MISMATCH = "Every instance must have %d coordinates, like the first one.";
+
+    private final Set<String>     names  = new HashSet<>();
+    private final List<LineError> errors = new ArrayList<>();
+    private final int             maxErrors;
+    private final boolean         failFast;
+    private int                   errorCount;
+    private int                   dimensions;
+
+    public TSDValidator() {
+        this(DEFAULT_MAX_ERRORS, false);
+    }
+
+    /**
+     * @param maxErrors the number of errors to keep; further errors are only counted
+     * @param failFast  whether to stop reading at the first error
+     */
+    public TSDValidator(int maxErrors, boolean failFast) {
+        this.maxErrors = Math.max(1, maxErrors);
+        this.failFast = failFast;
+    }
+
+    public int getMaxErrors()        { return maxErrors; }
+
+    public boolean isFailFast()      { return failFast; }
+
+    public int getErrorCount()       { return errorCount; }
+
+    public List<LineError> getErrors() { return Collections.unmodifiableList(errors); }
+
+    /**
+     * Adds the name to the index.
+     *
+     * @return <code>false</code>, after recording an error, if the name had already been added
+     */
+    boolean checkName(String name, int line) {
+        if (names.add(name))
+            return true;
+        error(line, 1, DUPLICATE_NAME);
+        return false;
+    }
+
+    /**
+     * Checks that an instance has as many coordinates as the first instance checked.
+     *
+     * @return <code>false</code>, after recording an error, if it does not
+     */
+    boolean checkDimensions(int dimensions, int line) {
+        if (this.dimensions == 0)
+            this.dimensions = dimensions;
+        if (dimensions == this.dimensions)
+            return true;
+        error(line, 1, String.format(DIMENSION_MISMATCH, this.dimensions));
+        return false;
+    }
+
+    /** Makes every instance checked from now on need the specified number of coordinates, e.g., that of older data. */
+    void expectDimensions(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    void error(int line, int column, String message) {
+        if (errors.size() < maxErrors)
+            errors.add(new LineError(line, column, message));
+        errorCount++;
+    }
+
+    /** Counts errors that were found, but not kept, elsewhere. */
+    void suppressed(int count) {
+        errorCount += count;
+    }
+
+    /** @return whether reading should stop because of the errors found so far */
+    boolean shouldStop() {
+        return failFast && errorCount > 0;
+    }
+
+    /**
+     * @throws InvalidDataException if any errors have been found
+     */
+    public void check() throws InvalidDataException {
+        if (errorCount > 0)
+            throw new InvalidDataException(new ArrayList<>(errors), errorCount);
+    }
+
+    /**
+     * Checks <code>.tsd</code> files from the command line, without loading them, and prints whether each one is
+     * valid. Exits with status 1 if any of them is not.
+     *
+     * @param args the files to check, optionally preceded by <code>-failfast</code> to stop each check at its first
+     *             error
+     * @see TSDParser#validate(java.nio.file.Path, TSDValidator)
+     */
+    public static void main(String[] args) throws Exception {
+        boolean failFast = args.length > 0 && args[0].equals("-failfast");
+        if (args.length == (failFast ? 1 : 0)) {
+            System.err.println("Usage: TSDValidator [-failfast] <file.tsd>...");
+            System.exit(1);
+        }
+        boolean valid = true;
+        for (int i = failFast ? 1 : 0; i < args.length; i++) {
+            try {
+                int lines = TSDParser.validate(Paths.get(args[i]), new TSDValidator(DEFAULT_MAX_ERRORS, failFast));
+                System.out.println(args[i] + ": valid, " + lines + " lines");
+            } catch (InvalidDataException e) {
+                valid = false;
+                System.out.println(args[i] + ": " + e.getErrorCount() + " errors\n" + e.getMessage());
+            }
+        }
+        System.exit(valid ? 0 : 1);
+    }
+}
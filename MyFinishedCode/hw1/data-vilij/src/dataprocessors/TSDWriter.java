@@ -0,0 +1,225 @@
+package dataprocessors;
+
+import data.DataSet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+/**
+ * Saves a {@link DataSet}, as it is in memory with the labels that algorithms have given its instances, to a
+ * <code>.tsd</code> or <code>.tsdb</code> file. The data is encoded straight into a fixed-size buffer that is written
+ * to a {@link FileChannel} whenever it fills up, so saving takes the same small amount of memory however many instances
+ * there are.
+ * <p>
+ * Files are never written in place: the data goes to a temporary file next to the target, which then replaces the
+ * target in a single atomic rename. The saved file keeps the permissions of the target, or has those of any new file
+ * if there was no target. If anything goes wrong, the target is left as it was.
+ *
+ * @see TSDBCodec
+ */
+public final class TSDWriter implements Closeable {
+
+    /** Writes the contents of a file. */
+    interface Body {
+        void write(TSDWriter out) throws IOException;
+    }
+
+    /** Size of the buffer that is filled before every write to the file. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel   channel;
+    private final ByteBuffer    buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CRC32         checksum;
+    private final StringBuilder line   = new StringBuilder();
+
+    private TSDWriter(FileChannel channel, CRC32 checksum) {
+        this.channel = channel;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Saves the specified dataset to a <code>.tsdb</code> or <code>.tsd</code> file, depending on the name of the file.
+     *
+     * @throws IOException if the file cannot be written, in which case it is left as it was
+     */
+    public static void save(DataSet dataSet, Path dataFilePath) throws IOException {
+        if (TSDBCodec.isBinary(dataFilePath))
+            TSDBCodec.write(dataSet, dataFilePath);
+        else
+            writeText(dataSet, dataFilePath);
+    }
+
+    /**
+     * Saves the specified dataset to a <code>.tsd</code> file, one instance per line.
+     *
+     * @throws IOException if the file cannot be written, in which case it is left as it was
+     */
+    public static void writeText(DataSet dataSet, Path tsdFilePath) throws IOException {
+        atomically(tsdFilePath, false, out -> {
+            for (int i = 0; i < dataSet.size(); i++)
+                out.putLine(dataSet, i);
+        });
+    }
+
+    /**
+     * Writes a file through a temporary file that then replaces it atomically, or at least with a single rename where
+     * the file system cannot do it atomically.
+     *
+     * @param checksum whether to keep a CRC-32 checksum of everything that is written, for {@link #checksum()}
+     */
+    static void atomically(Path target, boolean checksum, Body body) throws IOException {
+        Path temporary = createSibling(target);
+        try {
+            try (TSDWriter out = new TSDWriter(FileChannel.open(temporary, StandardOpenOption.WRITE,
+                                                                StandardOpenOption.TRUNCATE_EXISTING),
+                                               checksum ? new CRC32() : null)) {
+                body.write(out);
+                out.flush();
+                out.channel.force(true);
+            }
+            // after writing, so that a read-only target does not keep the temporary file from being written
+            if (Files.exists(target)
+                && Files.getFileStore(temporary).supportsFileAttributeView(PosixFileAttributeView.class))
+                Files.setPosixFilePermissions(temporary, Files.getPosixFilePermissions(target));
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /*
+     * creates an empty file with a new name next to the target, with the default permissions of a new file, whereas
+     * Files.createTempFile makes one that only its owner can read, and the rename would give the target those
+     */
+    private static Path createSibling(Path target) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        while (true) {
+            String suffix    = Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp";
+            Path   temporary = directory.resolve("." + target.getFileName() + suffix);
+            try {
+                Files.newByteChannel(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+                return temporary;
+            } catch (FileAlreadyExistsException e) {
+                // another save picked the same name
+            }
+        }
+    }
+
+    /** Writes an instance of the dataset as a line of <code>.tsd</code> data. */
+    void putLine(DataSet dataSet, int i) throws IOException {
+        line.setLength(0);
+        line.append(dataSet.getName(i)).append('\t').append(dataSet.getLabel(i)).append('\t');
+        for (int d = 0; d < dataSet.getDimensions(); d++)
+            line.append(d == 0 ? "" : ",").append(dataSet.getCoordinate(i, d));
+        line.append('\n');
+        putUTF8(line);
+    }
+
+    void putInt(int value) throws IOException {
+        reserve(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    void putLong(long value) throws IOException {
+        reserve(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    void putDouble(double value) throws IOException {
+        reserve(Double.BYTES);
+        buffer.putDouble(value);
+    }
+
+    /** Writes the characters in UTF-8, as {@link String#getBytes(java.nio.charset.Charset)} would. */
+    void putUTF8(CharSequence chars) throws IOException {
+        for (int i = 0; i < chars.length(); i++) {
+            reserve(4);
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars.length()
+                       && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    /** @return the number of bytes that {@link #putUTF8(CharSequence)} writes for the characters */
+    static int utf8Length(CharSequence chars) {
+        int length = 0;
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80)
+                length += 1;
+            else if (c < 0x800)
+                length += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < chars.length()
+                     && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c))
+                length += 1;
+            else
+                length += 3;
+        }
+        return length;
+    }
+
+    /**
+     * @return the checksum of everything written so far, which is only complete once the buffer has been
+     *         {@link #flush() flushed}
+     */
+    long checksum() {
+        return checksum.getValue();
+    }
+
+    /** Writes the buffered bytes to the file. */
+    void flush() throws IOException {
+        buffer.flip();
+        if (checksum != null) {
+            checksum.update(buffer);
+            buffer.rewind();
+        }
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    private void reserve(int bytes) throws IOException {
+        if (buffer.remaining() < bytes)
+            flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
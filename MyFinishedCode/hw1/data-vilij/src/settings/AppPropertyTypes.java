@@ -31,6 +31,8 @@ public enum AppPropertyTypes {
     /* application-specific parameters */
     DATA_FILE_EXT,
     DATA_FILE_EXT_DESC,
+    DATA_BINARY_FILE_EXT,
+    DATA_BINARY_FILE_EXT_DESC,
     IMG_FILE_EXT,
     IMG_FILE_EXT_DESC,
     TEXT_AREA,
@@ -40,14 +42,20 @@ public enum AppPropertyTypes {
     LEFT_PANE_TITLESIZE,
     CHART_TITLE,
     DISPLAY_BUTTON_TEXT,
+    VALIDATE_BUTTON_TEXT,
+    VALID_FILE_TITLE,
+    VALID_FILE_MSG,
     CHECKBOX,
+    FOLLOW_CHECKBOX,
     MORE_LINES,
     MORE_LINES_MSG1,
     MORE_LINES_MSG2,
     PLOT_NAME,
     INSTANCES,
+    DIMENSIONS,
     LABELS,
     LABEL_NAMES,
-    PATH
+    PATH,
+    PROJECTION
 
 }
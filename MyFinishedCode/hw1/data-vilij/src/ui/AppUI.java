@@ -2,11 +2,16 @@ package ui;
 
 import actions.AppActions;
 import algorithms.Algorithm;
+import algorithms.Batched;
 import algorithms.Classifier;
+import algorithms.Convergent;
+import algorithms.Parallel;
 import classification.RandomClassifier;
 import com.sun.xml.internal.bind.v2.runtime.reflect.Lister;
 import data.DataSet;
 import dataprocessors.AppData;
+import dataprocessors.TSDDocument;
+import javafx.beans.value.ChangeListener;
 import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.geometry.Insets;
@@ -55,11 +60,17 @@ public final class AppUI extends UITemplate {
     private Button                       scrnshotButton; // toolbar button to take a screenshot of the data
     private LineChart<Number, Number>    chart;          // the chart where data will be displayed
     private Button                       displayButton;  // workspace button to display data on the chart
+    private Button                       validateButton; // workspace button to check a data file without loading it
     private TextArea                     textArea;       // text area for new data input
+    private TSDLineView                  lineView;       // view of every line of loaded data
     private boolean                      hasNewText;     // whether or not the text area has any new data since last display
     private CheckBox                     cb;
+    private CheckBox                     followBox;      // whether or not lines appended to the loaded file are added
     private GridPane                     pane;
     private Text                         stats;
+    private Spinner<Integer>             xDimension;     // the dimension of the data shown on the x axis, from 1
+    private Spinner<Integer>             yDimension;     // the dimension of the data shown on the y axis, from 1
+    private boolean                      resizingProjection; // whether the dimension spinners are fit to new data
     private Button                       clust;
     private Button                       classif;
     private VBox                         leftPanel;
@@ -143,10 +154,57 @@ public final class AppUI extends UITemplate {
 
     @Override
     public void clear() {
+        showDocument(null);
         textArea.clear();
         chart.getData().clear();
     }
 
+    /**
+     * Shows every line of the specified loaded data in place of the text area, or the text area again if there is no
+     * such data.
+     */
+    public void showDocument(TSDDocument document) {
+        lineView.setDocument(document);
+        int textAreaIndex = leftPanel.getChildren().indexOf(textArea);
+        int lineViewIndex = leftPanel.getChildren().indexOf(lineView);
+        if (document != null && textAreaIndex >= 0)
+            leftPanel.getChildren().set(textAreaIndex, lineView);
+        else if (document == null && lineViewIndex >= 0)
+            leftPanel.getChildren().set(lineViewIndex, textArea);
+    }
+
+    /** Shows the lines appended to the loaded data from the specified line on. */
+    public void linesAppended(int from) {
+        lineView.linesAppended(from);
+    }
+
+    /**
+     * Shows the progress of a background load or check of a file in a window of its own, with the specified title and
+     * a button that cancels it. The window closes once the task is over, whether it succeeded, failed or was cancelled.
+     */
+    public void showProgress(Task<?> load, String title) {
+        Stage       stage    = new Stage();
+        VBox        box      = new VBox(10);
+        ProgressBar progress = new ProgressBar();
+        Text        message  = new Text();
+        Button      cancel   = new Button("Cancel");
+        stage.setTitle(title);
+        box.setAlignment(Pos.CENTER);
+        box.setPadding(new Insets(10));
+        progress.setMaxWidth(Double.MAX_VALUE);
+        progress.progressProperty().bind(load.progressProperty());
+        message.textProperty().bind(load.messageProperty());
+        cancel.setOnAction(event -> load.cancel());
+        load.runningProperty().addListener((observable, wasRunning, running) -> {
+            if (!running)
+                stage.close();
+        });
+        stage.setOnCloseRequest(event -> load.cancel());
+        box.getChildren().addAll(message, progress, cancel);
+        stage.setScene(new Scene(box, 360, 110));
+        stage.show();
+    }
+
     public TextArea getTextArea() {
         return textArea;
     }
@@ -169,6 +227,10 @@ public final class AppUI extends UITemplate {
         run.setVisible(false);
         back.setVisible(false);
         stats = new Text();
+        xDimension = new Spinner<>(1, DataSet.DEFAULT_DIMENSIONS, 1);
+        yDimension = new Spinner<>(1, DataSet.DEFAULT_DIMENSIONS, 2);
+        xDimension.setPrefWidth(70);
+        yDimension.setPrefWidth(70);
         chart = new LineChart<>(xAxis, yAxis);
         chart.setTitle(manager.getPropertyValue(AppPropertyTypes.CHART_TITLE.name()));
         chart.setAnimated(false);
@@ -191,16 +253,24 @@ public final class AppUI extends UITemplate {
         leftPanelTitle.setFont(Font.font(fontname, fontsize));
 
         textArea = new TextArea();
+        lineView = new TSDLineView();
 
         cb = new CheckBox();
         cb.setText(manager.getPropertyValue(AppPropertyTypes.CHECKBOX.name()));
         cb.setFont(font);
         cb.setTextFill(Color.FUCHSIA);
         cb.setAllowIndeterminate(false);
+        followBox = new CheckBox(manager.getPropertyValue(AppPropertyTypes.FOLLOW_CHECKBOX.name()));
+        followBox.setFont(font);
+        followBox.setTextFill(Color.FUCHSIA);
+        followBox.setOnAction(event -> ((AppActions) applicationTemplate.getActionComponent()).setFollowing(followBox.isSelected()));
         HBox processButtonsBox = new HBox();
         displayButton = new Button(manager.getPropertyValue(AppPropertyTypes.DISPLAY_BUTTON_TEXT.name()));
         displayButton.setFont(font);
         displayButton.setTextFill(Color.FUCHSIA);
+        validateButton = new Button(manager.getPropertyValue(AppPropertyTypes.VALIDATE_BUTTON_TEXT.name()));
+        validateButton.setFont(font);
+        validateButton.setTextFill(Color.FUCHSIA);
         File[] classifList = new File(Thread.currentThread().getContextClassLoader().getResource("classification").getFile()).listFiles();
         File[] clusterList = new File(Thread.currentThread().getContextClassLoader().getResource("clustering").getFile()).listFiles();
         for (File x : classifList)
@@ -230,6 +300,12 @@ public final class AppUI extends UITemplate {
             defaultConfig.setIterations(0);
             defaultConfig.setUpdateInterval(0);
             defaultConfig.setLabels(0);
+            if (x instanceof Batched)
+                defaultConfig.setBatchSize(((Batched) x).getBatchSize());
+            if (x instanceof Convergent)
+                defaultConfig.setTolerance(((Convergent) x).getTolerance());
+            if (x instanceof Parallel)
+                defaultConfig.setParallelMode(((Parallel) x).getParallelMode());
             defaultConfig.setCont(false);
             settings.put(x.getClass().getName(), defaultConfig);
         }
@@ -266,35 +342,37 @@ public final class AppUI extends UITemplate {
                     throw new Exception();
                 if (algChoices.getSelectedToggle().getUserData().getClass().getName().split("\\.")[0].equals("clustering") && config.getLabels() <= 0)
                     throw new Exception();
+                if (algChoices.getSelectedToggle().getUserData() instanceof Batched && config.getBatchSize() <= 0)
+                    throw new Exception();
+                if (algChoices.getSelectedToggle().getUserData() instanceof Convergent && !(config.getTolerance() >= 0))
+                    throw new Exception();
                 if (thread.getState().equals(Thread.State.NEW) || thread.getState().equals(Thread.State.TERMINATED))
                 {
                     chart.getData().clear();
                     AppData dataComponent = (AppData) applicationTemplate.getDataComponent();
-                    dataComponent.clear();
-                    String processString = textArea.getText() + '\n';
-                    for (String s : ((AppData)applicationTemplate.getDataComponent()).getExtraLines())
-                        processString += s + '\n';
                     try {
-                        dataComponent.loadData(processString);
+                        reparseIfChanged();
                     } catch (Exception e) {
                         e.printStackTrace();
                     }
                     dataComponent.displayData();
-                    if (((AppActions)applicationTemplate.getActionComponent()).getDataFilePath() != null)
-                        ds = DataSet.fromTSDFile(((AppActions)applicationTemplate.getActionComponent()).getDataFilePath());
+                    // the algorithm works on a copy-on-write view of what the processor shows, edits included
+                    ds = dataComponent.getProcessor().getDataSet().share();
                     if (algChoices.getSelectedToggle().getUserData().getClass().getName().split("\\.")[0].equals("classification"))
                         runAlg = (Algorithm) algChoices.getSelectedToggle().getUserData().getClass().getConstructor(DataSet.class, int.class, int.class, boolean.class).newInstance(ds, config.getIterations(), config.getUpdateInterval(), config.isCont());
                     if (algChoices.getSelectedToggle().getUserData().getClass().getName().split("\\.")[0].equals("clustering")) {
-                        if (config.getLabels() <= 2 && 2 > ((AppData)applicationTemplate.getDataComponent()).getProcessor().getDataPoints().size()) {
-                            ErrorDialog.getDialog().show("Invalid Number of Clusters", "Invalid Number of Clusters");
-                            return;
-                        }
-                        else if (config.getLabels() >= 4 && 4 > ((AppData)applicationTemplate.getDataComponent()).getProcessor().getDataPoints().size()){
+                        if (Math.max(2, config.getLabels()) > ds.size()) {
                             ErrorDialog.getDialog().show("Invalid Number of Clusters", "Invalid Number of Clusters");
                             return;
                         }
                             runAlg = (Algorithm) algChoices.getSelectedToggle().getUserData().getClass().getConstructor(DataSet.class, int.class, int.class, int.class, boolean.class).newInstance(ds, config.getIterations(), config.getUpdateInterval(), config.getLabels(), config.isCont());
                     }
+                    if (runAlg instanceof Batched)
+                        ((Batched) runAlg).setBatchSize(config.getBatchSize());
+                    if (runAlg instanceof Convergent)
+                        ((Convergent) runAlg).setTolerance(config.getTolerance());
+                    if (runAlg instanceof Parallel)
+                        ((Parallel) runAlg).setParallelMode(config.getParallelMode());
                     runAlg.setApplicationTemplate(applicationTemplate);
                     thread = new Thread(runAlg);
                     thread.start();
@@ -314,12 +392,16 @@ public final class AppUI extends UITemplate {
 
         });
         HBox.setHgrow(processButtonsBox, Priority.ALWAYS);
-        processButtonsBox.getChildren().add(displayButton);
+        processButtonsBox.getChildren().addAll(displayButton, validateButton);
         stats.setText("No Data");
         HBox algbuttn = new HBox();
         algbuttn.setAlignment(Pos.CENTER);
         algbuttn.getChildren().addAll(run, classif, clust, back);
-        leftPanel.getChildren().addAll(leftPanelTitle, textArea, processButtonsBox, cb, algbuttn, stats, algOption);
+        HBox projectionBox = new HBox(8, new Text(manager.getPropertyValue(AppPropertyTypes.PROJECTION.name())),
+                                      xDimension, yDimension);
+        projectionBox.setAlignment(Pos.CENTER);
+        leftPanel.getChildren().addAll(leftPanelTitle, textArea, processButtonsBox, cb, followBox, algbuttn, stats,
+                                       projectionBox, algOption);
         leftPanel.setMaxSize(windowWidth * 0.31, windowHeight);
         StackPane rightPanel = new StackPane(chart);
         rightPanel.setMaxSize(windowWidth * 0.69, windowHeight * 0.69);
@@ -374,26 +456,37 @@ public final class AppUI extends UITemplate {
                     Stage stage = new Stage();
                     GridPane gp = new GridPane();
                     stage.setTitle(x.getClass().getName().split("\\.")[1]);
-                    Scene scene = new Scene(gp,160,100);
+                    Scene scene = new Scene(gp,160,100 + (x instanceof Parallel ? 25 : 0));
                     stage.setScene(scene);
                     Text max = new Text("Max Iterations: ");
                     TextField maxIterations = new TextField();
                     Text update = new Text("Update Interval: ");
                     TextField updateField = new TextField();
+                    Text parallel = new Text("Parallel Mode: ");
+                    ChoiceBox<Parallel.Mode> modeBox = new ChoiceBox<>();
                     Button save = new Button("Save");
                     CheckBox continuous = new CheckBox("Continuous? ");
                     maxIterations.setText(String.valueOf(config.getIterations()));
                     updateField.setText(String.valueOf(config.getUpdateInterval()));
+                    modeBox.getItems().addAll(Parallel.Mode.values());
+                    modeBox.setValue(config.getParallelMode());
                     continuous.setSelected(config.isCont());
                     gp.add(max, 0, 0);
                     gp.add(maxIterations, 1, 0);
                     gp.add(update, 0, 1);
                     gp.add(updateField, 1,1);
-                    gp.add(continuous,0,2);
-                    gp.add(save, 0,3);
+                    int row = 2;
+                    if (x instanceof Parallel) {
+                        gp.add(parallel, 0, row);
+                        gp.add(modeBox, 1, row++);
+                    }
+                    gp.add(continuous,0,row);
+                    gp.add(save, 0,row + 1);
                     save.setOnAction((ActionEvent event1) -> {
                         while (true) {
                             config.setCont(continuous.isSelected());
+                            if (x instanceof Parallel && modeBox.getValue() != null)
+                                config.setParallelMode(modeBox.getValue());
                             try {
                                 config.setUpdateInterval(Integer.parseInt(updateField.getText()));
                                 if (Integer.parseInt(updateField.getText()) <= 0)
@@ -438,7 +531,7 @@ public final class AppUI extends UITemplate {
                     Stage stage = new Stage();
                     GridPane gp = new GridPane();
                     stage.setTitle(x.getClass().getName().split("\\.")[1]);
-                    Scene scene = new Scene(gp,160,150);
+                    Scene scene = new Scene(gp,160,150 + (x instanceof Batched ? 25 : 0) + (x instanceof Convergent ? 25 : 0));
                     stage.setScene(scene);
                     Text max = new Text("Max Iterations: ");
                     TextField maxIterations = new TextField();
@@ -446,11 +539,17 @@ public final class AppUI extends UITemplate {
                     TextField updateField = new TextField();
                     Text clusters = new Text("Number of Clusters: ");
                     TextField clustField = new TextField();
+                    Text batch = new Text("Batch Size: ");
+                    TextField batchField = new TextField();
+                    Text tolerance = new Text("Tolerance: ");
+                    TextField toleranceField = new TextField();
                     CheckBox continuous = new CheckBox("Continuous? ");
                     Button save = new Button("Save");
                     maxIterations.setText(String.valueOf(config.getIterations()));
                     updateField.setText(String.valueOf(config.getUpdateInterval()));
                     clustField.setText(String.valueOf(config.getLabels()));
+                    batchField.setText(String.valueOf(config.getBatchSize()));
+                    toleranceField.setText(String.valueOf(config.getTolerance()));
                     continuous.setSelected(config.isCont());
                     gp.add(max, 0, 0);
                     gp.add(maxIterations, 1, 0);
@@ -458,8 +557,17 @@ public final class AppUI extends UITemplate {
                     gp.add(updateField, 1,1);
                     gp.add(clusters, 0,2);
                     gp.add(clustField,1,2);
-                    gp.add(continuous,0,3);
-                    gp.add(save, 0, 4);
+                    int row = 3;
+                    if (x instanceof Batched) {
+                        gp.add(batch, 0, row);
+                        gp.add(batchField, 1, row++);
+                    }
+                    if (x instanceof Convergent) {
+                        gp.add(tolerance, 0, row);
+                        gp.add(toleranceField, 1, row++);
+                    }
+                    gp.add(continuous,0,row);
+                    gp.add(save, 0, row + 1);
                     save.setOnAction((ActionEvent event1) -> {
                         while (true) {
                             config.setCont(continuous.isSelected());
@@ -473,6 +581,16 @@ public final class AppUI extends UITemplate {
                                 config.setLabels(Integer.parseInt(clustField.getText()));
                                 if (Integer.parseInt(clustField.getText()) <= 0)
                                     throw new Exception();
+                                if (x instanceof Batched) {
+                                    config.setBatchSize(Integer.parseInt(batchField.getText()));
+                                    if (Integer.parseInt(batchField.getText()) <= 0)
+                                        throw new Exception();
+                                }
+                                if (x instanceof Convergent) {
+                                    config.setTolerance(Double.parseDouble(toleranceField.getText()));
+                                    if (!(Double.parseDouble(toleranceField.getText()) >= 0))
+                                        throw new Exception();
+                                }
                             }
                             catch (Exception e){
                                 ErrorDialog.getDialog().show("Incorrect Entry", "Enter a valid number");
@@ -506,10 +624,40 @@ public final class AppUI extends UITemplate {
     private void setWorkspaceActions() {
         setTextAreaActions();
         setDisplayButtonActions();
+        setValidateButtonActions();
         setCheckBoxActions();
+        setProjectionActions();
         setScrnshotActions();
     }
 
+    private void setProjectionActions() {
+        ChangeListener<Integer> projection = (observable, oldValue, newValue) -> {
+            if (resizingProjection)
+                return;
+            AppData dataComponent = (AppData) applicationTemplate.getDataComponent();
+            dataComponent.getProcessor().setProjection(xDimension.getValue() - 1, yDimension.getValue() - 1);
+            if (!chart.getData().isEmpty()) {
+                chart.getData().clear();
+                dataComponent.displayData();
+            }
+        };
+        xDimension.valueProperty().addListener(projection);
+        yDimension.valueProperty().addListener(projection);
+    }
+
+    /**
+     * Lets the dimensions shown on the chart be chosen among the specified number of dimensions of the data, without
+     * redrawing the chart.
+     */
+    public void setDimensions(int dimensions) {
+        resizingProjection = true;
+        ((SpinnerValueFactory.IntegerSpinnerValueFactory) xDimension.getValueFactory()).setMax(dimensions);
+        ((SpinnerValueFactory.IntegerSpinnerValueFactory) yDimension.getValueFactory()).setMax(dimensions);
+        resizingProjection = false;
+        ((AppData) applicationTemplate.getDataComponent()).getProcessor()
+                .setProjection(xDimension.getValue() - 1, yDimension.getValue() - 1);
+    }
+
     private void setScrnshotActions() {
         scrnshotButton.setOnAction(event -> {
             try {
@@ -566,13 +714,8 @@ public final class AppUI extends UITemplate {
     public void displayStats(boolean display) throws Exception {
         if (display)
         {
-            applicationTemplate.getDataComponent().clear();
             try {
-                String processString = ((AppUI)applicationTemplate.getUIComponent()).getCurrentText() + '\n';
-                for (String s : ((AppData)applicationTemplate.getDataComponent()).getExtraLines())
-                {
-                    processString += s + "\n";
-                }((AppData)applicationTemplate.getDataComponent()).getProcessor().processString(processString);
+                reparseIfChanged();
             } catch (Exception e) {
                 stats.setText("There is an error in the text area.");
                 throw new Exception();
@@ -584,6 +727,8 @@ public final class AppUI extends UITemplate {
                 dataFilePath = ((AppActions)applicationTemplate.getActionComponent()).getDataFilePath().toString();
             stats.setText(applicationTemplate.manager.getPropertyValue(AppPropertyTypes.INSTANCES.name()) +
                     ((AppData)applicationTemplate.getDataComponent()).getProcessor().getInstances() + "\n" +
+                    applicationTemplate.manager.getPropertyValue(AppPropertyTypes.DIMENSIONS.name()) +
+                    ((AppData)applicationTemplate.getDataComponent()).getProcessor().getDataSet().getDimensions() + "\n" +
                     applicationTemplate.manager.getPropertyValue(AppPropertyTypes.LABELS.name()) +
                     ((AppData)applicationTemplate.getDataComponent()).getProcessor().getNumOfLabels() + "\n" +
                     applicationTemplate.manager.getPropertyValue(AppPropertyTypes.LABEL_NAMES.name()) +
@@ -595,24 +740,37 @@ public final class AppUI extends UITemplate {
             stats.setText("Please Check Read Only");
     }
 
+    public void setHasNewText(boolean hasNewText) {
+        this.hasNewText = hasNewText;
+    }
+
+    /**
+     * Parses the text area, and the lines that do not fit in it, again. This is skipped if the text has not changed
+     * since it was last parsed, e.g., right after the data has been loaded from a file.
+     */
+    public void reparseIfChanged() throws Exception {
+        if (!hasNewText)
+            return;
+        ((AppData) applicationTemplate.getDataComponent()).loadText(textArea.getText());
+        hasNewText = false;
+    }
+
     private void setTextAreaActions() {
         textArea.textProperty().addListener((observable, oldValue, newValue) -> {
             try {
                 if (!newValue.equals(oldValue)) {
+                    hasNewText = true;
                     saveButton.setDisable(false);
-                    if (textArea.getText().split("\n").length < 10)
-                        if(!((AppData) applicationTemplate.getDataComponent()).getExtraLines().isEmpty()) {
-                            textArea.appendText(((AppData) applicationTemplate.getDataComponent()).getExtraLines().get(0) + "\n");
-                            ((AppData) applicationTemplate.getDataComponent()).getExtraLines().remove(0);
-                        }
+                    if (textArea.getText().split("\n").length < AppData.TEXT_AREA_LINES) {
+                        String hiddenLine = ((AppData) applicationTemplate.getDataComponent()).nextHiddenLine();
+                        if (hiddenLine != null)
+                            textArea.appendText(hiddenLine + "\n");
+                    }
                     if (!newValue.isEmpty()) {
                         ((AppActions) applicationTemplate.getActionComponent()).setIsUnsavedProperty(true);
-                        if (newValue.charAt(newValue.length() - 1) == '\n')
-                            hasNewText = true;
                         newButton.setDisable(false);
                         saveButton.setDisable(false);
                     } else {
-                        hasNewText = true;
                         newButton.setDisable(true);
                         saveButton.setDisable(true);
                     }
@@ -623,16 +781,16 @@ public final class AppUI extends UITemplate {
         });
     }
 
+    private void setValidateButtonActions() {
+        validateButton.setOnAction(event -> ((AppActions) applicationTemplate.getActionComponent()).handleValidateRequest());
+    }
+
     private void setDisplayButtonActions() {
         displayButton.setOnAction(event -> {
                 try {
                     chart.getData().clear();
                     AppData dataComponent = (AppData) applicationTemplate.getDataComponent();
-                    dataComponent.clear();
-                    String processString = textArea.getText() + '\n';
-                    for (String s : ((AppData)applicationTemplate.getDataComponent()).getExtraLines())
-                        processString += s + '\n';
-                    dataComponent.loadData(processString);
+                    reparseIfChanged();
                     dataComponent.displayData();
                     scrnshotButton.setDisable(false);
                 } catch (Exception e) {
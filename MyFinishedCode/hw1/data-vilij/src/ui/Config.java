@@ -1,9 +1,14 @@
 package ui;
 
+import algorithms.Parallel;
+
 public class Config {
     private int iterations;
     private int updateInterval;
     private int labels;
+    private int batchSize;
+    private double tolerance;
+    private Parallel.Mode parallelMode;
     private boolean cont;
 
     public int getIterations() {
@@ -30,6 +35,30 @@ public class Config {
         this.labels = labels;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public Parallel.Mode getParallelMode() {
+        return parallelMode;
+    }
+
+    public void setParallelMode(Parallel.Mode parallelMode) {
+        this.parallelMode = parallelMode;
+    }
+
     public boolean isCont() {
         return cont;
     }
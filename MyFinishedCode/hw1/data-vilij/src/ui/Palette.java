@@ -0,0 +1,31 @@
+package ui;
+
+import java.awt.Color;
+
+/**
+ * The colors of the labels on the chart, one for every label id. The first eight are the default colors of JavaFX
+ * charts, so that data with a few labels looks as it always did; after them, the hues go round the color wheel by the
+ * golden angle, which keeps every new color far from the ones before it, and the saturation and brightness vary from
+ * one turn of the wheel to the next, so that hundreds of labels, e.g., of clusters, still get colors of their own.
+ */
+public final class Palette {
+
+    private static final String[] DEFAULT_COLORS = {"#f3622d", "#fba71b", "#57b757", "#41a9c9",
+                                                    "#4258c9", "#9a42c8", "#c84164", "#888888"};
+
+    private static final float GOLDEN_ANGLE = 0.381966f;
+
+    private Palette() {}
+
+    /** @return the color of the label with the specified id, as a CSS hexadecimal color */
+    public static String color(int id) {
+        if (id < DEFAULT_COLORS.length)
+            return DEFAULT_COLORS[id];
+        int   n          = id - DEFAULT_COLORS.length;
+        float hue        = (n * GOLDEN_ANGLE) % 1;
+        int   turn       = n / 13;
+        float saturation = 0.85f - 0.2f * (turn % 3);
+        float brightness = 0.9f - 0.25f * (turn / 3 % 2);
+        return String.format("#%06x", Color.HSBtoRGB(hue, saturation, brightness) & 0xffffff);
+    }
+}
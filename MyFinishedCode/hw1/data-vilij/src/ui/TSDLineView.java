@@ -0,0 +1,58 @@
+package ui;
+
+import dataprocessors.AppData;
+import dataprocessors.TSDDocument;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.ListView;
+
+/**
+ * A read-only view of the lines of a {@link TSDDocument}. The list view only creates cells for the lines on screen, and
+ * the cells read their lines from the document as they scroll into view, so showing and scrolling through a document
+ * costs the same regardless of how many lines it has.
+ *
+ * @see AppUI#showDocument(TSDDocument)
+ */
+public final class TSDLineView extends ListView<String> {
+
+    /* every line has the same height, which lets the list view place a line without measuring the ones before it */
+    private static final double LINE_HEIGHT = 24;
+
+    public TSDLineView() {
+        setEditable(false);
+        setFixedCellSize(LINE_HEIGHT);
+        setPrefHeight(LINE_HEIGHT * AppData.TEXT_AREA_LINES);
+    }
+
+    public void setDocument(TSDDocument document) {
+        setItems(document == null ? FXCollections.observableArrayList() : new DocumentLines(document));
+    }
+
+    /** Shows the lines appended to the document from the specified line on, without scrolling the view. */
+    public void linesAppended(int from) {
+        if (getItems() instanceof DocumentLines)
+            ((DocumentLines) getItems()).appended(from);
+    }
+
+    /** The lines of a document, as a list that only changes when lines are appended to the document. */
+    private static final class DocumentLines extends ObservableListBase<String> {
+
+        private final TSDDocument document;
+
+        DocumentLines(TSDDocument document) {
+            this.document = document;
+        }
+
+        @Override
+        public String get(int index) { return document.getLine(index); }
+
+        @Override
+        public int size()            { return document.lineCount(); }
+
+        void appended(int from) {
+            beginChange();
+            nextAdd(from, document.lineCount());
+            endChange();
+        }
+    }
+}
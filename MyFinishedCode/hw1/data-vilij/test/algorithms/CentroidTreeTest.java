@@ -0,0 +1,88 @@
+package algorithms;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CentroidTreeTest {
+
+    /**
+     * Testing that the tree finds the same nearest centroid as comparing with every centroid, for many centroids in
+     * several numbers of dimensions, including points on top of centroids and centroids that coincide, where the first
+     * of them has to win.
+     */
+    @Test
+    public void nearestTest() {
+        Random random = new Random(23);
+        for (int dimensions : new int[]{2, 3, 7}) {
+            int      k         = 200;
+            int      size      = 5000;
+            double[] centroids = new double[k * dimensions];
+            for (int i = 0; i < centroids.length; i++)
+                centroids[i] = Math.floor(random.nextDouble() * 20);
+            System.arraycopy(centroids, 5 * dimensions, centroids, 150 * dimensions, dimensions);
+            double[] points = new double[size * dimensions];
+            for (int i = 0; i < points.length; i++)
+                points[i] = i < k * dimensions ? centroids[i] : Math.floor(random.nextDouble() * 20);
+            int[] expected = new int[size];
+            int[] found    = new int[size];
+            DistanceKernel.assign(points, 0, size, centroids, k, dimensions, expected);
+            new CentroidTree(centroids, k, dimensions).assign(points, 0, size, found);
+            assertArrayEquals(expected, found);
+            assertEquals(5, found[150]);
+        }
+    }
+
+    /**
+     * Testing that the distances to the nearest and second nearest centroids are those found by comparing with every
+     * centroid.
+     */
+    @Test
+    public void nearestTwoTest() {
+        Random   random     = new Random(24);
+        int      dimensions = 3;
+        int      k          = 64;
+        double[] centroids  = new double[k * dimensions];
+        for (int i = 0; i < centroids.length; i++)
+            centroids[i] = random.nextGaussian();
+        CentroidTree.Search search    = new CentroidTree(centroids, k, dimensions).new Search();
+        double[]            point     = new double[dimensions];
+        double[]            distances = new double[k];
+        for (int run = 0; run < 1000; run++) {
+            for (int d = 0; d < dimensions; d++)
+                point[d] = random.nextGaussian() * 2;
+            DistanceKernel.squaredDistances(point, 0, 1, centroids, k, dimensions, distances);
+            int nearest = search.nearestTwo(point, 0);
+            assertEquals(DistanceKernel.nearest(distances, 0, k), nearest);
+            assertEquals(distances[nearest], search.distance(), 0);
+            distances[nearest] = Double.POSITIVE_INFINITY;
+            Arrays.sort(distances);
+            assertEquals(distances[0], search.secondDistance(), 0);
+        }
+    }
+
+    /**
+     * Testing that an iteration with enough centroids for the tree to be used gives the assignments of a sequential
+     * search.
+     */
+    @Test
+    public void engineTest() {
+        Random   random     = new Random(25);
+        int      dimensions = 2;
+        int      k          = 100;
+        int      size       = KMeansEngine.MIN_TASK_SIZE * 2 + 1;
+        double[] points     = new double[size * dimensions];
+        for (int i = 0; i < points.length; i++)
+            points[i] = random.nextDouble() * 1000;
+        double[] centroids   = Arrays.copyOf(points, k * dimensions);
+        int[]    expected    = new int[size];
+        int[]    assignments = new int[size];
+        assertTrue(CentroidTree.pays(k, dimensions));
+        DistanceKernel.assign(points, 0, size, centroids, k, dimensions, expected);
+        new KMeansEngine().iterate(points, size, dimensions, centroids, k, assignments);
+        assertArrayEquals(expected, assignments);
+    }
+}
@@ -0,0 +1,23 @@
+package algorithms;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ClassifierTest {
+
+    /**
+     * Testing that a line is rounded to integer coefficients of the same line, scaled so that the larger coefficient of
+     * x or y has the largest magnitude, unless the constant would not fit.
+     */
+    @Test
+    public void lineTest() {
+        assertEquals(Arrays.asList(500000, -1000000, 250000), Classifier.line(new double[]{0.5, -1, 0.25}));
+        assertEquals(Arrays.asList(0, 0, 0), Classifier.line(new double[]{0, 0, 3}));
+        java.util.List<Integer> far = Classifier.line(new double[]{1, 1, -1e7});
+        assertEquals(Integer.MAX_VALUE / 2, -far.get(2), 1);
+        assertEquals(1e-7 * far.get(2), -far.get(0), 1);
+    }
+}
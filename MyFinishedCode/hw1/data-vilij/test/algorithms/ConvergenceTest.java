@@ -0,0 +1,73 @@
+package algorithms;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ConvergenceTest {
+
+    /**
+     * Testing that each signal tells on its own that the clusters have settled, with the matching reason, and that the
+     * reason is the maximum number of iterations as long as they have not.
+     */
+    @Test
+    public void reasonTest() {
+        Convergence convergence = new Convergence(0.01);
+        assertFalse(convergence.update(100, 5, 100));
+        assertEquals(Convergence.Reason.MAX_ITERATIONS, convergence.getReason());
+        assertFalse(convergence.update(10, 1, 50));
+        assertTrue(convergence.update(10, 1, 49.9));
+        assertEquals(Convergence.Reason.INERTIA_SETTLED, convergence.getReason());
+
+        convergence = new Convergence(0.01);
+        assertTrue(convergence.update(-1, 0.09, 100));
+        assertEquals(Convergence.Reason.CENTROIDS_SETTLED, convergence.getReason());
+
+        convergence = new Convergence(0);
+        assertFalse(convergence.update(-1, 1e-12, 100));
+        assertTrue(convergence.update(0, 1, 50));
+        assertEquals(Convergence.Reason.NO_REASSIGNMENTS, convergence.getReason());
+    }
+
+    /**
+     * Testing that batches of a large dataset, whose averaged inertia barely moves from one batch to the next, do not
+     * settle in the first iterations while their inertia is still falling, and that batches of a small dataset settle
+     * once their inertia has stopped improving, not as soon as it changes little.
+     */
+    @Test
+    public void batchTest() {
+        Random      random      = new Random(1);
+        Convergence convergence = new Convergence(Convergence.DEFAULT_TOLERANCE, 1024, 50000000);
+        for (int iteration = 1; iteration <= 200; iteration++) {
+            double inertia = (1 + 9 * Math.exp(-iteration / 20.0)) * (1 + 0.05 * random.nextGaussian());
+            assertFalse("stopped after " + iteration + " iterations",
+                        convergence.updateBatch(1.0 / iteration, inertia));
+        }
+        assertEquals(Convergence.Reason.MAX_ITERATIONS, convergence.getReason());
+
+        convergence = new Convergence(Convergence.DEFAULT_TOLERANCE, 1024, 2000);
+        int iteration = 0;
+        while (!convergence.updateBatch(1, 1 + 0.05 * random.nextGaussian()))
+            iteration++;
+        assertTrue(iteration >= Convergence.MAX_NO_IMPROVEMENT);
+        assertEquals(Convergence.Reason.NO_IMPROVEMENT, convergence.getReason());
+    }
+
+    /**
+     * Testing that the largest shift is the distance moved by the farthest moving centroid.
+     */
+    @Test
+    public void largestShiftTest() {
+        assertEquals(5, Convergence.largestShift(new double[]{0, 0, 1, 1}, new double[]{3, 4, 1, 2}, 2, 2), 0);
+    }
+
+    /**
+     * Testing that a negative tolerance is rejected.
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void negativeToleranceTest() {
+        new Convergence(-1);
+    }
+}
@@ -0,0 +1,64 @@
+package algorithms;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DistanceKernelTest {
+
+    private static double[] random(Random random, int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < values.length; i++)
+            values[i] = random.nextGaussian() * 100;
+        return values;
+    }
+
+    /**
+     * Testing that, for every number of dimensions from 2 to 17 and for a number of points that does not fill the last
+     * block, every point is assigned to the centroid that a plain search over <code>Math.sqrt</code> distances finds.
+     */
+    @Test
+    public void assignTest() {
+        Random random = new Random(17);
+        for (int dimensions = 2; dimensions <= 17; dimensions++) {
+            int      size        = DistanceKernel.BLOCK_SIZE * 3 + 5;
+            int      k           = 1 + random.nextInt(9);
+            double[] points      = random(random, size * dimensions);
+            double[] centroids   = random(random, k * dimensions);
+            int[]    assignments = new int[size];
+            DistanceKernel.assign(points, 0, size, centroids, k, dimensions, assignments);
+            for (int i = 0; i < size; i++) {
+                int    nearest  = -1;
+                double smallest = Double.MAX_VALUE;
+                for (int c = 0; c < k; c++) {
+                    double sum = 0;
+                    for (int d = 0; d < dimensions; d++)
+                        sum += Math.pow(points[i * dimensions + d] - centroids[c * dimensions + d], 2);
+                    if (Math.sqrt(sum) < smallest) {
+                        smallest = Math.sqrt(sum);
+                        nearest = c;
+                    }
+                }
+                assertEquals(nearest, assignments[i]);
+                assertEquals(smallest * smallest, DistanceKernel.squaredDistance(points, i * dimensions, centroids,
+                                                                                  nearest * dimensions, dimensions),
+                             1e-6 * smallest * smallest);
+            }
+        }
+    }
+
+    /**
+     * Testing that a point equally near to several centroids is assigned to the first of them, and that only the
+     * specified range of points is assigned.
+     */
+    @Test
+    public void tieTest() {
+        double[] points      = {0, 0, 1, 1, 5, 5};
+        double[] centroids   = {1, 0, 0, 1, -1, 0};
+        int[]    assignments = {-1, -1, -1};
+        DistanceKernel.assign(points, 0, 2, centroids, 3, 2, assignments);
+        assertArrayEquals(new int[]{0, 0, -1}, assignments);
+    }
+}
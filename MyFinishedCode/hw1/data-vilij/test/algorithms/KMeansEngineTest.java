@@ -0,0 +1,134 @@
+package algorithms;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class KMeansEngineTest {
+
+    /**
+     * Testing that parallel iterations over many ranges of points give the same assignments as a sequential search,
+     * centroids that are the means of their points, and the same centroids on one core as on several.
+     */
+    @Test
+    public void iterateTest() {
+        Random   random     = new Random(18);
+        int      size       = KMeansEngine.MIN_TASK_SIZE * 10 + 7;
+        int      dimensions = 3;
+        int      k          = 5;
+        double[] points     = new double[size * dimensions];
+        for (int i = 0; i < points.length; i++)
+            points[i] = random.nextGaussian() + (i / dimensions) % k * 10;
+        double[] centroids   = Arrays.copyOf(points, k * dimensions);
+        double[] sequential  = centroids.clone();
+        int[]    assignments = new int[size];
+        int[]    expected    = new int[size];
+        Arrays.fill(assignments, -1);
+
+        KMeansEngine parallel = new KMeansEngine(new ForkJoinPool(4));
+        KMeansEngine single   = new KMeansEngine(new ForkJoinPool(1));
+        int[]        other    = assignments.clone();
+        for (int iteration = 0; iteration < 5; iteration++) {
+            double[] before  = centroids.clone();
+            int      changed = parallel.iterate(points, size, dimensions, centroids, k, assignments);
+            single.iterate(points, size, dimensions, sequential, k, other);
+            assertArrayEquals(centroids, sequential, 0);
+
+            int[] previous = expected.clone();
+            DistanceKernel.assign(points, 0, size, before, k, dimensions, expected);
+            assertArrayEquals(expected, assignments);
+            int expectedChanged = 0;
+            for (int i = 0; i < size; i++)
+                if (iteration == 0 || previous[i] != expected[i])
+                    expectedChanged++;
+            assertEquals(expectedChanged, changed);
+            for (int c = 0; c < k; c++) {
+                double sum   = 0;
+                int    count = 0;
+                for (int i = 0; i < size; i++) {
+                    if (expected[i] == c) {
+                        sum += points[i * dimensions + 1];
+                        count++;
+                    }
+                }
+                assertEquals(sum / count, centroids[c * dimensions + 1], 1e-9);
+            }
+        }
+    }
+
+    /**
+     * Testing that iterations with bounds give exactly the assignments, centroids and inertia of iterations without
+     * them, from the same starting centroids, and that they skip most points once the centroids settle.
+     */
+    @Test
+    public void boundsTest() {
+        Random   random     = new Random(19);
+        int      size       = KMeansEngine.MIN_TASK_SIZE * 3 + 11;
+        int      dimensions = 2;
+        int      k          = 6;
+        double[] points     = new double[size * dimensions];
+        for (int i = 0; i < points.length; i++)
+            points[i] = random.nextGaussian() * 3 + (i / dimensions) % k * 4;
+        double[] centroids   = Arrays.copyOf(points, k * dimensions);
+        double[] bounded     = centroids.clone();
+        int[]    assignments = new int[size];
+        Arrays.fill(assignments, -1);
+        int[] boundedAssignments = assignments.clone();
+
+        KMeansEngine engine        = new KMeansEngine();
+        KMeansEngine boundedEngine = new KMeansEngine();
+        KMeansBounds bounds        = new KMeansBounds(size, k);
+        for (int iteration = 0; iteration < 30; iteration++) {
+            int changed = engine.iterate(points, size, dimensions, centroids, k, assignments);
+            assertEquals(changed, boundedEngine.iterate(points, size, dimensions, bounded, k, boundedAssignments,
+                                                        bounds));
+            assertArrayEquals(assignments, boundedAssignments);
+            assertArrayEquals(centroids, bounded, 0);
+            assertEquals(engine.getInertia(), boundedEngine.getInertia(), 0);
+        }
+        assertTrue(bounds.getSkipped() > size / 2);
+    }
+
+    /**
+     * Testing that assigning the points of many ranges in parallel gives the assignments of a sequential search, and
+     * leaves the centroids where they are.
+     */
+    @Test
+    public void assignTest() {
+        Random   random     = new Random(20);
+        int      size       = KMeansEngine.MIN_TASK_SIZE * 5 + 3;
+        int      dimensions = 4;
+        int      k          = 3;
+        double[] points     = new double[size * dimensions];
+        for (int i = 0; i < points.length; i++)
+            points[i] = random.nextDouble();
+        double[] centroids   = Arrays.copyOfRange(points, dimensions, (k + 1) * dimensions);
+        double[] before      = centroids.clone();
+        int[]    assignments = new int[size];
+        int[]    expected    = new int[size];
+        new KMeansEngine(new ForkJoinPool(4)).assign(points, size, dimensions, centroids, k, assignments);
+        DistanceKernel.assign(points, 0, size, centroids, k, dimensions, expected);
+        assertArrayEquals(expected, assignments);
+        assertArrayEquals(before, centroids, 0);
+    }
+
+    /**
+     * Testing that a centroid without any points stays where it was, and that the inertia is measured from the
+     * centroids before they move.
+     */
+    @Test
+    public void emptyClusterTest() {
+        double[]     points      = {0, 0, 2, 0};
+        double[]     centroids   = {1, 0, 100, 100};
+        int[]        assignments = {-1, -1};
+        KMeansEngine engine      = new KMeansEngine();
+        assertEquals(2, engine.iterate(points, 2, 2, centroids, 2, assignments));
+        assertEquals(2, engine.getInertia(), 0);
+        assertArrayEquals(new double[]{1, 0, 100, 100}, centroids, 0);
+        assertArrayEquals(new int[]{0, 0}, assignments);
+    }
+}
@@ -0,0 +1,77 @@
+package algorithms;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class KMeansSeederTest {
+
+    /**
+     * Testing that the seeds of points in well separated clusters are different points, one in every cluster, and that
+     * a seeder with the same seed chooses the same points on one core as on several.
+     */
+    @Test
+    public void seedTest() {
+        Random   random     = new Random(21);
+        int      size       = KMeansEngine.MIN_TASK_SIZE * 6 + 5;
+        int      dimensions = 3;
+        int      k          = 4;
+        double[] points     = new double[size * dimensions];
+        for (int i = 0; i < points.length; i++)
+            points[i] = random.nextGaussian() + (i / dimensions) % k * 100;
+
+        int[] seeds = new KMeansSeeder(new ForkJoinPool(4), 7).seed(points, size, dimensions, k);
+        assertArrayEquals(seeds, new KMeansSeeder(new ForkJoinPool(1), 7).seed(points, size, dimensions, k));
+        Set<Integer> clusters = new HashSet<>();
+        Set<Integer> distinct = new HashSet<>();
+        for (int seed : seeds) {
+            clusters.add(seed % k);
+            distinct.add(seed);
+        }
+        assertEquals(k, clusters.size());
+        assertEquals(k, distinct.size());
+    }
+
+    /**
+     * Testing that points that coincide give no more candidates than there are different points, and that the seeds
+     * are still different points, as many as there are points, or all points and then some of them again.
+     */
+    @Test
+    public void fewPointsTest() {
+        double[] points = new double[20];
+        Arrays.fill(points, 1);
+        points[0] = 5;
+        int[] seeds = new KMeansSeeder(ForkJoinPool.commonPool(), 3).seed(points, 10, 2, 4);
+        Set<Integer> distinct = new HashSet<>();
+        for (int seed : seeds)
+            distinct.add(seed);
+        assertEquals(4, distinct.size());
+
+        seeds = new KMeansSeeder(ForkJoinPool.commonPool(), 3).seed(points, 3, 2, 4);
+        distinct.clear();
+        for (int seed : seeds)
+            distinct.add(seed);
+        assertEquals(3, distinct.size());
+    }
+
+    /**
+     * Testing that the random numbers that decide which points are sampled lie in [0, 1) and depend on the point.
+     */
+    @Test
+    public void uniformTest() {
+        double sum = 0;
+        for (int i = 0; i < 100000; i++) {
+            double u = KMeansSeeder.uniform(42, i);
+            assertTrue(u >= 0 && u < 1);
+            sum += u;
+        }
+        assertEquals(0.5, sum / 100000, 0.01);
+        assertTrue(KMeansSeeder.uniform(42, 0) != KMeansSeeder.uniform(42, 1));
+    }
+}
@@ -0,0 +1,112 @@
+package algorithms;
+
+import data.DataSet;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class LogisticRegressionTest {
+
+    /* the number of instances of the first two labels on the wrong side of the line */
+    private static int misclassified(DataSet dataSet, double[] line) {
+        int wrong = 0;
+        for (int i = 0; i < dataSet.size(); i++) {
+            double value = line[0] * dataSet.getCoordinate(i, 0) + line[1] * dataSet.getCoordinate(i, 1) + line[2];
+            if (!dataSet.getLabel(i).equals("other") && value > 0 != dataSet.getLabel(i).equals("above"))
+                wrong++;
+        }
+        return wrong;
+    }
+
+    /* two clouds on either side of the line x + 2y = 40, far from the origin, and a few instances of a third label */
+    private static DataSet clouds(int size) {
+        DataSet dataSet = new DataSet();
+        Random  random  = new Random(24);
+        for (int i = 0; i < size; i++) {
+            double side = i % 2 == 0 ? 1 : -1;
+            dataSet.addInstance("@" + i, side > 0 ? "above" : "below", 1000 + random.nextGaussian() * 5 + side * 10,
+                                -480 + random.nextGaussian() * 5 + side * 20);
+        }
+        for (int i = 0; i < 10; i++)
+            dataSet.addInstance("@other" + i, "other", 1000, -480);
+        return dataSet;
+    }
+
+    /**
+     * Testing that the instances of the first two labels, and only them, are trained on, and that the learned line
+     * separates nearly all of them, with the positive label on the positive side.
+     */
+    @Test
+    public void separationTest() {
+        DataSet            dataSet = clouds(2000);
+        LogisticRegression model   = new LogisticRegression(dataSet, 0, 1, 1);
+        assertTrue(model.isTrainable());
+        assertEquals(2000, model.size());
+        assertEquals(dataSet.labelId("above"), model.getPositiveLabel());
+        assertEquals(dataSet.labelId("below"), model.getNegativeLabel());
+        double first = model.epoch();
+        double last  = first;
+        for (int epoch = 0; epoch < 20; epoch++)
+            last = model.epoch();
+        assertTrue(last < first);
+        assertTrue(misclassified(dataSet, model.getCoefficients()) < 20);
+    }
+
+    /**
+     * Testing that averaged training over many blocks gives the same line on one core as on four, and that the line
+     * separates the instances.
+     */
+    @Test
+    public void averagedTest() {
+        DataSet            dataSet = clouds(LogisticRegression.BLOCK_SIZE * 10 + 1);
+        LogisticRegression one     = new LogisticRegression(new ForkJoinPool(1), dataSet, 0, 1, 3);
+        LogisticRegression four    = new LogisticRegression(new ForkJoinPool(4), dataSet, 0, 1, 3);
+        for (int epoch = 0; epoch < 5; epoch++)
+            assertEquals(one.epoch(Parallel.Mode.AVERAGED), four.epoch(Parallel.Mode.AVERAGED), 0);
+        assertArrayEquals(one.getCoefficients(), four.getCoefficients(), 0);
+        assertTrue(misclassified(dataSet, four.getCoefficients()) < dataSet.size() / 100);
+    }
+
+    /**
+     * Testing that training on four threads at once, updating the weights without locks, separates the instances.
+     */
+    @Test
+    public void hogwildTest() {
+        DataSet            dataSet = clouds(LogisticRegression.BLOCK_SIZE * 10 + 1);
+        LogisticRegression model   = new LogisticRegression(new ForkJoinPool(4), dataSet, 0, 1, 3);
+        double             first   = model.epoch(Parallel.Mode.HOGWILD);
+        double             last    = first;
+        for (int epoch = 0; epoch < 5; epoch++)
+            last = model.epoch(Parallel.Mode.HOGWILD);
+        assertTrue(last <= first);
+        assertTrue(misclassified(dataSet, model.getCoefficients()) < dataSet.size() / 100);
+    }
+
+    /**
+     * Testing that training with the same seed gives the same line.
+     */
+    @Test
+    public void seedTest() {
+        LogisticRegression one = new LogisticRegression(clouds(2000), 0, 1, 7);
+        LogisticRegression two = new LogisticRegression(clouds(2000), 0, 1, 7);
+        for (int epoch = 0; epoch < 3; epoch++)
+            assertEquals(one.epoch(), two.epoch(), 0);
+        assertArrayEquals(one.getCoefficients(), two.getCoefficients(), 0);
+    }
+
+    /**
+     * Testing that data without two labels cannot be trained on.
+     */
+    @Test
+    public void untrainableTest() {
+        DataSet dataSet = new DataSet();
+        dataSet.addInstance("@a", "one", 1, 2);
+        dataSet.addInstance("@b", "null", 3, 4);
+        LogisticRegression model = new LogisticRegression(dataSet, 0, 1, 1);
+        assertFalse(model.isTrainable());
+        assertEquals(0, model.epoch(), 0);
+    }
+}
@@ -0,0 +1,54 @@
+package data;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.*;
+
+public class DataSessionTest {
+
+    /**
+     * Testing that opening an unchanged file again gives a view of the same columns, and that a changed file is read
+     * again.
+     */
+    @Test
+    public void cacheTest() throws Exception {
+        Path file = Files.createTempFile("session", ".tsd");
+        file.toFile().deleteOnExit();
+        Files.write(file, "@a\tone\t1,2\n@b\ttwo\t3,4\n".getBytes("UTF-8"));
+        DataSet first  = DataSession.open(file);
+        DataSet second = DataSession.open(file);
+        assertNotSame(first, second);
+        assertSame(first.getCoordinates(), second.getCoordinates());
+
+        first.updateLabel("@a", "changed");
+        assertEquals("one", DataSession.open(file).getLabel(0));
+
+        Files.write(file, "@a\tone\t5,6\n".getBytes("UTF-8"));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+        DataSet third = DataSession.open(file);
+        assertEquals(1, third.size());
+        assertEquals(5, third.getCoordinate(0, 0), 0);
+    }
+
+    /**
+     * Testing that a file with errors is reported, and not kept.
+     */
+    @Test
+    public void invalidFileTest() throws Exception {
+        Path file = Files.createTempFile("session", ".tsd");
+        file.toFile().deleteOnExit();
+        Files.write(file, "a\tone\t1,2\n".getBytes("UTF-8"));
+        try {
+            DataSession.open(file);
+            fail();
+        } catch (Exception expected) {
+        }
+        Files.write(file, "@a\tone\t1,2\n".getBytes("UTF-8"));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+        assertEquals(1, DataSession.open(file).size());
+    }
+}
@@ -0,0 +1,225 @@
+package data;
+
+import javafx.geometry.Point2D;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.*;
+
+public class DataSetTest {
+
+    /**
+     * Testing that instances added past the initial capacity can still be found by name, and that their columns hold
+     * the values they were added with.
+     */
+    @Test
+    public void growthTest() {
+        DataSet dataSet = new DataSet();
+        for (int i = 0; i < 1000; i++)
+            dataSet.addInstance("@" + i, "label" + (i % 3), i, -i);
+        assertEquals(1000, dataSet.size());
+        assertEquals(3, dataSet.getLabelDictionary().usedCount());
+        for (int i = 0; i < 1000; i++) {
+            int index = dataSet.indexOf("@" + i);
+            assertEquals(i, index);
+            assertEquals(i, dataSet.getCoordinate(index, 0), 0);
+            assertEquals(-i, dataSet.getCoordinate(index, 1), 0);
+            assertEquals("label" + (i % 3), dataSet.getLabel(index));
+        }
+        assertEquals(-1, dataSet.indexOf("@1000"));
+    }
+
+    /**
+     * Testing that adding an existing name replaces that instance instead of adding a second one.
+     */
+    @Test
+    public void replaceTest() {
+        DataSet dataSet = new DataSet();
+        dataSet.addInstance("@a", "one", 1, 1);
+        dataSet.addInstance("@a", "two", 2, 2);
+        assertEquals(1, dataSet.size());
+        assertEquals("two", dataSet.getLabel(0));
+        assertEquals(2, dataSet.getCoordinate(0, 0), 0);
+    }
+
+    /**
+     * Testing that the map views read from and write into the columns.
+     */
+    @Test
+    public void viewTest() {
+        DataSet dataSet = new DataSet();
+        dataSet.addInstance("@a", "one", 1, 2);
+        dataSet.addInstance("@b", "two", 3, 4);
+        Map<String, String>  labels    = dataSet.getLabels();
+        Map<String, Point2D> locations = dataSet.getLocations();
+        assertEquals(2, labels.size());
+        assertEquals("two", labels.get("@b"));
+        assertEquals(new Point2D(1, 2), locations.get("@a"));
+
+        labels.put("@a", "two");
+        locations.put("@b", new Point2D(5, 6));
+        assertEquals(dataSet.labelId("two"), dataSet.getLabelIds()[0]);
+        assertEquals(5, dataSet.getCoordinate(1, 0), 0);
+        for (Map.Entry<String, String> entry : labels.entrySet())
+            entry.setValue("three");
+        assertEquals("three", dataSet.getLabel(1));
+    }
+
+    /**
+     * Testing that a label cannot be set through the view for an instance that does not exist.
+     */
+    @Test(expected = NoSuchElementException.class)
+    public void unknownInstanceTest() {
+        new DataSet().getLabels().put("@a", "label");
+    }
+
+    /**
+     * Testing that the label dictionary counts the instances with each label as they are added, relabeled and
+     * removed, and that the unlabeled instances are not counted as a label.
+     */
+    @Test
+    public void labelStatisticsTest() {
+        DataSet         dataSet    = new DataSet();
+        LabelDictionary dictionary = dataSet.getLabelDictionary();
+        dataSet.addInstance("@a", "one", 1, 1);
+        dataSet.addInstance("@b", "two", 2, 2);
+        dataSet.addInstance("@c", LabelDictionary.UNLABELED_NAME, 3, 3);
+        assertEquals(2, dictionary.usedCount());
+        assertEquals(Arrays.asList("one", "two"), dictionary.usedNames());
+        assertEquals(1, dictionary.sizeOf(LabelDictionary.UNLABELED));
+
+        dataSet.updateLabel("@b", "one");
+        assertEquals(2, dictionary.sizeOf(dataSet.labelId("one")));
+        assertEquals(Arrays.asList("one"), dictionary.usedNames());
+        dataSet.addInstance("@c", "three", 3, 3);
+        assertEquals(0, dictionary.sizeOf(LabelDictionary.UNLABELED));
+        assertEquals(2, dictionary.usedCount());
+        dataSet.removeInstance("@a");
+        dataSet.removeInstance("@b");
+        assertEquals(Arrays.asList("three"), dictionary.usedNames());
+        dataSet.clear();
+        assertEquals(0, dictionary.usedCount());
+        assertEquals(LabelDictionary.UNLABELED, dataSet.labelId(LabelDictionary.UNLABELED_NAME));
+    }
+
+    /**
+     * Testing that removing instances keeps every other instance reachable by name, with its own values.
+     */
+    @Test
+    public void removeTest() {
+        DataSet dataSet = new DataSet();
+        for (int i = 0; i < 1000; i++)
+            dataSet.addInstance("@" + i, "label", i, i);
+        for (int i = 0; i < 1000; i += 3)
+            assertTrue(dataSet.removeInstance("@" + i));
+        assertFalse(dataSet.removeInstance("@0"));
+        assertEquals(666, dataSet.size());
+        for (int i = 0; i < 1000; i++) {
+            int index = dataSet.indexOf("@" + i);
+            if (i % 3 == 0)
+                assertEquals(-1, index);
+            else
+                assertEquals(i, dataSet.getCoordinate(index, 0), 0);
+        }
+        assertEquals(666, dataSet.getLabelDictionary().sizeOf(dataSet.labelId("label")));
+    }
+
+    /**
+     * Testing that a shared dataset uses the same columns until one of the two datasets changes them, and that the
+     * change is not seen by the other one.
+     */
+    @Test
+    public void shareTest() {
+        DataSet original = new DataSet();
+        original.addInstance("@a", "one", 1, 1);
+        original.addInstance("@b", "two", 2, 2);
+        DataSet shared = original.share();
+        assertSame(original.getCoordinates(), shared.getCoordinates());
+        assertSame(original.getLabelIds(), shared.getLabelIds());
+
+        shared.updateLabel("@a", "three");
+        assertSame(original.getCoordinates(), shared.getCoordinates());
+        assertNotSame(original.getLabelIds(), shared.getLabelIds());
+        assertEquals("one", original.getLabel(0));
+        assertEquals("three", shared.getLabel(0));
+        assertEquals(Arrays.asList("one", "two"), original.getLabelDictionary().usedNames());
+
+        original.addInstance("@c", "one", 3, 3);
+        original.setCoordinates(1, 5, 5);
+        assertEquals(2, shared.size());
+        assertEquals(-1, shared.indexOf("@c"));
+        assertEquals(2, shared.getCoordinate(1, 0), 0);
+        shared.clear();
+        assertEquals(3, original.size());
+    }
+
+    /**
+     * Testing that the coordinates of every instance are stored row by row, that an instance with another number of
+     * coordinates is rejected, and that an empty dataset takes the dimensions of its first instance.
+     */
+    @Test
+    public void dimensionsTest() {
+        DataSet dataSet = new DataSet();
+        assertEquals(DataSet.DEFAULT_DIMENSIONS, dataSet.getDimensions());
+        for (int i = 0; i < 100; i++)
+            dataSet.addInstance("@" + i, "label", i, -i, 2 * i);
+        assertEquals(3, dataSet.getDimensions());
+        assertEquals(-7, dataSet.getCoordinates()[7 * 3 + 1], 0);
+        assertEquals("@7\tlabel\t7.0,-7.0,14.0", dataSet.toTSDLine(7));
+        try {
+            dataSet.addInstance("@flat", "label", 1, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(-1, dataSet.indexOf("@flat"));
+        }
+
+        dataSet.removeInstance("@0");
+        assertEquals(99, dataSet.getCoordinate(dataSet.indexOf("@99"), 0), 0);
+        assertEquals(198, dataSet.getCoordinate(dataSet.indexOf("@99"), 2), 0);
+        dataSet.clear();
+        dataSet.addInstance("@flat", "label", 1, 1);
+        assertEquals(2, dataSet.getDimensions());
+    }
+
+    /**
+     * Testing that a dataset loaded from whole columns, of a size that is not a power of two, finds its instances by
+     * name, counts its labels and can still grow and shrink, and that a load with two equal names is rejected.
+     */
+    @Test
+    public void loadTest() {
+        DataSet  dataSet     = new DataSet();
+        int      label       = dataSet.labelId("label");
+        int      size        = 1000;
+        String[] names       = new String[size];
+        double[] coordinates = new double[size * 3];
+        int[]    labelIds    = new int[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = "@" + i;
+            coordinates[i * 3] = i;
+            labelIds[i] = i % 2 == 0 ? label : 0;
+        }
+        dataSet.load(names, coordinates, 3, labelIds, size);
+        assertEquals(size, dataSet.size());
+        assertEquals(3, dataSet.getDimensions());
+        assertEquals(size / 2, dataSet.getLabelDictionary().sizeOf(label));
+        for (int i = 0; i < size; i++)
+            assertEquals(i, dataSet.indexOf("@" + i));
+        for (int i = size; i < 3 * size; i++)
+            dataSet.addInstance("@" + i, "label", i, 0, 0);
+        assertTrue(dataSet.removeInstance("@0"));
+        assertEquals(3 * size - 1, dataSet.size());
+        assertEquals(3 * size - 1, dataSet.getCoordinate(dataSet.indexOf("@" + (3 * size - 1)), 0), 0);
+
+        DataSet duplicates = new DataSet();
+        try {
+            duplicates.load(new String[]{"@a", "@b", "@a"}, new double[6], 2, new int[3], 3);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(0, duplicates.size());
+            assertEquals(-1, duplicates.indexOf("@a"));
+        }
+    }
+}
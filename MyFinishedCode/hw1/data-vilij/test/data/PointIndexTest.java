@@ -0,0 +1,64 @@
+package data;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PointIndexTest {
+
+    /**
+     * Testing that the points at a location, including several at the same coordinates, are the same as those found by
+     * scanning every point.
+     */
+    @Test
+    public void pointsAtTest() {
+        Random   random = new Random(219);
+        int      size   = 5000;
+        double[] x      = new double[size];
+        double[] y      = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = random.nextInt(40);
+            y[i] = random.nextInt(40) / 4.0;
+        }
+        x[7] = Double.NaN;
+        PointIndex index = new PointIndex(x, y, size);
+        for (int i = 0; i < size; i += 7) {
+            int[] expected = new int[size];
+            int   count    = 0;
+            for (int j = 0; j < size; j++)
+                if (Double.compare(x[j], x[i]) == 0 && Double.compare(y[j], y[i]) == 0)
+                    expected[count++] = j;
+            assertArrayEquals(Arrays.copyOf(expected, count), index.pointsAt(x[i], y[i]));
+        }
+        assertEquals(0, index.pointsAt(0.5, 0.5).length);
+    }
+
+    /**
+     * Testing that the nearest point is as near as the nearest one found by scanning every point.
+     */
+    @Test
+    public void nearestTest() {
+        Random   random = new Random(219);
+        int      size   = 3000;
+        double[] x      = new double[size];
+        double[] y      = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = random.nextGaussian() * 100;
+            y[i] = random.nextGaussian();
+        }
+        PointIndex index = new PointIndex(x, y, size);
+        for (int query = 0; query < 1000; query++) {
+            double qx   = random.nextGaussian() * 150;
+            double qy   = random.nextGaussian() * 2;
+            double best = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < size; j++)
+                best = Math.min(best, (x[j] - qx) * (x[j] - qx) + (y[j] - qy) * (y[j] - qy));
+            int found = index.nearest(qx, qy);
+            assertEquals(best, (x[found] - qx) * (x[found] - qx) + (y[found] - qy) * (y[found] - qy), 0);
+        }
+        assertEquals(-1, new PointIndex(new double[0], new double[0], 0).nearest(0, 0));
+    }
+}
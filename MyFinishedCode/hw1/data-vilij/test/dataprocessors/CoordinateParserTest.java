@@ -0,0 +1,77 @@
+package dataprocessors;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CoordinateParserTest {
+
+    private static void assertSameAsJDK(String number) {
+        ByteBuffer bytes = ByteBuffer.wrap(("," + number + ",").getBytes(StandardCharsets.UTF_8));
+        String     expected;
+        try {
+            expected = Long.toHexString(Double.doubleToRawLongBits(Double.parseDouble(number)));
+        } catch (NumberFormatException e) {
+            expected = e.getMessage();
+        }
+        String fromChars;
+        String fromBytes;
+        try {
+            fromChars = Long.toHexString(Double.doubleToRawLongBits(CoordinateParser.parse(number, 0, number.length())));
+        } catch (NumberFormatException e) {
+            fromChars = e.getMessage();
+        }
+        try {
+            fromBytes = Long.toHexString(Double.doubleToRawLongBits(CoordinateParser.parse(bytes, 1, bytes.limit() - 1)));
+        } catch (NumberFormatException e) {
+            fromBytes = e.getMessage();
+        }
+        assertEquals(number, expected, fromChars);
+        assertEquals(number, expected, fromBytes);
+    }
+
+    /**
+     * Testing that unusual but valid numbers, and invalid ones, give the same result or error message as the JDK.
+     */
+    @Test
+    public void edgeCaseTest() {
+        String[] numbers = {
+                "0", "-0", "+0.0", "1.", ".5", "-.5e-3", "007", "1e22", "1e23", "123456789e20", "9007199254740993",
+                "0.1", "1234567890123456789", "0.000000000000000000001", "1e-400", "1e400", "4.9e-324", " 1.5", "1.5\t",
+                "1.5d", "2f", "0x1p3", "NaN", "-Infinity", "", "-", ".", "e5", "1e", "1e+", "1e+-5", "1,5", "1.2.3",
+                "x", "1e0010", "1e99999999999"
+        };
+        for (String number : numbers)
+            assertSameAsJDK(number);
+    }
+
+    /**
+     * Testing that randomly generated decimal numbers of every length and exponent give the same bits as the JDK.
+     */
+    @Test
+    public void randomTest() {
+        Random random = new Random(219);
+        for (int n = 0; n < 200000; n++) {
+            StringBuilder number = new StringBuilder();
+            if (random.nextBoolean())
+                number.append('-');
+            int integerDigits = random.nextInt(12);
+            for (int i = 0; i < integerDigits; i++)
+                number.append(random.nextInt(10));
+            if (integerDigits == 0 || random.nextBoolean()) {
+                number.append('.');
+                int fractionDigits = 1 + random.nextInt(12);
+                for (int i = 0; i < fractionDigits; i++)
+                    number.append(random.nextInt(10));
+            }
+            if (random.nextInt(4) == 0)
+                number.append('e').append(random.nextInt(60) - 30);
+            assertSameAsJDK(number.toString());
+            assertSameAsJDK(Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20)));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package dataprocessors;
+
+import data.DataSet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class IncrementalTSDParserTest {
+
+    private static final String[] SAMPLE_LINES = {
+            "@a\tone\t1,2", "@b\ttwo\t3,4", "@a\tone\t5,6", "b\tone\t1,1", "@c\tone\t1", "@d\tone\tx,1", "",
+            "@e\tnull\t7,8", "@f\ttwo\t-1,-2\r", "@c\tthree\t0,0", "@g\tone\t1,2,3", "@a\ttwo\t4,5,6"
+    };
+
+    private static String check(IncrementalTSDParser parser) {
+        try {
+            parser.check(new TSDValidator());
+            return null;
+        } catch (TSDValidator.InvalidDataException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static Set<String> instances(DataSet dataSet) {
+        Set<String> instances = new HashSet<>();
+        for (int i = 0; i < dataSet.size(); i++)
+            instances.add(dataSet.toTSDLine(i));
+        return instances;
+    }
+
+    /**
+     * Testing that a single edited line is the only one parsed again, and that the dataset follows the edit.
+     */
+    @Test
+    public void singleLineTest() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 100000; i++)
+            lines.add("@" + i + "\tlabel\t" + i + ",0");
+        DataSet              dataSet = new DataSet();
+        IncrementalTSDParser parser  = new IncrementalTSDParser(dataSet);
+        assertEquals(100000, parser.update(lines));
+        lines.set(500, "@renamed\tother\t1,1");
+        assertEquals(1, parser.update(lines));
+        parser.check(new TSDValidator());
+        assertEquals(100000, dataSet.size());
+        assertEquals(-1, dataSet.indexOf("@500"));
+        assertEquals("other", dataSet.getLabel(dataSet.indexOf("@renamed")));
+        assertEquals(0, parser.update(lines));
+    }
+
+    /**
+     * Testing that, after every one of many random edits, the errors are the same as those of a full parse, and that
+     * the dataset holds the same instances whenever the data is valid.
+     */
+    @Test
+    public void matchesFullParseTest() {
+        Random               random  = new Random(219);
+        List<String>         lines   = new ArrayList<>(Arrays.asList(SAMPLE_LINES));
+        DataSet              dataSet = new DataSet();
+        IncrementalTSDParser parser  = new IncrementalTSDParser(dataSet);
+        for (int edit = 0; edit < 2000; edit++) {
+            String text = SAMPLE_LINES[random.nextInt(SAMPLE_LINES.length)];
+            int    at   = lines.isEmpty() ? 0 : random.nextInt(lines.size());
+            switch (lines.isEmpty() ? 0 : random.nextInt(3)) {
+                case 0:  lines.add(random.nextInt(lines.size() + 1), text); break;
+                case 1:  lines.set(at, text); break;
+                default: lines.remove(at);
+            }
+            parser.update(lines);
+
+            DataSet expected = new DataSet();
+            String  error    = null;
+            try {
+                TSDParser.parse(String.join("\n", lines), expected::addInstance);
+            } catch (Exception e) {
+                error = e.getMessage();
+            }
+            assertEquals(error, check(parser));
+            if (error == null)
+                assertEquals(instances(expected), instances(dataSet));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package dataprocessors;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class NameFingerprintsTest {
+
+    /**
+     * Testing that names that share a fingerprint are told apart by their bytes in the file, so that only a name that
+     * really is the same as an earlier one is a duplicate, and not a longer or shorter name with the same start.
+     *
+     * @throws Exception
+     *          if the file cannot be written
+     */
+    @Test
+    public void collisionTest() throws Exception {
+        String data = "@ab\tl\t1,1\n@a\tl\t1,1\n@abc\tl\t1,1\n@ab\tl\t1,1\n";
+        Path   file = Files.createTempFile("fingerprints", ".tsd");
+        file.toFile().deleteOnExit();
+        Files.write(file, data.getBytes(StandardCharsets.UTF_8));
+        ByteBuffer bytes = ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            NameFingerprints names = new NameFingerprints(channel);
+            assertTrue(names.add(42, bytes, 0, 3, 0));
+            assertTrue(names.add(42, bytes, 10, 12, 10));
+            assertTrue(names.add(42, bytes, 19, 23, 19));
+            assertFalse(names.add(42, bytes, 30, 33, 30));
+            assertEquals(3, names.size());
+        }
+    }
+
+    /**
+     * Testing that the table grows with the number of names, from a small one, and still finds every earlier name.
+     *
+     * @throws Exception
+     *          if the file cannot be written
+     */
+    @Test
+    public void growthTest() throws Exception {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 5000; i++)
+            data.append("@").append(i).append("\tl\t1,1\n");
+        byte[] contents = data.toString().getBytes(StandardCharsets.UTF_8);
+        Path   file     = Files.createTempFile("fingerprints", ".tsd");
+        file.toFile().deleteOnExit();
+        Files.write(file, contents);
+        ByteBuffer bytes = ByteBuffer.wrap(contents);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            NameFingerprints names = new NameFingerprints(channel);
+            for (int pass = 0; pass < 2; pass++) {
+                for (int start = 0; start < contents.length; ) {
+                    int end = start;
+                    while (contents[end] != '\t')
+                        end++;
+                    assertEquals(pass == 0, names.add(bytes, start, end, start));
+                    while (contents[start] != '\n')
+                        start++;
+                    start++;
+                }
+            }
+            assertEquals(5000, names.size());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package dataprocessors;
+
+import data.DataSet;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+public class TSDBCodecTest {
+
+    private static DataSet sample() {
+        DataSet dataSet = new DataSet();
+        dataSet.addInstance("@a", "one", 1.5, -2);
+        dataSet.addInstance("@\u00fcn\u00efcode", "two", 0, 1e300);
+        dataSet.addInstance("@c", "one", -0.25, 3);
+        return dataSet;
+    }
+
+    /**
+     * Testing that a dataset written to a <code>.tsdb</code> file is read back with the same names, labels and
+     * locations, in the same order.
+     */
+    @Test
+    public void roundTripTest() throws IOException {
+        Path    file     = Files.createTempFile("codec", ".tsdb");
+        DataSet original = sample();
+        TSDBCodec.write(original, file);
+        DataSet read = TSDBCodec.read(file);
+        assertEquals(original.size(), read.size());
+        for (int i = 0; i < original.size(); i++)
+            assertEquals(original.toTSDLine(i), read.toTSDLine(i));
+        Files.delete(file);
+    }
+
+    /**
+     * Testing that converting a <code>.tsd</code> file to a <code>.tsdb</code> file and back gives the same lines.
+     */
+    @Test
+    public void convertTest() throws Exception {
+        Path tsd    = Files.createTempFile("codec", ".tsd");
+        Path tsdb   = Files.createTempFile("codec", ".tsdb");
+        Path result = Files.createTempFile("codec", ".tsd");
+        Files.write(tsd, "@a\tone\t1.5,-2.0\n@b\ttwo\t0.0,3.0\n".getBytes("UTF-8"));
+        TSDBCodec.convert(tsd, tsdb);
+        TSDBCodec.convert(tsdb, result);
+        assertEquals(new String(Files.readAllBytes(tsd), "UTF-8"), new String(Files.readAllBytes(result), "UTF-8"));
+        Files.delete(tsd);
+        Files.delete(tsdb);
+        Files.delete(result);
+    }
+
+    /**
+     * Testing that a truncated or altered file is rejected instead of being read as data.
+     */
+    @Test
+    public void corruptedTest() throws IOException {
+        Path file = Files.createTempFile("codec", ".tsdb");
+        TSDBCodec.write(sample(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 20] ^= 1;
+        Files.write(file, bytes);
+        try {
+            TSDBCodec.read(file);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("corrupted"));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(bytes.length - 4);
+        }
+        try {
+            TSDBCodec.read(file);
+            fail();
+        } catch (IOException expected) {
+        }
+        Files.delete(file);
+    }
+
+    /**
+     * Testing that every coordinate of a dataset of more than two dimensions is written and read back, and that a file
+     * of the first version, with an x and a y column, can still be read.
+     */
+    @Test
+    public void dimensionsTest() throws IOException {
+        Path    file     = Files.createTempFile("codec", ".tsdb");
+        DataSet original = new DataSet();
+        for (int i = 0; i < 100; i++)
+            original.addInstance("@" + i, "label", i, 0, -i, 1e-3 * i, 5);
+        TSDBCodec.write(original, file);
+        DataSet read = TSDBCodec.read(file);
+        assertEquals(5, read.getDimensions());
+        for (int i = 0; i < original.size(); i++)
+            assertEquals(original.toTSDLine(i), read.toTSDLine(i));
+
+        ByteBuffer firstVersion = ByteBuffer.allocate(64);
+        firstVersion.putInt(0x54534442).putInt(1).putInt(1).putInt(1).putInt(2);
+        firstVersion.putInt(3).put("one".getBytes("UTF-8")).putInt(2).put("@a".getBytes("UTF-8"));
+        firstVersion.putDouble(1.5).putDouble(-2).putInt(0);
+        CRC32 checksum = new CRC32();
+        checksum.update(firstVersion.array(), 0, firstVersion.position());
+        firstVersion.putLong(checksum.getValue());
+        Files.write(file, Arrays.copyOf(firstVersion.array(), firstVersion.position()));
+        assertEquals("@a\tone\t1.5,-2.0", TSDBCodec.read(file).toTSDLine(0));
+        Files.delete(file);
+    }
+}
@@ -0,0 +1,74 @@
+package dataprocessors;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TSDDocumentTest {
+
+    private static Path write(String contents) throws Exception {
+        Path file = Files.createTempFile("document", ".tsd");
+        file.toFile().deleteOnExit();
+        Files.write(file, contents.getBytes("UTF-8"));
+        return file;
+    }
+
+    /**
+     * Testing that every line of a file is found, in and out of order, with or without a trailing new line and with
+     * Windows new lines.
+     */
+    @Test
+    public void openTest() throws Exception {
+        StringBuilder contents = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            contents.append("@").append(i).append("\tlabel\t").append(i).append(",0\r\n");
+        contents.append("@last\tlabel\t0,0");
+        try (TSDDocument document = TSDDocument.open(write(contents.toString()))) {
+            assertEquals(1001, document.lineCount());
+            assertEquals("@last\tlabel\t0,0", document.getLine(1000));
+            assertEquals("@129\tlabel\t129,0", document.getLine(129));
+            assertEquals("@0\tlabel\t0,0", document.getLine(0));
+            List<String> lines = new ArrayList<>(document.lines());
+            for (int i = 0; i < 1000; i++)
+                assertEquals("@" + i + "\tlabel\t" + i + ",0", lines.get(i));
+        }
+        try (TSDDocument document = TSDDocument.open(write(""))) {
+            assertEquals(0, document.lineCount());
+        }
+    }
+
+    /**
+     * Testing that edits anywhere in the document give the same lines as the same edits on a plain list.
+     */
+    @Test
+    public void replaceTest() throws Exception {
+        List<String> expected = new ArrayList<>(Arrays.asList("a", "b", "c", "d", "e", "f"));
+        try (TSDDocument document = TSDDocument.open(write("a\nb\nc\nd\ne\nf\n"))) {
+            document.replace(1, 3, Arrays.asList("x", "y", "z"));
+            expected.subList(1, 3).clear();
+            expected.addAll(1, Arrays.asList("x", "y", "z"));
+            assertEquals(expected, document.lines());
+
+            document.replace(0, 0, Collections.singletonList("first"));
+            expected.add(0, "first");
+            document.replace(3, 6, Collections.<String>emptyList());
+            expected.subList(3, 6).clear();
+            document.replace(document.lineCount(), document.lineCount(), Collections.singletonList("end"));
+            expected.add("end");
+            assertEquals(expected, document.lines());
+            assertEquals(expected, new ArrayList<>(document.lines()));
+
+            StringWriter writer = new StringWriter();
+            document.writeTo(writer);
+            assertEquals(String.join("\n", expected) + "\n", writer.toString());
+        }
+    }
+}
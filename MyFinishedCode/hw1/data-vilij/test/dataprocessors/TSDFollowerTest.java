@@ -0,0 +1,119 @@
+package dataprocessors;
+
+import data.DataSet;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TSDFollowerTest {
+
+    private static final Object REWRITTEN = new Object();
+
+    private final BlockingQueue<Object> changes = new LinkedBlockingQueue<>();
+
+    private final TSDFollower.Listener listener = new TSDFollower.Listener() {
+        @Override
+        public void appended(TSDFollower.Appended appended) { changes.add(appended); }
+
+        @Override
+        public void rewritten()                             { changes.add(REWRITTEN); }
+    };
+
+    private static void append(Path file, String contents) throws Exception {
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    private Object next() throws InterruptedException {
+        Object change = changes.poll(20, TimeUnit.SECONDS);
+        assertNotNull(change);
+        return change;
+    }
+
+    /**
+     * Testing that only complete appended lines are read, numbered after the lines already read, that their
+     * instances are added unless their names are taken, and that replacing the file asks for it to be loaded again.
+     */
+    @Test
+    public void followTest() throws Exception {
+        Path    directory = Files.createTempDirectory("follower");
+        Path    file      = directory.resolve("data.tsd");
+        DataSet dataSet   = new DataSet();
+        Files.write(file, "@a\tlabel\t1,1\n".getBytes(StandardCharsets.UTF_8));
+        TSDParser.parse(file, dataSet::addInstance);
+
+        try (TSDFollower follower = new TSDFollower(file, Files.size(file), 1, listener)) {
+            append(file, "@b\tlabel\t2,2\r\n@a\tlabel\t3,3\n@c\tla");
+            TSDFollower.Appended appended = (TSDFollower.Appended) next();
+            assertEquals(1, appended.getFirstLine());
+            assertEquals(Arrays.asList("@b\tlabel\t2,2", "@a\tlabel\t3,3"), appended.getLines());
+            TSDValidator validator = new TSDValidator();
+            appended.addTo(dataSet, validator);
+            assertEquals(2, dataSet.size());
+            assertEquals(1, validator.getErrorCount());
+            assertEquals(3, validator.getErrors().get(0).getLine());
+            assertEquals(TSDValidator.DUPLICATE_NAME, validator.getErrors().get(0).getMessage());
+
+            append(file, "bel\t4,4\n");
+            appended = (TSDFollower.Appended) next();
+            assertEquals(3, appended.getFirstLine());
+            assertEquals(Arrays.asList("@c\tlabel\t4,4"), appended.getLines());
+
+            Path replacement = directory.resolve("replacement.tsd");
+            Files.write(replacement, "@z\tlabel\t0,0\n".getBytes(StandardCharsets.UTF_8));
+            Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Object change = next();
+            while (change != REWRITTEN)
+                change = next();
+        }
+        Files.delete(file);
+        Files.delete(directory);
+    }
+
+    /**
+     * Testing that a file loaded while a line is being written, and growing during the load, gives a dataset and a
+     * document that both stop at its last complete line, and that following it from there reads the rest of the
+     * lines, instead of asking for the file to be loaded again.
+     */
+    @Test
+    public void partialLoadTest() throws Exception {
+        Path          directory = Files.createTempDirectory("follower");
+        Path          file      = directory.resolve("data.tsd");
+        StringBuilder unwritten = new StringBuilder("@b\tlabel\t");
+        for (int i = 0; i < 5000; i++)
+            unwritten.append('0');
+        Files.write(file, ("@a\tlabel\t1,1\n" + unwritten).getBytes(StandardCharsets.UTF_8));
+        long size = TSDParser.completeLinesSize(file);
+        assertEquals("@a\tlabel\t1,1\n".length(), size);
+
+        append(file, ",2\n@c\tlabel\t3,3\n");
+        DataSet dataSet = new DataSet();
+        TSDParser.parse(file, size, dataSet::addInstance, new TSDValidator(), ParseMonitor.NONE);
+        TSDDocument document = TSDDocument.open(file, size);
+        assertEquals(1, dataSet.size());
+        assertEquals(1, document.lineCount());
+        assertEquals(size, document.getSourceSize());
+
+        try (TSDFollower follower = new TSDFollower(file, document.getSourceSize(), document.lineCount(), listener)) {
+            Object change = next();
+            assertNotSame(REWRITTEN, change);
+            TSDFollower.Appended appended = (TSDFollower.Appended) change;
+            assertEquals(1, appended.getFirstLine());
+            assertEquals(Arrays.asList(unwritten + ",2", "@c\tlabel\t3,3"), appended.getLines());
+            appended.addTo(dataSet, new TSDValidator());
+            assertEquals(3, dataSet.size());
+        }
+        document.close();
+        Files.delete(file);
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,297 @@
+package dataprocessors;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+
+public class TSDParserTest {
+
+    private List<String> parsed = new ArrayList<>();
+
+    private Path write(String contents) throws Exception {
+        Path file = Files.createTempFile("parser", ".tsd");
+        file.toFile().deleteOnExit();
+        Files.write(file, contents.getBytes("UTF-8"));
+        return file;
+    }
+
+    private static String format(String name, String label, double[] point) {
+        StringBuilder instance = new StringBuilder(name).append(' ').append(label);
+        for (double coordinate : point)
+            instance.append(' ').append(coordinate);
+        return instance.toString();
+    }
+
+    private int parse(String contents) throws Exception {
+        return TSDParser.parse(write(contents), (name, label, point) -> parsed.add(format(name, label, point)));
+    }
+
+    /**
+     * Testing that every field of a valid file is decoded, with and without a trailing new line.
+     *
+     * @throws Exception
+     *          if the data is invalid
+     */
+    @Test
+    public void validFileTest() throws Exception {
+        assertEquals(2, parse("@a\tlabel\t1.5,2\n@b\tnull\t-3,4e2\n"));
+        assertEquals(1, parse("@c\tlabel\t0,0"));
+        assertEquals("@a label 1.5 2.0", parsed.get(0));
+        assertEquals("@b null -3.0 400.0", parsed.get(1));
+        assertEquals("@c label 0.0 0.0", parsed.get(2));
+    }
+
+    /**
+     * Testing that Windows line endings are not part of the last field.
+     *
+     * @throws Exception
+     *          if the data is invalid
+     */
+    @Test
+    public void carriageReturnTest() throws Exception {
+        parse("@a\tlabel\t1,1\r\n@b\tlabel\t2,2\r\n");
+        assertEquals("@b label 2.0 2.0", parsed.get(1));
+    }
+
+    /**
+     * Testing that the error message carries the line number, and that the valid lines are still handed over.
+     */
+    @Test
+    public void errorLineTest() {
+        try {
+            parse("@a\tlabel\t1,1\nb\tlabel\t2,2\n@c\tlabel\t3,3");
+            fail();
+        } catch (Exception e) {
+            assertTrue(e.getMessage().endsWith("There is an error on line: 2, column: 1"));
+        }
+        assertEquals(2, parsed.size());
+    }
+
+    /**
+     * Testing that a coordinate without its y value is reported the same way as {@link TSDProcessor} reports it.
+     */
+    @Test
+    public void missingNumberTest() {
+        try {
+            parse("@a\tlabel\t1");
+            fail();
+        } catch (Exception e) {
+            assertEquals("There is a missing number.\nThere is an error on line: 1, column: 11", e.getMessage());
+        }
+    }
+
+    /**
+     * Testing that every error is reported with its line and column, instead of only the last one.
+     */
+    @Test
+    public void allErrorsTest() {
+        try {
+            parse("a\tlabel\t1,1\n@b\tlabel\t2,x\n@c\tlabel\t3,3\n@c\tlabel\t4,4");
+            fail();
+        } catch (TSDValidator.InvalidDataException e) {
+            assertEquals(3, e.getErrorCount());
+            assertEquals(1, e.getErrors().get(0).getLine());
+            assertEquals(2, e.getErrors().get(1).getLine());
+            assertEquals(12, e.getErrors().get(1).getColumn());
+            assertEquals(4, e.getErrors().get(2).getLine());
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+        assertEquals(1, parsed.size());
+    }
+
+    /**
+     * Testing that the errors past the cap are only counted, and that fail-fast mode stops at the first error.
+     *
+     * @throws Exception
+     *          if the file cannot be written
+     */
+    @Test
+    public void capAndFailFastTest() throws Exception {
+        Path file = write("a\tl\t1,1\nb\tl\t1,1\nc\tl\t1,1\n@d\tl\t1,1");
+        TSDValidator capped = new TSDValidator(2, false);
+        try {
+            TSDParser.parse(file, (name, label, point) -> parsed.add(name), capped);
+            fail();
+        } catch (TSDValidator.InvalidDataException e) {
+            assertEquals(2, e.getErrors().size());
+            assertEquals(3, e.getErrorCount());
+            assertTrue(e.getMessage().endsWith("... and 1 more errors."));
+        }
+        assertEquals(1, parsed.size());
+
+        parsed.clear();
+        TSDValidator failFast = new TSDValidator(TSDValidator.DEFAULT_MAX_ERRORS, true);
+        try {
+            TSDParser.parse(file, (name, label, point) -> parsed.add(name), failFast);
+            fail();
+        } catch (TSDValidator.InvalidDataException e) {
+            assertEquals(1, e.getErrorCount());
+        }
+        assertEquals(0, parsed.size());
+    }
+
+    /**
+     * Testing that a file big enough to be split into several chunks gives the same instances, in the same order, and
+     * the same error line as a sequential parse. The duplicate name is placed far from its first occurrence so that
+     * the two end up in different chunks.
+     *
+     * @throws Exception
+     *          if the file cannot be written
+     */
+    @Test
+    public void parallelMatchesSequentialTest() throws Exception {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 200000; i++)
+            data.append("@instance").append(i).append("\tlabel").append(i % 3).append('\t').append(i).append(",-").append(i).append('\n');
+        data.append("@instance0\tlabel\t1,1\n");
+        Path file = write(data.toString());
+
+        String sequentialError = null;
+        try {
+            TSDParser.parse(file, (name, label, point) -> parsed.add(format(name, label, point)),
+                            new TSDValidator(), false);
+        } catch (Exception e) {
+            sequentialError = e.getMessage();
+        }
+        List<String> sequential = new ArrayList<>(parsed);
+        parsed.clear();
+
+        String parallelError = null;
+        try {
+            TSDParser.parse(file, (name, label, point) -> parsed.add(format(name, label, point)),
+                            new TSDValidator(), true);
+        } catch (Exception e) {
+            parallelError = e.getMessage();
+        }
+        assertEquals("There are duplicate names.\nThere is an error on line: 200001, column: 1", parallelError);
+        assertEquals(sequentialError, parallelError);
+        assertEquals(sequential, parsed);
+    }
+
+    /**
+     * Testing that the monitor is told about every byte, line and error of the file, and that it can cancel the parse
+     * before the whole file is read.
+     *
+     * @throws Exception
+     *          if the file cannot be written
+     */
+    @Test
+    public void monitorTest() throws Exception {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 50000; i++)
+            data.append("@instance").append(i).append("\tlabel\t").append(i).append(",0\n");
+        data.append("instance\tlabel\t0,0");
+        Path   file     = write(data.toString());
+        long[] progress = new long[3];
+        try {
+            TSDParser.parse(file, (name, label, point) -> {}, new TSDValidator(), new ParseMonitor() {
+                @Override
+                public void advance(long bytes, int lines, int errors) {
+                    progress[0] += bytes;
+                    progress[1] += lines;
+                    progress[2] += errors;
+                }
+
+                @Override
+                public boolean isCancelled() { return false; }
+            });
+            fail();
+        } catch (TSDValidator.InvalidDataException e) {
+            assertEquals(1, e.getErrorCount());
+        }
+        assertEquals(Files.size(file), progress[0]);
+        assertEquals(50001, progress[1]);
+        assertEquals(1, progress[2]);
+
+        try {
+            TSDParser.parse(file, (name, label, point) -> parsed.add(name), new TSDValidator(), new ParseMonitor() {
+                @Override
+                public void advance(long bytes, int lines, int errors) {}
+
+                @Override
+                public boolean isCancelled() { return true; }
+            });
+            fail();
+        } catch (CancellationException e) {
+            assertEquals(TSDParser.REPORT_INTERVAL, parsed.size());
+        }
+    }
+
+    /**
+     * Testing that validating a file without loading it finds the same errors, with the same messages, as a full
+     * parse, including duplicate names far apart in a file whose names outgrow the initial fingerprint table.
+     *
+     * @throws Exception
+     *          if the file cannot be written
+     */
+    @Test
+    public void validateTest() throws Exception {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 20000; i++)
+            data.append("@").append(i).append("\tl\t").append(i).append(",0\n");
+        assertEquals(20000, TSDParser.validate(write(data.toString()), new TSDValidator()));
+
+        data.append("@3\tl\t1,1\n\nname\tl\t1,1\n@x\tl\t1\n@y\tl\tone,2\n@19999\tl\t5,5\n@last\tl\t1,1");
+        Path   file          = write(data.toString());
+        String parseError    = null;
+        String validateError = null;
+        try {
+            TSDParser.parse(file, (name, label, point) -> {}, new TSDValidator(100, false));
+        } catch (TSDValidator.InvalidDataException e) {
+            parseError = e.getMessage();
+        }
+        try {
+            TSDParser.validate(file, new TSDValidator(100, false));
+        } catch (TSDValidator.InvalidDataException e) {
+            validateError = e.getMessage();
+        }
+        assertNotNull(parseError);
+        assertEquals(6, parseError.split("\n").length / 2);
+        assertEquals(parseError, validateError);
+    }
+
+    /**
+     * Testing that every comma-separated coordinate is decoded, and that an instance with another number of
+     * coordinates than the first one is reported on the same line by a sequential parse, a parallel parse and a
+     * validation-only parse.
+     *
+     * @throws Exception
+     *          if the file cannot be written
+     */
+    @Test
+    public void dimensionsTest() throws Exception {
+        assertEquals(2, parse("@a\tlabel\t1,2,3,4\n@b\tlabel\t-1,0,1e3,5"));
+        assertEquals("@a label 1.0 2.0 3.0 4.0", parsed.get(0));
+        assertEquals("@b label -1.0 0.0 1000.0 5.0", parsed.get(1));
+        parsed.clear();
+
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 200000; i++)
+            data.append("@instance").append(i).append("\tlabel\t").append(i).append(",0,-").append(i).append('\n');
+        data.append("@flat\tlabel\t1,1\n@last\tlabel\t1,1,1,\n");
+        Path     file     = write(data.toString());
+        String   expected = "Every instance must have 3 coordinates, like the first one.\n"
+                            + "There is an error on line: 200001, column: 1";
+        String[] errors   = new String[3];
+        for (int run = 0; run < errors.length; run++) {
+            try {
+                if (run == 2)
+                    TSDParser.validate(file, new TSDValidator());
+                else
+                    TSDParser.parse(file, (name, label, point) -> parsed.add(name), new TSDValidator(), run == 1);
+            } catch (TSDValidator.InvalidDataException e) {
+                errors[run] = e.getMessage();
+            }
+            assertEquals(expected, errors[run].substring(0, expected.length()));
+            assertEquals(errors[0], errors[run]);
+        }
+        assertEquals(400000, parsed.size());
+    }
+}
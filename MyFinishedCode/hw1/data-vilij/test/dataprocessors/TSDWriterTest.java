@@ -0,0 +1,135 @@
+package dataprocessors;
+
+import data.DataSet;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TSDWriterTest {
+
+    private static DataSet sample(int size) {
+        DataSet dataSet = new DataSet();
+        for (int i = 0; i < size; i++)
+            dataSet.addInstance("@instance" + i, "label" + i % 3, i * 0.5, -i);
+        dataSet.addInstance("@\u00fcn\u00efc\u00f6de\ud83d\ude00", "\u20ac", 1e300, -0.0);
+        return dataSet;
+    }
+
+    private static List<Path> files(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream)
+                files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Testing that a saved <code>.tsd</code> file holds exactly the lines of the dataset, across several buffers, and
+     * that the labels changed in memory are the ones saved.
+     */
+    @Test
+    public void textTest() throws Exception {
+        Path    directory = Files.createTempDirectory("writer");
+        Path    file      = directory.resolve("data.tsd");
+        DataSet dataSet   = sample(10000);
+        dataSet.setLabel(0, dataSet.labelId("assigned"));
+        TSDWriter.save(dataSet, file);
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < dataSet.size(); i++)
+            expected.append(dataSet.toTSDLine(i)).append('\n');
+        assertEquals(expected.toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        assertTrue(Files.size(file) > TSDWriter.BUFFER_SIZE);
+
+        DataSet read = new DataSet();
+        TSDParser.parse(file, read::addInstance);
+        assertEquals("assigned", read.getLabel(0));
+        assertEquals(dataSet.size(), read.size());
+        assertEquals(1, files(directory).size());
+        Files.delete(file);
+        Files.delete(directory);
+    }
+
+    /**
+     * Testing that a saved <code>.tsdb</code> file is read back with the same lines.
+     */
+    @Test
+    public void binaryTest() throws Exception {
+        Path    directory = Files.createTempDirectory("writer");
+        Path    file      = directory.resolve("data.tsdb");
+        DataSet dataSet   = sample(10000);
+        TSDWriter.save(dataSet, file);
+        DataSet read = TSDBCodec.read(file);
+        assertEquals(dataSet.size(), read.size());
+        for (int i = 0; i < dataSet.size(); i++)
+            assertEquals(dataSet.toTSDLine(i), read.toTSDLine(i));
+        assertEquals(1, files(directory).size());
+        Files.delete(file);
+        Files.delete(directory);
+    }
+
+    /**
+     * Testing that a save that fails halfway leaves the previous file as it was, and no temporary file behind.
+     */
+    @Test
+    public void failedSaveTest() throws Exception {
+        Path directory = Files.createTempDirectory("writer");
+        Path file      = directory.resolve("data.tsd");
+        Files.write(file, "@a\tlabel\t1,2\n".getBytes(StandardCharsets.UTF_8));
+        try {
+            TSDWriter.atomically(file, false, out -> {
+                out.putUTF8("@b\tlabel\t3,4\n");
+                out.flush();
+                throw new IOException("failed");
+            });
+            fail();
+        } catch (IOException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        assertEquals("@a\tlabel\t1,2\n", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        assertEquals(1, files(directory).size());
+        Files.delete(file);
+        Files.delete(directory);
+    }
+
+    /**
+     * Testing that a saved file keeps the permissions of the file it replaces, and that a new file gets the same
+     * permissions as any other new file, instead of those of a temporary file, where the file system has permissions.
+     */
+    @Test
+    public void permissionsTest() throws Exception {
+        Path directory = Files.createTempDirectory("writer");
+        if (!Files.getFileStore(directory).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.delete(directory);
+            return;
+        }
+        Path                     file     = directory.resolve("data.tsd");
+        Set<PosixFilePermission> shared   = PosixFilePermissions.fromString("rw-rw----");
+        Files.createFile(file);
+        Files.setPosixFilePermissions(file, shared);
+        TSDWriter.save(sample(10), file);
+        assertEquals(shared, Files.getPosixFilePermissions(file));
+
+        Path created = Files.createFile(directory.resolve("created"));
+        Path saved   = directory.resolve("new.tsdb");
+        TSDWriter.save(sample(10), saved);
+        assertEquals(Files.getPosixFilePermissions(created), Files.getPosixFilePermissions(saved));
+        assertEquals(3, files(directory).size());
+        for (Path path : files(directory))
+            Files.delete(path);
+        Files.delete(directory);
+    }
+}
@@ -1,7 +1,10 @@
 package ui;
 
+import algorithms.Parallel;
+import classification.LogisticClassifier;
 import classification.RandomClassifier;
 import clustering.KMeansClusterer;
+import clustering.MiniBatchKMeansClusterer;
 import clustering.RandomClusterer;
 import data.DataSet;
 import org.junit.Test;
@@ -231,4 +234,62 @@ public class ConfigTest {
         createConfig("0", "0","0", true);
         RandomClusterer test = new RandomClusterer(new DataSet(), config.getIterations(), config.getUpdateInterval(), config.getLabels(), config.isCont());
     }
-}
\ No newline at end of file
+
+    /**
+     * Testing that a mini-batch clusterer starts with the default batch size, which AppUI copies into its Config, and
+     * takes the batch size of the Config. 1 is used because it is the boundary value, as a batch cannot be empty.
+     *
+     * @throws Exception
+     *          Throws an Exception if any input is not an integer or a negative for iteration and updateInterval
+     */
+    @Test
+    public void MiniBatchKMeansClustererBatchSizeTest() throws Exception {
+        createConfig("10", "2", "3", true);
+        MiniBatchKMeansClusterer test = new MiniBatchKMeansClusterer(new DataSet(), config.getIterations(), config.getUpdateInterval(), config.getLabels(), config.isCont());
+        assertEquals(MiniBatchKMeansClusterer.DEFAULT_BATCH_SIZE, test.getBatchSize());
+        config.setBatchSize(1);
+        test.setBatchSize(config.getBatchSize());
+        assertEquals(1, test.getBatchSize());
+    }
+
+    /**
+     * Testing that a batch size of 0, the value of a Config that was never set, is rejected by the mini-batch clusterer.
+     *
+     * @throws Exception
+     *          Throws an Exception if the batch size is not positive
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void InvalidMiniBatchKMeansClustererTest() throws Exception {
+        createConfig("10", "2", "3", true);
+        new MiniBatchKMeansClusterer(new DataSet(), config.getIterations(), config.getUpdateInterval(), config.getLabels(), config.isCont()).setBatchSize(config.getBatchSize());
+    }
+
+    /**
+     * Testing that the parallel mode of the logistic classifier defaults to training on all cores, and takes the mode
+     * of the config, as the deterministic mode for reproducible lines.
+     *
+     * @throws Exception
+     *          Throws an Exception if any input is not an integer or a negative for iteration and updateInterval
+     */
+    @Test
+    public void LogisticClassifierParallelModeTest() throws Exception {
+        createConfig("10", "2", "0", true);
+        LogisticClassifier test = new LogisticClassifier(new DataSet(), config.getIterations(), config.getUpdateInterval(), config.isCont());
+        assertEquals(Parallel.Mode.HOGWILD, test.getParallelMode());
+        config.setParallelMode(Parallel.Mode.AVERAGED);
+        test.setParallelMode(config.getParallelMode());
+        assertEquals(Parallel.Mode.AVERAGED, test.getParallelMode());
+    }
+
+    /**
+     * Testing that no parallel mode, the value of a Config that was never set, is rejected by the logistic classifier.
+     *
+     * @throws Exception
+     *          Throws an Exception if the parallel mode is null
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void InvalidLogisticClassifierTest() throws Exception {
+        createConfig("10", "2", "0", true);
+        new LogisticClassifier(new DataSet(), config.getIterations(), config.getUpdateInterval(), config.isCont()).setParallelMode(config.getParallelMode());
+    }
+}
@@ -0,0 +1,26 @@
+package ui;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PaletteTest {
+
+    /**
+     * Testing that the first labels keep the default chart colors, and that hundreds of labels, as many as there may be
+     * clusters, each get a color of their own, written as a CSS hexadecimal color.
+     */
+    @Test
+    public void colorTest() {
+        assertEquals("#f3622d", Palette.color(0));
+        Set<String> colors = new HashSet<>();
+        for (int id = 0; id < 256; id++) {
+            assertTrue(Palette.color(id).matches("#[0-9a-f]{6}"));
+            colors.add(Palette.color(id));
+        }
+        assertEquals(256, colors.size());
+    }
+}